@@ -2,12 +2,14 @@ package com.supergreenowl.tunnel.ai;
 
 import java.util.Arrays;
 
-import com.badlogic.gdx.utils.Array;
 import com.supergreenowl.tunnel.controller.Engine;
 import com.supergreenowl.tunnel.controller.GameConfig;
 import com.supergreenowl.tunnel.controller.Player;
+import com.supergreenowl.tunnel.controller.Snapshot;
 import com.supergreenowl.tunnel.model.Direction;
-import com.supergreenowl.tunnel.model.Soldier;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierStore;
+import com.supergreenowl.tunnel.model.SoldierType;
 
 /**
  * {@link Player} that is controlled by game AI.
@@ -24,11 +26,14 @@ public abstract class AI extends Player {
 	public SelectionStrategy selection;
 	
 	/** Notifications of soldiers dispatched by the opponent. */
-	private Array<SoldierDispatch> dispatches;
+	private SoldierQueue dispatches;
 	
 	/** Soldiers waiting to be dispatched. */
 	private SoldierQueue queue;
 	
+	/** Rules of the game this player is playing (or {@code null} before it joins a game). */
+	protected Ruleset ruleset;
+	
 	/**
 	 * Reaction speed of this AI in seconds.
 	 */
@@ -44,20 +49,50 @@ public abstract class AI extends Player {
 		this.engine = null;
 		this.reactionSpeed = reactionSpeed;
 		this.selection = selectionStrategy;
-		dispatches = new Array<SoldierDispatch>();
+		dispatches = new SoldierQueue();
 		queue = new SoldierQueue();
 		
 	}
 	
 	@Override
 	public void notify(int soldierType, float time) {
-		dispatches.add(new SoldierDispatch(soldierType, time));
+		dispatches.add(soldierType, time, 0f);
 	}
 	
 	@Override
 	public void setEngine(Engine engine) {
 		super.setEngine(engine);
 		reset();
+		
+		if(engine.tunnel.rules != ruleset) {
+			ruleset = engine.tunnel.rules;
+			onRules(ruleset);
+		}
+	}
+	
+	/**
+	 * Called when this player joins a game with different rules to its last game so it can work out how to play.
+	 * @param rules Rules of the game.
+	 */
+	protected void onRules(Ruleset rules) {
+		/* Nothing to work out by default. */
+	}
+	
+	/**
+	 * Finds the soldier types to send with white soldiers in a panic against a soldier type nothing else can beat.
+	 * These are types that lose to the enemy soldier but can still hurt it. 
+	 * @param rules Rules of the game.
+	 * @param type Enemy soldier type.
+	 * @return Soldier types in type order.
+	 */
+	protected static int[] panicTypes(Ruleset rules, int type) {
+		int[] victims = rules.victims(type);
+		int count = 0;
+		for(int i = 0; i < victims.length; i++) {
+			int v = victims[i];
+			if(v != SoldierType.WHITE && rules.damage(v, type) > 0) victims[count++] = v;
+		}
+		return Arrays.copyOf(victims, count);
 	}
 
 	@Override
@@ -70,9 +105,9 @@ public abstract class AI extends Player {
 		}
 		
 		// React to any released soldiers
-		while(dispatches.size > 0 && dispatches.get(0).time <= gameTime - reactionSpeed) {
-			onDispatched(gameTime, dispatches.get(0).type);
-			dispatches.removeIndex(0);
+		SoldierDispatch dispatch;
+		while((dispatch = dispatches.poll(gameTime - reactionSpeed)) != null) {
+			onDispatched(gameTime, dispatch.type);
 		}
 		
 		// Fire pre-auto dispatch event
@@ -88,6 +123,42 @@ public abstract class AI extends Player {
 		}
 	}
 	
+	@Override
+	public float nextPlayTime() {
+		
+		// Next tick
+		float next = lastTick + reactionSpeed;
+		
+		// Next queued soldier
+		next = Math.min(next, queue.nextTime());
+		
+		// Reaction to the next soldier dispatched by the opponent
+		next = Math.min(next, dispatches.nextTime() + reactionSpeed);
+		
+		// Pre-auto dispatch event
+		if(!hasDispatched) next = Math.min(next, Engine.AUTO_DISPATCH_TIME - reactionSpeed);
+		
+		return next;
+	}
+	
+	@Override
+	public void write(Snapshot snapshot) {
+		super.write(snapshot);
+		snapshot.putBoolean(hasDispatched);
+		snapshot.putFloat(lastTick);
+		queue.write(snapshot);
+		dispatches.write(snapshot);
+	}
+	
+	@Override
+	public void read(Snapshot snapshot) {
+		super.read(snapshot);
+		hasDispatched = snapshot.getBoolean();
+		lastTick = snapshot.getFloat();
+		queue.read(snapshot);
+		dispatches.read(snapshot);
+	}
+	
 	public void selectSoldiers(int coins, GameConfig.SoldierAvailability available) {
 		Arrays.fill(selectedSoldiers, Player.NONE_SELECTED);
 		selection.select(this, coins, available);
@@ -137,7 +208,7 @@ public abstract class AI extends Player {
 	 */
 	protected boolean isOpponentOutOfSoldiers() {
 		
-		Array<Soldier> enemySoldiersInTunnel;
+		SoldierStore enemySoldiersInTunnel;
 		Player opponent;
 		
 		if(direction == Direction.East) {
@@ -149,7 +220,7 @@ public abstract class AI extends Player {
 			opponent = engine.east;
 		}
 		
-		return enemySoldiersInTunnel.size == 0 && opponent.totalSoldiers() == 0;
+		return enemySoldiersInTunnel.size() == 0 && opponent.totalSoldiers() == 0;
 	}
 		
 	protected abstract void onDispatched(float gameTime, int soldierType);
@@ -33,6 +33,19 @@ public class AIFactory {
 		}
 	}
 	
+	/**
+	 * Creates an AI player of the specified difficulty level that selects its soldiers with the specified strategy.
+	 * @param difficulty Difficulty level of the AI player.
+	 * @param direction Direction the AI plays in.
+	 * @param selection Strategy used to select soldiers.
+	 * @return AI.
+	 */
+	public static AI create(Difficulty difficulty, Direction direction, SelectionStrategy selection) {
+		if(difficulty == Difficulty.Hard) return new HardAI(direction, selection);
+		else if(difficulty == Difficulty.Medium) return new MediumAI(direction, selection);
+		else return new EasyAI(direction, selection); // NB: an OrderedAI needs a list of soldiers
+	}
+	
 	/**
 	 * Creates an AI player that will use the specified soldiers.
 	 * @param difficulty Difficulty level of the AI player.
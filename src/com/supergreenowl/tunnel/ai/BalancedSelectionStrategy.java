@@ -2,6 +2,7 @@ package com.supergreenowl.tunnel.ai;
 
 import com.supergreenowl.tunnel.controller.Player;
 import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.SoldierType;
 
 /**
@@ -29,27 +30,29 @@ public class BalancedSelectionStrategy implements SelectionStrategy {
 	public void select(Player player, int coins, SoldierAvailability available) {
 				
 		boolean isWhiteAvailable = available.allows(SoldierType.WHITE);
+		Ruleset rules = player.rules;
 		
 		int selected = SoldierType.BLUE;
 		
-		// choose R, G, B, C, M, Y in turn until coins < 3
-		while(coins >= SoldierType.COST[SoldierType.RED]) {
+		// choose R, G, B, C, M, Y in turn until the next one can't be afforded
+		while(coins >= rules.cost(SoldierType.RED)) {
 			
 			// Choose next type to select
 			selected = nextSoldierType(selected, available);
+			if(coins < rules.cost(selected)) break;
 			
 			// Select soldier of next type
 			// NB THE AVAILABLE SOLDIERS ARRAY IS INITIALIZED TO Player.NONE_SELECTED AND INCREMENTING THIS IS NOT MEANINGUL
 			if(player.selectedSoldiers[selected] == Player.NONE_SELECTED) player.selectedSoldiers[selected] = 0;
 			player.selectedSoldiers[selected]++;
-			coins -= SoldierType.COST[selected];
+			coins -= rules.cost(selected);
 		}
 		
 		// if coins > 0 and white available then choose white
-		while(isWhiteAvailable && coins >= SoldierType.COST[SoldierType.WHITE]) {
+		while(isWhiteAvailable && coins >= rules.cost(SoldierType.WHITE)) {
 			if(player.selectedSoldiers[SoldierType.WHITE] == Player.NONE_SELECTED) player.selectedSoldiers[SoldierType.WHITE] = 0;
 			player.selectedSoldiers[SoldierType.WHITE]++;
-			coins -= SoldierType.COST[SoldierType.WHITE];
+			coins -= rules.cost(SoldierType.WHITE);
 		}
 		
 	}
@@ -2,6 +2,7 @@ package com.supergreenowl.tunnel.ai;
 
 import com.badlogic.gdx.utils.Array;
 import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.Soldier;
 import com.supergreenowl.tunnel.model.SoldierType;
 import com.supergreenowl.tunnel.model.Tunnel;
@@ -17,6 +18,12 @@ public class HardAI extends AI {
 	/** Number of soldiers considered when choosing what to send. */
 	private static final int SOLDIERS = 3;
 	
+	/**
+	 * Counters tried first when nothing in the rules tells them apart, indexed by the type countered.
+	 * The default rules can't tell cyan from magenta against blue but this AI has always tried magenta first.
+	 */
+	private static final int[][] TIE_BREAKS = new int[][] { {}, {}, {}, { SoldierType.MAGENTA }, {}, {}, {} };
+	
 	private SelectionRule anySoldier;
 	private TunnelAnalyser analyser;
 	
@@ -31,33 +38,72 @@ public class HardAI extends AI {
 		super(direction, REACTION_SPEED, selectionStrategy);
 		analyser = new TunnelAnalyser();
 		anySoldier = new SelectionRule();
-		
-		sets = new IntSet[] {
-				new IntSet(SoldierType.RED, SoldierType.GREEN, SoldierType.BLUE, SoldierType.CYAN, SoldierType.MAGENTA, SoldierType.YELLOW), // w
-				new IntSet(SoldierType.BLUE, SoldierType.MAGENTA, SoldierType.YELLOW), // r
-				new IntSet(SoldierType.RED, SoldierType.CYAN, SoldierType.YELLOW), // g
-				new IntSet(SoldierType.GREEN, SoldierType.MAGENTA, SoldierType.CYAN), // b
-				new IntSet(SoldierType.RED, SoldierType.YELLOW), // c
-				new IntSet(SoldierType.GREEN, SoldierType.CYAN), // m
-				new IntSet(SoldierType.BLUE, SoldierType.MAGENTA) // y
-		};
 		workingSet = new IntSet(SoldierType.COUNT);
 		
 		if(direction == Direction.West) dangerZone = DANGER_ZONE;
 		else dangerZone = Tunnel.LENGTH - DANGER_ZONE;
-				
-		SelectionRule whites3 = new SelectionRule(SoldierType.WHITE, 3);
-		rules = new SelectionRule[][] {
-			new SelectionRule[] { new SelectionRule(SoldierType.WHITE), anySoldier }, // W
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.RED), new SelectionRule(SoldierType.WHITE, SoldierType.GREEN, 3) }, // R
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.GREEN), new SelectionRule(SoldierType.WHITE, SoldierType.BLUE, 3) }, // G
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.BLUE), new SelectionRule(SoldierType.WHITE, SoldierType.RED, 3) }, // B
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.CYAN), new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.GREEN, SoldierType.BLUE, SoldierType.MAGENTA }, 3) }, // C
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.MAGENTA), new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.RED, SoldierType.BLUE, SoldierType.YELLOW }, 3) }, // M
-			new SelectionRule[] { whites3, new SelectionRule(SoldierType.YELLOW), new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.RED, SoldierType.GREEN, SoldierType.CYAN }, 3) } // Y
-		};
+	}
+	
+	@Override
+	protected void onRules(Ruleset ruleset) {
+		sets = new IntSet[SoldierType.COUNT];
+		rules = new SelectionRule[SoldierType.COUNT][];
+		
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			// Soldiers that are effective against each type, least damaged first
+			// If two are equally good keep back the one that beats the most types
+			int[] counters = ruleset.counters(t);
+			for(int i = 1; i < counters.length; i++) {
+				for(int j = i; j > 0 && compare(ruleset, t, counters[j], counters[j - 1]) < 0; j--) {
+					int c = counters[j];
+					counters[j] = counters[j - 1];
+					counters[j - 1] = c;
+				}
+			}
+			sets[t] = new IntSet(counters);
+			
+			if(t == SoldierType.WHITE) {
+				rules[t] = new SelectionRule[] { new SelectionRule(SoldierType.WHITE), anySoldier };
+				continue;
+			}
+			
+			// Panic rules for when nothing is effective: enough whites to kill it, one of the same type or whites backed up by something it beats
+			int whites = ruleset.needed(SoldierType.WHITE, t);
+			int[] panic = panicTypes(ruleset, t);
+			SelectionRule same = new SelectionRule(t);
+			
+			if(whites == 0) rules[t] = new SelectionRule[] { same };
+			else if(panic.length == 0) rules[t] = new SelectionRule[] { new SelectionRule(SoldierType.WHITE, whites), same };
+			else {
+				SelectionRule whitesAnd = panic.length == 1 ? new SelectionRule(SoldierType.WHITE, panic[0], whites) : new SelectionRule(SoldierType.WHITE, panic, whites);
+				rules[t] = new SelectionRule[] { new SelectionRule(SoldierType.WHITE, whites), same, whitesAnd };
+			}
+		}
 	}
 
+	/**
+	 * Compares how good two soldier types are at countering another.
+	 * @param rules Rules of the game.
+	 * @param type Type to counter.
+	 * @param a First counter.
+	 * @param b Second counter.
+	 * @return Negative if {@code a} should be sent first, positive if {@code b} should be sent first or 0 if it doesn't matter.
+	 */
+	private static int compare(Ruleset rules, int type, int a, int b) {
+		int damage = rules.damage(type, a) - rules.damage(type, b);
+		if(damage != 0) return damage;
+		int victims = rules.victims(a).length - rules.victims(b).length;
+		if(victims != 0) return victims;
+		return isTieBreak(type, b) ? (isTieBreak(type, a) ? 0 : 1) : (isTieBreak(type, a) ? -1 : 0);
+	}
+	
+	private static boolean isTieBreak(int type, int counter) {
+		for(int i = 0; i < TIE_BREAKS[type].length; i++) {
+			if(TIE_BREAKS[type][i] == counter) return true;
+		}
+		return false;
+	}
+	
 	@Override
 	protected void onPreAutoDispatch(float gameTime) {
 		
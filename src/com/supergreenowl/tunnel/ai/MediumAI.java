@@ -1,6 +1,8 @@
 package com.supergreenowl.tunnel.ai;
 
+import com.badlogic.gdx.utils.Array;
 import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.SoldierType;
 
 public class MediumAI extends AI {
@@ -18,40 +20,63 @@ public class MediumAI extends AI {
 	
 	public MediumAI(Direction direction, SelectionStrategy selectionStrategy) {
 		super(direction, REACTION_SPEED, selectionStrategy);
-		
-		// Set up selection rules - ordinary rules
-		SelectionRule white = new SelectionRule(SoldierType.WHITE);
-		SelectionRule red = new SelectionRule(SoldierType.RED);
-		SelectionRule green = new SelectionRule(SoldierType.GREEN);
-		SelectionRule blue = new SelectionRule(SoldierType.BLUE);
-		SelectionRule cyan = new SelectionRule(SoldierType.CYAN);
-		SelectionRule magenta = new SelectionRule(SoldierType.MAGENTA);
-		SelectionRule yellow = new SelectionRule(SoldierType.YELLOW);
-		SelectionRule whites3 = new SelectionRule(SoldierType.WHITE, 3);
 		anySoldier = new SelectionRule();
-		SelectionRule cyanOrMagenta = new SelectionRule(SoldierType.CYAN, SoldierType.MAGENTA, 1);
-		SelectionRule cyanOrYellow = new SelectionRule(SoldierType.CYAN, SoldierType.YELLOW, 1);
-		SelectionRule magentaOrYellow = new SelectionRule(SoldierType.MAGENTA, SoldierType.YELLOW, 1);
-		
-		// Set up selection rules - panic rules! These are the last resort rules which
-		// knowingly send out soldiers vulnerable to the opponents soldier 
-		SelectionRule redPanic = new SelectionRule(SoldierType.WHITE, SoldierType.GREEN, 3, true);
-		SelectionRule greenPanic = new SelectionRule(SoldierType.WHITE, SoldierType.BLUE, 3, true);
-		SelectionRule bluePanic = new SelectionRule(SoldierType.WHITE, SoldierType.RED, 3, true);
-		
-		SelectionRule cyanPanic = new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.GREEN, SoldierType.BLUE, SoldierType.MAGENTA}, 3);
-		SelectionRule magentaPanic = new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.RED, SoldierType.BLUE, SoldierType.YELLOW}, 3);
-		SelectionRule yellowPanic = new SelectionRule(SoldierType.WHITE, new int[] { SoldierType.RED, SoldierType.GREEN, SoldierType.CYAN}, 3);
+	}
+	
+	@Override
+	protected void onRules(Ruleset ruleset) {
+		rules = new SelectionRule[SoldierType.COUNT][];
+		rules[SoldierType.WHITE] = new SelectionRule[] { new SelectionRule(SoldierType.WHITE), anySoldier };
 		
-		rules = new SelectionRule[][] {
-				new SelectionRule[] { white, anySoldier }, // w
-				new SelectionRule[] { magentaOrYellow, blue, whites3, red, redPanic }, // r
-				new SelectionRule[] { cyanOrYellow, red, whites3, green, greenPanic }, // g
-				new SelectionRule[] { cyanOrMagenta, green, whites3, blue, bluePanic }, // b
-				new SelectionRule[] { red, yellow, whites3, cyan, cyanPanic }, // c
-				new SelectionRule[] { green, cyan, whites3, magenta, magentaPanic}, // m
-				new SelectionRule[] { blue, magenta, whites3, yellow, yellowPanic } // y
-		};
+		Array<SelectionRule> list = new Array<SelectionRule>();
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			if(t == SoldierType.WHITE) continue;
+			list.clear();
+			
+			// Ordinary rules - soldiers that beat this type, least damaged first
+			// If two are equally good prefer the one that beats the most types, then whichever there are more of
+			int[] counters = ruleset.counters(t);
+			for(int i = 1; i < counters.length; i++) {
+				for(int j = i; j > 0 && compare(ruleset, t, counters[j], counters[j - 1]) < 0; j--) {
+					int c = counters[j];
+					counters[j] = counters[j - 1];
+					counters[j - 1] = c;
+				}
+			}
+			
+			for(int i = 0; i < counters.length; ) {
+				int j = i + 1;
+				while(j < counters.length && compare(ruleset, t, counters[i], counters[j]) == 0) j++;
+				
+				if(j - i == 2) list.add(new SelectionRule(counters[i], counters[i + 1], 1));
+				else for(int k = i; k < j; k++) list.add(new SelectionRule(counters[k]));
+				i = j;
+			}
+			
+			// Panic rules! These are the last resort rules which knowingly send out soldiers vulnerable to the opponents soldier
+			int whites = ruleset.needed(SoldierType.WHITE, t);
+			if(whites > 0) list.add(new SelectionRule(SoldierType.WHITE, whites));
+			list.add(new SelectionRule(t));
+			
+			int[] panic = panicTypes(ruleset, t);
+			if(whites > 0 && panic.length > 0) list.add(new SelectionRule(SoldierType.WHITE, panic, whites));
+			
+			rules[t] = list.toArray(SelectionRule.class);
+		}
+	}
+	
+	/**
+	 * Compares how good two soldier types are at countering another.
+	 * @param rules Rules of the game.
+	 * @param type Type to counter.
+	 * @param a First counter.
+	 * @param b Second counter.
+	 * @return Negative if {@code a} is better, positive if {@code b} is better or 0 if they are as good as each other.
+	 */
+	private static int compare(Ruleset rules, int type, int a, int b) {
+		int damage = rules.damage(type, a) - rules.damage(type, b);
+		if(damage != 0) return damage;
+		return rules.victims(b).length - rules.victims(a).length;
 	}
 
 	@Override
@@ -1,6 +1,7 @@
 package com.supergreenowl.tunnel.ai;
 
 import com.supergreenowl.tunnel.campaign.SoldierList;
+import com.supergreenowl.tunnel.controller.Snapshot;
 import com.supergreenowl.tunnel.model.Direction;
 
 /**
@@ -39,6 +40,18 @@ public class OrderedAI extends AI {
 		/* Does not react to this event. */
 	}
 	
+	@Override
+	public void write(Snapshot snapshot) {
+		super.write(snapshot);
+		snapshot.putShort(list.getPosition());
+	}
+	
+	@Override
+	public void read(Snapshot snapshot) {
+		super.read(snapshot);
+		list.setPosition(snapshot.getShort());
+	}
+	
 	@Override
 	protected void reset() {
 		super.reset();
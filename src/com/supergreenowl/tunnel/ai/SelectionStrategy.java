@@ -11,7 +11,8 @@ import com.supergreenowl.tunnel.controller.Player;
 public interface SelectionStrategy {
 
 	/**
-	 * Sets the available soldiers for a player. Chooses which soldiers to use based on the coins available.
+	 * Sets the available soldiers for a player. Chooses which soldiers to use based on the coins available,
+	 * paying the costs in the player's {@link Player#rules}.
 	 * @param coins Number of coins available to spend.
 	 * @param available Which soldier types can be selected in the game.
 	 */
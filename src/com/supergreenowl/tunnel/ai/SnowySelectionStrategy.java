@@ -30,11 +30,11 @@ public class SnowySelectionStrategy implements SelectionStrategy {
 		int secondType = Random.nextInt(maxAllowed) + 1;
 		while(secondType == firstType) secondType = Random.nextInt(maxAllowed) + 1;
 		
-		int whiteCost = SoldierType.COST[SoldierType.WHITE];
-		int costPerIteration = whiteCost * WHITES_PER_ITERATION + SoldierType.COST[firstType];
+		int whiteCost = player.rules.cost(SoldierType.WHITE);
 		
 		int[] soldiers = player.selectedSoldiers;
 		int selectedType = firstType;
+		int costPerIteration = whiteCost * WHITES_PER_ITERATION + player.rules.cost(selectedType);
 		
 		soldiers[SoldierType.WHITE] = 0;
 		
@@ -49,6 +49,7 @@ public class SnowySelectionStrategy implements SelectionStrategy {
 			else selectedType = firstType;
 			
 			coins -= costPerIteration;
+			costPerIteration = whiteCost * WHITES_PER_ITERATION + player.rules.cost(selectedType);
 		}
 		
 		// Buy as many whites as possible
@@ -2,6 +2,7 @@ package com.supergreenowl.tunnel.ai;
 
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pool;
+import com.supergreenowl.tunnel.controller.Snapshot;
 
 /**
  * A pooled queue of {@link SoldierDispatch} instances.
@@ -50,6 +51,15 @@ public class SoldierQueue {
 		queue.add(d);
 	}
 
+	/**
+	 * Gets the time at which the next soldier in the queue is due to be dispatched.
+	 * @return Game time (s) or {@code Float.POSITIVE_INFINITY} if the queue is empty.
+	 */
+	public float nextTime() {
+		if(queue.size > 0) return queue.get(0).time;
+		return Float.POSITIVE_INFINITY;
+	}
+	
 	/**
 	 * Polls the queue to see if there are any dispatches due at the current time.
 	 * @param gameTime Current game time (s).
@@ -67,4 +77,38 @@ public class SoldierQueue {
 		
 		return null;
 	}
+	
+	/**
+	 * Removes all soldiers from the queue.
+	 */
+	public void clear() {
+		pool.freeAll(queue);
+		queue.clear();
+	}
+	
+	/**
+	 * Writes all soldiers in the queue to a snapshot.
+	 * @param snapshot Snapshot to write to.
+	 */
+	public void write(Snapshot snapshot) {
+		snapshot.putShort(queue.size);
+		for(int i = 0; i < queue.size; i++) {
+			SoldierDispatch d = queue.get(i);
+			snapshot.putByte(d.type);
+			snapshot.putFloat(d.time);
+		}
+	}
+	
+	/**
+	 * Replaces all soldiers in the queue with those read from a snapshot.
+	 * @param snapshot Snapshot to read from.
+	 */
+	public void read(Snapshot snapshot) {
+		clear();
+		int count = snapshot.getShort();
+		for(int i = 0; i < count; i++) {
+			int type = snapshot.getByte();
+			add(type, snapshot.getFloat(), 0f);
+		}
+	}
 }
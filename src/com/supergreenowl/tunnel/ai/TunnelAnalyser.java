@@ -2,10 +2,11 @@ package com.supergreenowl.tunnel.ai;
 
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pool;
-import com.supergreenowl.tunnel.model.CombatEngine;
 import com.supergreenowl.tunnel.model.Direction;
-import com.supergreenowl.tunnel.model.Soldier;
+import com.supergreenowl.tunnel.model.DuelTable;
+import com.supergreenowl.tunnel.model.SoldierStore;
 import com.supergreenowl.tunnel.model.Tunnel;
+import com.supergreenowl.tunnel.model.TunnelState;
 import com.supergreenowl.tunnel.utils.PooledQueue;
 
 /**
@@ -32,11 +33,11 @@ public class TunnelAnalyser {
 		float position;
 		Direction direction;
 		
-		public void set(Soldier s) {
-			this.type = s.type;
-			this.direction = s.direction;
-			this.hp = s.hp;
-			this.position = s.position;
+		public void set(SoldierStore soldiers, int i) {
+			this.type = soldiers.type(i);
+			this.direction = soldiers.direction;
+			this.hp = soldiers.hp(i);
+			this.position = soldiers.position(i);
 		}
 	}
 	
@@ -60,19 +61,25 @@ public class TunnelAnalyser {
 	public Array<SoldierOutcome> analyse(Tunnel tunnel) {
 		west.clear();
 		east.clear();
+		
+		// Return the outcomes from the previous analysis to the pool so they can be reused
+		pool.freeAll(outcome);
 		outcome.clear();
 		
 		add(tunnel.west);
 		add(tunnel.east);
 		
+		DuelTable duels = tunnel.rules.duels;
+		
 		while(!west.isEmpty() && !east.isEmpty()) {
 			SoldierOutcome w = west.peek();
 			SoldierOutcome e = east.peek();
 			
-			analyse(w, e);
+			// Neither soldier can hurt the other so the fight stops here with everyone left surviving
+			if(!analyse(w, e, duels)) break;
 			
-			if(w.hp <= 0) west.poll();
-			if(e.hp <= 0) east.poll();
+			if(w.hp <= 0) pool.free(west.poll());
+			if(e.hp <= 0) pool.free(east.poll());
 		}
 		
 		// Add all surviving soldiers to the outcome collection
@@ -95,24 +102,31 @@ public class TunnelAnalyser {
 	 * Analyses combat between 2 soldiers and updates their hitpoints.
 	 * @param west
 	 * @param east
+	 * @param duels Outcomes of duels under the rules of the game.
+	 * @return {@code false} if the duel never ends because neither soldier can hurt the other (hitpoints are unchanged).
 	 */
-	private void analyse(SoldierOutcome west, SoldierOutcome east) {
-		while(west.hp > 0 && east.hp > 0) {
-			west.hp -= CombatEngine.DAMAGE[east.type][west.type];
-			east.hp -= CombatEngine.DAMAGE[west.type][east.type];
-		}
+	private boolean analyse(SoldierOutcome west, SoldierOutcome east, DuelTable duels) {
+		if(west.hp <= 0 || east.hp <= 0) return true; // Dying soldiers can have negative hitpoints
+		
+		int duel = duels.index(west.type, east.type, west.hp, east.hp);
+		if(duels.winner(duel) == TunnelState.Open) return false;
+		
+		west.hp = duels.westHp(duel);
+		east.hp = duels.eastHp(duel);
+		return true;
 	}
 	
 	/**
 	 * Adds multiple soldiers to the collection for analysis.
 	 * @param soldiers
 	 */
-	private void add(Iterable<Soldier> soldiers) {
-		for(Soldier s : soldiers) {
+	private void add(SoldierStore soldiers) {
+		PooledQueue<SoldierOutcome> queue = soldiers.direction == Direction.West ? west : east;
+		int len = soldiers.size();
+		for(int i = 0; i < len; i++) {
 			SoldierOutcome outcome = pool.obtain();
-			outcome.set(s);
-			if(s.direction == Direction.West) west.add(outcome);
-			else east.add(outcome);
+			outcome.set(soldiers, i);
+			queue.add(outcome);
 		}
 	}
 }
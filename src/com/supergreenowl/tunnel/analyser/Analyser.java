@@ -1,24 +1,172 @@
 package com.supergreenowl.tunnel.analyser;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.supergreenowl.tunnel.ai.BalancedSelectionStrategy;
+import com.supergreenowl.tunnel.ai.MultipleSelectionStrategy;
+import com.supergreenowl.tunnel.ai.SelectionStrategy;
+import com.supergreenowl.tunnel.ai.SnowySelectionStrategy;
+import com.supergreenowl.tunnel.campaign.Level;
+import com.supergreenowl.tunnel.campaign.LevelLoader;
+import com.supergreenowl.tunnel.controller.GameConfig.ArmySize;
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.model.ArmyCodec;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.TunnelState;
+
 public class Analyser {
+	
+	/** Most armies in the equilibrium to list. */
+	private static final int MAX_LISTED = 20;
+	
+	/** Smallest share of the equilibrium an army must have to be listed. */
+	private static final double MIN_LISTED = 0.005d;
 
 	/**
 	 * @param args
 	 */
 	public static void main(String[] args) {
 		
-		if(args.length != 2) {
-			System.out.println("Usage: Analyser WEST EAST");
+		if(args.length > 0 && args[0].equals("-b")) {
+			sweep(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals("-d")) {
+			serve(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals("-o")) {
+			order(args);
+			return;
+		}
+		if(args.length > 0 && args[0].equals("-v")) {
+			evaluate(args);
+			return;
+		}
+		
+		boolean exact = false, trie = false, list = false;
+		int threads = -1, workers = 0;
+		long maxSamples = 0L, seed = 1L;
+		float interval = -1f;
+		double tolerance = 0.002d;
+		File cacheFile = null, journal = null;
+		int i = 0;
+		for(; i < args.length - 2; i++) {
+			if(args[i].equals("-x")) exact = true;
+			else if(args[i].equals("-p")) trie = true;
+			else if(args[i].equals("-l")) trie = list = true;
+			else if(args[i].equals("-t") && i + 1 < args.length - 2) threads = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-m") && i + 1 < args.length - 2) maxSamples = Long.parseLong(args[++i]);
+			else if(args[i].equals("-e") && i + 1 < args.length - 2) tolerance = Double.parseDouble(args[++i]);
+			else if(args[i].equals("-r") && i + 1 < args.length - 2) seed = Long.parseLong(args[++i]);
+			else if(args[i].equals("-i") && i + 1 < args.length - 2) interval = Float.parseFloat(args[++i]);
+			else if(args[i].equals("-c") && i + 1 < args.length - 2) cacheFile = new File(args[++i]);
+			else if(args[i].equals("-j") && i + 1 < args.length - 2) journal = new File(args[++i]);
+			else if(args[i].equals("-w") && i + 1 < args.length - 2) workers = Integer.parseInt(args[++i]);
+			else break;
+		}
+		
+		if(args.length - i != 2) {
+			System.out.println("Usage: Analyser [-x | -p | -l | -i INTERVAL | -m MAX_SAMPLES [-e TOLERANCE] [-r SEED]] [-t THREADS | -w WORKERS] [-c CACHE_FILE] [-j JOURNAL_FILE] WEST EAST");
+			System.out.println("-x counts outcomes exactly without fighting every combination");
+			System.out.println("-p fights combinations that start the same way together");
+			System.out.println("-l as -p and lists the west orderings that win (* is the rest of the army in any order)");
+			System.out.println("-i fights in a real tunnel with each side sending a soldier every INTERVAL seconds");
+			System.out.println("-m fights random orderings until the 95% confidence intervals are narrower than TOLERANCE (default 0.002)");
+			System.out.println("-t fights combinations on a number of threads (0 for one per core)");
+			System.out.println("-w fights combinations in units on a number of worker processes");
+			System.out.println("-j fights combinations in units recorded in JOURNAL_FILE so a stopped run carries on where it got to");
+			System.out.println("   or: Analyser -b COINS [-a R | W | C] [-c CACHE_FILE] [-j JOURNAL_FILE] [-n ROUNDS] [-t THREADS]");
+			System.out.println("-b fights every army that spends COINS against every other and finds the best mix of armies");
+			System.out.println("-a soldiers available: RGB (R, default), WRGB (W) or WRGBCMY (C)");
+			System.out.println("-c looks results up in CACHE_FILE and stores new ones there (not used by -i and -m)");
+			System.out.println("-n rounds of fictitious play used to find the mix (default 100000)");
+			System.out.println("   or: Analyser -d PORT [-c CACHE_FILE] [-k CAPACITY]");
+			System.out.println("-d answers WEST EAST lines on a loopback PORT with exact outcome counts until killed");
+			System.out.println("-k most results to keep in memory (default " + AnalysisServer.DEFAULT_CAPACITY + ")");
+			System.out.println("   or: Analyser -o [-f AVERAGE | WORST] [-t THREADS] (ARMY OPPONENT | -l LEVELS_FILE)");
+			System.out.println("-o finds the order to send ARMY in that does best against every ordering of OPPONENT");
+			System.out.println("-f chooses the order by its total (default) or its worst result against OPPONENT");
+			System.out.println("-l finds the best AI order for every level in LEVELS_FILE where both armies are fixed");
+			System.out.println("   or: Analyser -v [-a R | W | C] [-n COINS] WEST EAST");
+			System.out.println("-v works out the exact chance of each outcome where each side is ARMY (sent in that order),");
+			System.out.println("   random:ARMY (sent in any order), easy:ARMY (sent as by the easy AI) or easy:STRATEGY");
+			System.out.println("   (the easy AI with an army picked by balanced, whites, snowy or mixed)");
+			System.out.println("-a soldiers available to STRATEGY (default R) and -n coins it spends (default " + ArmySize.Small.toCoins() + ")");
 			return;
 		}
 		
-		String w = args[0];
-		String e = args[1];
+		String w = args[i];
+		String e = args[i + 1];
 		
 		System.out.println("Analysing " + w + " vs. " + e + ":");
 		
 		AnalysisEngine analysis = new AnalysisEngine();
-		analysis.analyse(w, e);
+		if(exact) {
+			analysis.cache = openCache(cacheFile);
+			try {
+				analysis.count(w, e);
+			}
+			catch(IllegalArgumentException ex) {
+				System.out.println("Can't count " + w + " vs. " + e + ": " + ex.getMessage());
+				closeCache(analysis.cache);
+				return;
+			}
+			catch(OutOfMemoryError ex) {
+				System.out.println("Can't count " + w + " vs. " + e + ": out of memory (try a bigger -Xmx).");
+				closeCache(analysis.cache);
+				return;
+			}
+			printExact(analysis, w, e);
+			if(analysis.cache != null) {
+				if(!analysis.exactWest.equals(analysis.exactEast)) System.out.println();
+				closeCache(analysis.cache);
+			}
+			return;
+		}
+		if(maxSamples > 0L) {
+			ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+			long start = System.nanoTime();
+			analysis.sample(w, e, maxSamples, tolerance, seed, pool);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			pool.shutdown();
+			printSamples(analysis, w, e, seconds);
+			return;
+		}
+		
+		ForkJoinPool pool = null;
+		if(interval < 0f) analysis.cache = openCache(cacheFile);
+		if(interval >= 0f) analysis.analyse(w, e, interval);
+		else if(trie) analysis.walk(w, e, list ? new WinPrinter() : null);
+		else if(journal != null || workers > 0) {
+			pool = workers > 0 ? new ForkJoinPool(workers) : threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+			try {
+				if(workers > 0) analysis.workers = new WorkerPool(workers, Ruleset.DEFAULT);
+				analysis.analyse(w, e, pool, journal, new ProgressPrinter("fights"));
+			}
+			catch(IOException ex) {
+				System.out.println((analysis.workers == null && workers > 0 ? "Workers could not be started: " : "Journal could not be used: ") + ex.getMessage());
+				return;
+			}
+			finally {
+				pool.shutdown();
+				if(analysis.workers != null) analysis.workers.close();
+			}
+		}
+		else if(threads >= 0) {
+			pool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+			analysis.analyse(w, e, pool);
+			pool.shutdown();
+		}
+		else analysis.analyse(w, e);
 		
 		double westPercent = ((double)analysis.west / (double)analysis.combinations) * 100d;
 		double eastPercent = ((double)analysis.east / (double)analysis.combinations) * 100d;
@@ -32,6 +180,10 @@ public class Analyser {
 		System.out.println();
 		System.out.printf("Draws: %,d / %,d (%.2f%%)", analysis.draws, analysis.combinations, drawPercent);
 		System.out.println();
+		if(analysis.unfinished > 0) {
+			System.out.printf("Unfinished: %,d / %,d", analysis.unfinished, analysis.combinations);
+			System.out.println();
+		}
 		
 		if(analysis.west == analysis.east) {
 			System.out.println("Strategies are equal.");
@@ -39,10 +191,404 @@ public class Analyser {
 		else {
 			System.out.printf("%s is the better strategy", analysis.west > analysis.east ? w : e);
 		}
+		
+		if(pool != null) {
+			if(analysis.west != analysis.east) System.out.println();
+			if(analysis.workers != null) {
+				System.out.printf("Time: %.2f s on %d workers (%d ranges retried)", analysis.nanos / 1e9, pool.getParallelism(), analysis.workers.retries);
+			}
+			else if(journal != null) System.out.printf("Time: %.2f s on %d threads", analysis.nanos / 1e9, pool.getParallelism());
+			else {
+				double speedup = (double)analysis.taskNanos / (double)analysis.nanos;
+				System.out.printf("Time: %.2f s on %d threads (speedup %.2f)", analysis.nanos / 1e9, pool.getParallelism(), speedup);
+			}
+			System.out.println();
+		}
+		
+		if(analysis.cache != null) {
+			if(pool == null && analysis.west != analysis.east) System.out.println();
+			closeCache(analysis.cache);
+		}
 
 		
 		
 		
 	}
 
+	/**
+	 * Prints the orderings in each decided branch that the west army wins.
+	 * @author luke
+	 *
+	 */
+	private static class WinPrinter implements TrieAnalyser.Listener {
+		
+		@Override
+		public void decided(TunnelState winner, int[] west, int westSent, int[] east, int eastSent, long fights) {
+			if(winner != TunnelState.West) return;
+			System.out.printf("%s vs. %s: %,d", toString(west, westSent), toString(east, eastSent), fights);
+			System.out.println();
+		}
+		
+		private static String toString(int[] army, int sent) {
+			return sent < army.length ? ArmyCodec.toString(army, 0, sent) + '*' : ArmyCodec.toString(army);
+		}
+	}
+	
+	/**
+	 * Prints how many units of a job have finished, how fast work is being done and how long the rest should take.
+	 * @author luke
+	 *
+	 */
+	private static class ProgressPrinter implements JobRunner.Progress {
+		
+		/** Name of the things the work is counted in. */
+		private final String things;
+		
+		public ProgressPrinter(String things) {
+			this.things = things;
+		}
+		
+		@Override
+		public void progress(int done, int units, long work, long left, long nanos) {
+			double rate = nanos > 0 ? work / (nanos / 1e9) : 0d;
+			System.out.printf("Units: %,d / %,d (%.1f%%)", done, units, units == 0 ? 100d : done * 100d / units);
+			if(work > 0) System.out.printf(" at %,.0f %s/s", rate, things);
+			if(left > 0 && rate > 0d) System.out.printf(", %s left", duration(left / rate));
+			System.out.println();
+		}
+		
+		private static String duration(double seconds) {
+			long s = (long)Math.ceil(seconds);
+			return String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+		}
+	}
+	
+	private static void sweep(String[] args) {
+		
+		int coins = -1, threads = 0, rounds = 100000;
+		SoldierAvailability available = SoldierAvailability.RGB;
+		File cache = null, journal = null;
+		boolean valid = true;
+		for(int i = 0; i < args.length && valid; i++) {
+			if(i + 1 == args.length) valid = false;
+			else if(args[i].equals("-b")) coins = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-a")) available = SoldierAvailability.fromChar(args[++i].charAt(0));
+			else if(args[i].equals("-c")) cache = new File(args[++i]);
+			else if(args[i].equals("-j")) journal = new File(args[++i]);
+			else if(args[i].equals("-n")) rounds = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-t")) threads = Integer.parseInt(args[++i]);
+			else valid = false;
+		}
+		
+		if(!valid || coins < 0 || rounds <= 0) {
+			System.out.println("Usage: Analyser -b COINS [-a R | W | C] [-c CACHE_FILE] [-j JOURNAL_FILE] [-n ROUNDS] [-t THREADS]");
+			return;
+		}
+		
+		final ArmySweep sweep = new ArmySweep(coins, available, Ruleset.DEFAULT);
+		System.out.printf("Sweeping %,d armies of %d coins (%s):", sweep.size(), coins, available);
+		System.out.println();
+		
+		ResultCache results = openCache(cache);
+		if(cache != null && results == null) return;
+		sweep.cache = results;
+		
+		ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+		long start = System.nanoTime();
+		try {
+			sweep.fill(pool, journal, new ProgressPrinter("cells"));
+		}
+		catch(IOException e) {
+			System.out.println("Journal could not be used: " + e.getMessage());
+			return;
+		}
+		finally {
+			pool.shutdown();
+			closeCache(results);
+		}
+		System.out.printf("Time: %.2f s on %d threads", (System.nanoTime() - start) / 1e9, pool.getParallelism());
+		System.out.println();
+		
+		int[] dominated = new int[sweep.size()];
+		System.out.printf("Undominated armies: %,d of %,d", sweep.dominated(dominated), sweep.size());
+		System.out.println();
+		
+		final double[] mix = sweep.solve(rounds);
+		System.out.printf("Equilibrium after %,d rounds (exploitability %.4f):", rounds, sweep.exploitability());
+		System.out.println();
+		
+		Integer[] order = new Integer[sweep.size()];
+		for(int a = 0; a < order.length; a++) order[a] = a;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(mix[b], mix[a]);
+			}
+		});
+		
+		for(int i = 0; i < order.length && i < MAX_LISTED && mix[order[i]] >= MIN_LISTED; i++) {
+			int a = order[i];
+			int counter = sweep.bestResponse(a);
+			System.out.printf("%s: %.2f%% (best response %s by %.4f)", armyToString(sweep, a), mix[a] * 100d,
+					armyToString(sweep, counter), sweep.payoff(counter, a));
+			System.out.println();
+		}
+		
+		int best = sweep.bestResponse();
+		System.out.printf("Best response to the equilibrium: %s", armyToString(sweep, best));
+		System.out.println();
+	}
+	
+	private static void evaluate(String[] args) {
+		
+		int coins = ArmySize.Small.toCoins();
+		SoldierAvailability available = SoldierAvailability.RGB;
+		int i = 1;
+		for(; i < args.length - 2; i++) {
+			if(args[i].equals("-a")) available = SoldierAvailability.fromChar(args[++i].charAt(0));
+			else if(args[i].equals("-n")) coins = Integer.parseInt(args[++i]);
+			else break;
+		}
+		
+		if(args.length - i != 2) {
+			System.out.println("Usage: Analyser -v [-a R | W | C] [-n COINS] WEST EAST");
+			return;
+		}
+		
+		SelectionOdds[] armies = new SelectionOdds[2];
+		MarkovEvaluator.Dispatch[] dispatches = new MarkovEvaluator.Dispatch[2];
+		for(int side = 0; side < 2; side++) {
+			String player = args[i + side];
+			int colon = player.indexOf(':');
+			String kind = colon < 0 ? "" : player.substring(0, colon);
+			String army = player.substring(colon + 1);
+			
+			SelectionStrategy strategy = null;
+			if(army.equals("balanced")) strategy = new BalancedSelectionStrategy(false);
+			else if(army.equals("whites")) strategy = new BalancedSelectionStrategy(true);
+			else if(army.equals("snowy")) strategy = new SnowySelectionStrategy();
+			else if(army.equals("mixed")) strategy = new MultipleSelectionStrategy(new BalancedSelectionStrategy(false), new BalancedSelectionStrategy(true), new SnowySelectionStrategy());
+			
+			if(kind.equals("easy")) dispatches[side] = MarkovEvaluator.RANDOM_TYPE;
+			else if(kind.equals("random")) dispatches[side] = MarkovEvaluator.RANDOM_SOLDIER;
+			else if(kind.length() == 0 && strategy == null) dispatches[side] = MarkovEvaluator.inOrder(ArmyCodec.parse(army));
+			else {
+				System.out.println("Can't evaluate " + player + ": expected ARMY, random:ARMY, easy:ARMY or easy:STRATEGY");
+				return;
+			}
+			
+			if(strategy != null) armies[side] = new SelectionOdds(strategy, coins, available);
+			else armies[side] = new SelectionOdds(ArmyCodec.parse(army));
+		}
+		
+		System.out.println("Evaluating " + args[i] + " vs. " + args[i + 1] + ":");
+		for(int side = 0; side < 2; side++) {
+			if(armies[side].size() == 1) continue;
+			System.out.printf("%s picks %d armies:", side == 0 ? "West" : "East", armies[side].size());
+			for(int a = 0; a < armies[side].size(); a++) System.out.printf(" %s (%.2f%%)", ArmyCodec.toString(armies[side].army(a)), armies[side].odds(a) * 100d);
+			System.out.println();
+		}
+		
+		MarkovEvaluator evaluator = new MarkovEvaluator(Ruleset.DEFAULT);
+		long start = System.nanoTime();
+		evaluator.evaluate(armies[0], dispatches[0], armies[1], dispatches[1]);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		System.out.printf("West wins: %.4f%%", evaluator.west * 100d);
+		System.out.println();
+		System.out.printf("East wins: %.4f%%", evaluator.east * 100d);
+		System.out.println();
+		System.out.printf("Draws: %.4f%%", evaluator.draws * 100d);
+		System.out.println();
+		System.out.printf("Time: %.2f s (%,d states)", seconds, evaluator.states);
+		System.out.println();
+	}
+	
+	private static void serve(String[] args) {
+		
+		int port = -1, capacity = AnalysisServer.DEFAULT_CAPACITY;
+		File cache = null;
+		boolean valid = true;
+		for(int i = 0; i < args.length && valid; i++) {
+			if(i + 1 == args.length) valid = false;
+			else if(args[i].equals("-d")) port = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-c")) cache = new File(args[++i]);
+			else if(args[i].equals("-k")) capacity = Integer.parseInt(args[++i]);
+			else valid = false;
+		}
+		
+		if(!valid || port < 0 || capacity < 1) {
+			System.out.println("Usage: Analyser -d PORT [-c CACHE_FILE] [-k CAPACITY]");
+			return;
+		}
+		
+		final ResultCache results = openCache(cache);
+		if(cache != null && results == null) return;
+		if(results != null) {
+			// Write the cache out when the server is killed
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					closeCache(results);
+				}
+			});
+		}
+		
+		AnalysisServer server = new AnalysisServer(capacity, results);
+		System.out.printf("Serving on port %d, keeping up to %,d results", port, capacity);
+		System.out.println();
+		try {
+			server.serve(port);
+		}
+		catch(IOException e) {
+			System.out.println("Could not serve: " + e.getMessage());
+		}
+	}
+	
+	private static void order(String[] args) {
+		
+		OrderSolver.Objective objective = OrderSolver.Objective.AVERAGE;
+		int threads = 0;
+		File levels = null;
+		boolean valid = true;
+		int i = 1;
+		for(; i < args.length - 1 && valid; i++) {
+			if(args[i].equals("-f")) objective = OrderSolver.Objective.valueOf(args[++i].toUpperCase());
+			else if(args[i].equals("-t")) threads = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-l")) levels = new File(args[++i]);
+			else break;
+		}
+		
+		if(levels == null ? args.length - i != 2 : args.length != i) {
+			System.out.println("Usage: Analyser -o [-f AVERAGE | WORST] [-t THREADS] (ARMY OPPONENT | -l LEVELS_FILE)");
+			return;
+		}
+		
+		ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+		long start = System.nanoTime();
+		if(levels == null) {
+			printOrder(ArmyCodec.parse(args[i]), ArmyCodec.parse(args[i + 1]), objective, pool, false);
+		}
+		else {
+			for(Level level : new LevelLoader(new FileHandle(levels)).load()) {
+				if(level.aiSoldiers == null || level.playerSoldiers == null) continue;
+				System.out.printf("Level %d:", level.id);
+				System.out.println();
+				printOrder(level.aiSoldiers.toArray(), level.playerSoldiers.toArray(), objective, pool, true);
+			}
+		}
+		pool.shutdown();
+		System.out.printf("Time: %.2f s on %d threads", (System.nanoTime() - start) / 1e9, pool.getParallelism());
+		System.out.println();
+	}
+	
+	private static void printOrder(int[] army, int[] opponent, OrderSolver.Objective objective, ForkJoinPool pool, boolean current) {
+		OrderSolver solver;
+		try {
+			solver = new OrderSolver(army, opponent, Ruleset.DEFAULT);
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("Can't order " + ArmyCodec.toString(army) + ": " + e.getMessage());
+			return;
+		}
+		
+		System.out.printf("Against %,d orderings of %s (draws count half):", solver.opponents(), ArmyCodec.toString(opponent));
+		System.out.println();
+		if(current) {
+			solver.evaluate(army);
+			printOrder("Current", army, solver);
+		}
+		int[] best = solver.solve(objective, pool);
+		printOrder("Best", best, solver);
+		System.out.printf("Nodes searched: %,d", solver.nodes);
+		System.out.println();
+	}
+	
+	private static void printOrder(String label, int[] order, OrderSolver solver) {
+		System.out.printf("%s: %s wins %.2f%%, worst result %s", label, ArmyCodec.toString(order), solver.total * 50d / solver.opponents(),
+				solver.worst == 2 ? "win" : solver.worst == 1 ? "draw" : "loss");
+		System.out.println();
+	}
+	
+	/**
+	 * Opens a result cache, printing why if it can't be.
+	 * @param file Cache file or {@code null} for no cache.
+	 * @return Open cache or {@code null} if there is no file or it could not be opened.
+	 */
+	private static ResultCache openCache(File file) {
+		if(file == null) return null;
+		
+		try {
+			return new ResultCache(file, Ruleset.DEFAULT);
+		}
+		catch(IOException e) {
+			System.out.println("Cache file could not be used: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private static void closeCache(ResultCache cache) {
+		if(cache == null) return;
+		
+		try {
+			System.out.printf("Cache: %,d hits, %,d misses, %,d results stored", cache.hits, cache.misses, cache.size());
+			System.out.println();
+			cache.close();
+		}
+		catch(IOException e) {
+			System.out.println("Cache file could not be written: " + e.getMessage());
+		}
+	}
+	
+	private static String armyToString(ArmySweep sweep, int index) {
+		int[] army = sweep.army(index);
+		return army.length == 0 ? "(none)" : ArmyCodec.toString(army);
+	}
+	
+	private static void printSamples(AnalysisEngine analysis, String w, String e, double seconds) {
+		
+		System.out.printf("Samples: %,d of %,d combinations in %.2f s", analysis.samples, analysis.combinations, seconds);
+		System.out.println();
+		printSample("West wins", analysis.west, analysis.samples);
+		printSample("East wins", analysis.east, analysis.samples);
+		printSample("Draws", analysis.draws, analysis.samples);
+		
+		if(SampleAnalyser.lower(analysis.west, analysis.samples) > SampleAnalyser.upper(analysis.east, analysis.samples)) {
+			System.out.printf("%s is the better strategy", w);
+		}
+		else if(SampleAnalyser.lower(analysis.east, analysis.samples) > SampleAnalyser.upper(analysis.west, analysis.samples)) {
+			System.out.printf("%s is the better strategy", e);
+		}
+		else System.out.println("Strategies are too close to call.");
+	}
+	
+	private static void printSample(String outcome, long count, long samples) {
+		double percent = samples == 0 ? 0d : (double)count / (double)samples * 100d;
+		System.out.printf("%s: %.2f%% (95%% interval %.2f%% to %.2f%%)", outcome, percent,
+				SampleAnalyser.lower(count, samples) * 100d, SampleAnalyser.upper(count, samples) * 100d);
+		System.out.println();
+	}
+	
+	private static void printExact(AnalysisEngine analysis, String w, String e) {
+		
+		BigDecimal combinations = new BigDecimal(analysis.exactCombinations);
+		
+		System.out.printf("Combinations: %,d", analysis.exactCombinations);
+		System.out.println();
+		System.out.printf("West wins: %,d (%.2f%%)", analysis.exactWest, percent(analysis.exactWest, combinations));
+		System.out.println();
+		System.out.printf("East wins: %,d (%.2f%%)", analysis.exactEast, percent(analysis.exactEast, combinations));
+		System.out.println();
+		System.out.printf("Draws: %,d (%.2f%%)", analysis.exactDraws, percent(analysis.exactDraws, combinations));
+		System.out.println();
+		
+		int compare = analysis.exactWest.compareTo(analysis.exactEast);
+		if(compare == 0) System.out.println("Strategies are equal.");
+		else System.out.printf("%s is the better strategy", compare > 0 ? w : e);
+	}
+	
+	private static BigDecimal percent(BigInteger n, BigDecimal total) {
+		return new BigDecimal(n).multiply(BigDecimal.valueOf(100)).divide(total, MathContext.DECIMAL64);
+	}
+	
 }
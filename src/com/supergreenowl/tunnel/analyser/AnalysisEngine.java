@@ -1,108 +1,568 @@
 package com.supergreenowl.tunnel.analyser;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
-import com.supergreenowl.tunnel.model.Direction;
-import com.supergreenowl.tunnel.model.Soldier;
-import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.ArmyCodec;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.TunnelState;
 
 public class AnalysisEngine {
 
-	private static final char RED = 'R';
-	private static final char GREEN = 'G';
-	private static final char BLUE = 'B';
-	private static final char CYAN = 'C';
-	private static final char MAGENTA = 'M';
-	private static final char YELLOW = 'Y';
-	private static final char WHITE = 'W';
+	/** Most fights played by one fork-join task before it stops splitting up its orderings. */
+	private static final long FIGHTS_PER_TASK = 1L << 16;
 	
-	public int west = 0;
-	public int east = 0;
-	public int draws = 0;
-	public int combinations, westCombinations, eastCombinations;
+	/** Most fights in one unit of a checkpointed analysis. */
+	private static final long FIGHTS_PER_UNIT = 1L << 22;
 	
+	private static final int WEST = 0;
+	private static final int EAST = 1;
+	private static final int DRAWS = 2;
+	private static final int NANOS = 3;
 	
-	public void analyse(String west, String east) {
+	/**
+	 * Fork-join task that fights every ordering of the west army that starts with a fixed run of soldiers
+	 * against every ordering of the east army. Each task keeps its own counts which are added up as tasks are joined.
+	 * @author luke
+	 *
+	 */
+	private static class AnalysisTask extends RecursiveTask<long[]> {
 		
-		Set<String> westOptions = uniquePermutations(west);
-		Set<String> eastOptions = uniquePermutations(east);
+		private static final long serialVersionUID = 1L;
 		
-		westCombinations = westOptions.size();
-		eastCombinations = eastOptions.size();
-		combinations = westOptions.size() * eastOptions.size();
-		this.west = 0;
-		this.east = 0;
-		draws = 0;
+		private final int[] west;
+		private final int fixed;
+		private final int[] east;
+		private final long eastCombinations;
+		private final Ruleset rules;
+		
+		/**
+		 * @param west West army with its fixed soldiers at the front and the rest in their first ordering (owned by the task).
+		 * @param fixed Number of soldiers at the front of the west army that are not rearranged.
+		 * @param east East army (copied before it is rearranged).
+		 * @param eastCombinations Number of orderings of the east army.
+		 * @param rules Rules for the soldiers.
+		 */
+		public AnalysisTask(int[] west, int fixed, int[] east, long eastCombinations, Ruleset rules) {
+			this.west = west;
+			this.fixed = fixed;
+			this.east = east;
+			this.eastCombinations = eastCombinations;
+			this.rules = rules;
+		}
 		
-		for(String w : westOptions) {
-			for(String e : eastOptions) {
-				Queue<Soldier> westArmy = stringToArmy(w, Direction.West);
-				Queue<Soldier> eastArmy = stringToArmy(e, Direction.East);
+		@Override
+		protected long[] compute() {
+			if(fixed == west.length || Permutations.count(west, fixed) <= FIGHTS_PER_TASK / eastCombinations) return fightAll();
+			
+			// Split by the type of the next soldier
+			ArrayList<AnalysisTask> tasks = new ArrayList<AnalysisTask>();
+			for(int i = fixed; i < west.length; i++) {
+				if(i > fixed && west[i] == west[i - 1]) continue;
 				
-				TunnelState outcome = CombatAnalyser.fight(westArmy, eastArmy);
-				if(outcome.equals(TunnelState.West)) this.west++;
-				else if(outcome.equals(TunnelState.East)) this.east++;
-				else draws++;
+				int[] army = west.clone();
+				army[fixed] = west[i];
+				army[i] = west[fixed];
+				Permutations.first(army, fixed + 1);
+				tasks.add(new AnalysisTask(army, fixed + 1, east, eastCombinations, rules));
 			}
+			
+			long[] counts = new long[NANOS + 1];
+			for(AnalysisTask task : invokeAll(tasks)) {
+				long[] c = task.join();
+				for(int i = 0; i < counts.length; i++) counts[i] += c[i];
+			}
+			return counts;
+		}
+		
+		private long[] fightAll() {
+			long start = System.nanoTime();
+			
+			// Orderings that start with the fixed soldiers have consecutive ranks
+			long from = Permutations.rank(west);
+			long[] counts = Arrays.copyOf(fight(west, east, from, from + Permutations.count(west, fixed), rules), NANOS + 1);
+			
+			counts[NANOS] = System.nanoTime() - start;
+			return counts;
 		}
 	}
 	
-	private Set<String> uniquePermutations(String s) {
-		HashSet<String> set = new HashSet<String>();
-		permutation(set, "", s);
-		return set;
+	/**
+	 * Fork-join task that fights a range of west orderings (by rank) against every east ordering and records each outcome.
+	 * Tasks start from their own first rank so they don't need anything from each other.
+	 * @author luke
+	 *
+	 */
+	private static class OutcomeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] west;
+		private final int[] east;
+		private final long from;
+		private final long to;
+		private final int eastCombinations;
+		private final byte[] outcomes;
+		private final Ruleset rules;
+		
+		public OutcomeTask(int[] west, int[] east, long from, long to, int eastCombinations, byte[] outcomes, Ruleset rules) {
+			this.west = west;
+			this.east = east;
+			this.from = from;
+			this.to = to;
+			this.eastCombinations = eastCombinations;
+			this.outcomes = outcomes;
+			this.rules = rules;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from <= 1 || (to - from) * eastCombinations <= FIGHTS_PER_TASK) {
+				fight(west, east, from, to, rules, outcomes, (int)(from * eastCombinations));
+				return;
+			}
+			
+			long mid = (from + to) >>> 1;
+			invokeAll(new OutcomeTask(west, east, from, mid, eastCombinations, outcomes, rules),
+					new OutcomeTask(west, east, mid, to, eastCombinations, outcomes, rules));
+		}
 	}
 	
 	/**
-	 * Recursively calculates all permutations of {@code str} and accumulates them in a collection.
-	 * @param permutations Collection to accumulate permutations in.
-	 * @param prefix
-	 * @param str
+	 * Job that fights every ordering of one army against every ordering of the other in units of a range of west
+	 * orderings (by rank) so it can be checkpointed.
+	 * @author luke
+	 *
 	 */
-	private void permutation(Collection<String> permutations, String prefix, String str) {
-	    int n = str.length();
-	    if (n == 0) permutations.add(prefix);
-	    else {
-	        for (int i = 0; i < n; i++)
-	           permutation(permutations, prefix + str.charAt(i), str.substring(0, i) + str.substring(i+1, n));
-	    }
-
+	private static class AnalysisJob implements JobRunner.Job {
+		
+		private final int[] west;
+		private final int[] east;
+		private final long westCombinations;
+		private final long eastCombinations;
+		private final long perUnit;
+		private final int units;
+		private final Ruleset rules;
+		private final WorkerPool workers;
+		
+		/** Counts of each outcome from every unit finished so far. */
+		private final long[] counts = new long[DRAWS + 1];
+		
+		public AnalysisJob(int[] west, int[] east, long westCombinations, long eastCombinations, Ruleset rules, WorkerPool workers) {
+			this.west = west.clone();
+			this.east = east.clone();
+			Arrays.sort(this.west);
+			Arrays.sort(this.east);
+			this.westCombinations = westCombinations;
+			this.eastCombinations = eastCombinations;
+			this.rules = rules;
+			this.workers = workers;
+			
+			perUnit = Math.max(1L, FIGHTS_PER_UNIT / eastCombinations);
+			long n = (westCombinations + perUnit - 1) / perUnit;
+			if(n > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many orderings to split into units.");
+			units = (int)n;
+		}
+		
+		@Override
+		public String id() {
+			return "Analyse " + ArmyCodec.toString(west) + " vs. " + ArmyCodec.toString(east) + " in units of "
+					+ perUnit + " west orderings under rules:\n" + rules;
+		}
+		
+		@Override
+		public int units() {
+			return units;
+		}
+		
+		@Override
+		public long work(int unit) {
+			return (Math.min(westCombinations, (unit + 1) * perUnit) - unit * perUnit) * eastCombinations;
+		}
+		
+		@Override
+		public long[] run(int unit) {
+			long from = unit * perUnit;
+			long to = Math.min(westCombinations, from + perUnit);
+			return workers == null ? fight(west, east, from, to, rules) : workers.fight(west, east, from, to);
+		}
+		
+		@Override
+		public void finished(int unit, long[] results) {
+			for(int i = 0; i < counts.length; i++) counts[i] += results[i];
+		}
+	}
+	
+	public long west = 0;
+	public long east = 0;
+	public long draws = 0;
+	/** Numbers of pairs of orderings, west orderings and east orderings ({@link Long#MAX_VALUE} if too many to count). */
+	public long combinations, westCombinations, eastCombinations;
+	
+	/** Number of fights given up on by the last call to {@link #analyse(int[], int[], float)}. */
+	public long unfinished;
+	
+	/** Number of fights sampled by the last call to {@link #sample(int[], int[], long, double, long, ForkJoinPool)}. */
+	public long samples;
+	
+	/** Time taken by the last parallel analysis and the total time its tasks spent fighting (ns). */
+	public long nanos, taskNanos;
+	
+	/** Outcome counts from the last call to {@link #count(int[], int[])} (too big for a long for large armies). */
+	public BigInteger exactWest, exactEast, exactDraws, exactCombinations;
+	
+	/** Cache of exact outcome counts to look pairs of armies up in before fighting them or {@code null} for none. */
+	public ResultCache cache;
+	
+	/** Worker processes to fight the units of journaled analyses on or {@code null} to fight them in this process. */
+	public WorkerPool workers;
+	
+	
+	public void analyse(String west, String east) {
+		analyse(ArmyCodec.parse(west), ArmyCodec.parse(east));
 	}
 	
-	private Queue<Soldier> stringToArmy(String army, Direction direction) {
+	/**
+	 * Fights every ordering of one army against every ordering of the other.
+	 * Orderings are generated in place in copies of the armies so no memory is allocated however many there are.
+	 * @param west Soldier types in the west army (not changed).
+	 * @param east Soldier types in the east army (not changed).
+	 */
+	public void analyse(int[] west, int[] east) {
+		
+		Ruleset rules = Ruleset.DEFAULT;
 		
-		LinkedList<Soldier> queue = new LinkedList<Soldier>();
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		if(cached(west, east)) return;
 		
-		for(int i = 0; i < army.length(); i++) {
-			char c = army.charAt(i);
-			int t = charToSoldierType(c);
-			Soldier s = new Soldier(direction, t);
-			queue.add(s);
+		long[] counts = fight(west, east, 0L, westCombinations, rules);
+		this.west = counts[WEST];
+		this.east = counts[EAST];
+		draws = counts[DRAWS];
+		
+		store(west, east);
+	}
+	
+	public void analyse(String west, String east, float interval) {
+		analyse(ArmyCodec.parse(west), ArmyCodec.parse(east), interval);
+	}
+	
+	/**
+	 * Fights every ordering of one army against every ordering of the other in a real tunnel with each side
+	 * dispatching a soldier at a regular interval (see {@link TimedCombatAnalyser}).
+	 * Fights that are given up on are counted in {@link #unfinished} rather than as draws.
+	 * @param west Soldier types in the west army (not changed).
+	 * @param east Soldier types in the east army (not changed).
+	 * @param interval Time between dispatches (s).
+	 */
+	public void analyse(int[] west, int[] east, float interval) {
+		
+		TimedCombatAnalyser timed = new TimedCombatAnalyser();
+		float[] westTimes = TimedCombatAnalyser.schedule(west.length, interval);
+		float[] eastTimes = TimedCombatAnalyser.schedule(east.length, interval);
+		
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		this.west = this.east = draws = unfinished = 0;
+		
+		int[] w = west.clone();
+		int[] e = east.clone();
+		Permutations.first(w);
+		do {
+			Permutations.first(e);
+			do {
+				TunnelState outcome = timed.fight(w, westTimes, e, eastTimes, 0L);
+				if(outcome == TunnelState.West) this.west++;
+				else if(outcome == TunnelState.East) this.east++;
+				else if(outcome == TunnelState.Draw) draws++;
+				else unfinished++;
+			} while(Permutations.next(e));
+		} while(Permutations.next(w));
+	}
+	
+	public void analyse(String west, String east, ForkJoinPool pool) {
+		analyse(ArmyCodec.parse(west), ArmyCodec.parse(east), pool);
+	}
+	
+	/**
+	 * Fights every ordering of one army against every ordering of the other, split across the threads of a fork-join pool.
+	 * West orderings are split into tasks by their first few soldiers. Gives the same counts as {@link #analyse(int[], int[])}
+	 * and also records the time taken in {@link #nanos} and {@link #taskNanos}; their ratio is the speedup over one thread.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param pool Pool to run the tasks on.
+	 */
+	public void analyse(int[] west, int[] east, ForkJoinPool pool) {
+		
+		long start = System.nanoTime();
+		
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		if(cached(west, east)) {
+			taskNanos = 0L;
+			nanos = System.nanoTime() - start;
+			return;
 		}
 		
-		return queue;
+		int[] army = west.clone();
+		Permutations.first(army);
+		long[] counts = pool.invoke(new AnalysisTask(army, 0, east, eastCombinations, Ruleset.DEFAULT));
+		
+		this.west = counts[WEST];
+		this.east = counts[EAST];
+		draws = counts[DRAWS];
+		taskNanos = counts[NANOS];
+		nanos = System.nanoTime() - start;
+		store(west, east);
 	}
 	
 	/**
-	 * Converts a character representing a soldier to a soldier type.
-	 * @param c
-	 * @return Soldier type corresponding to specified character.
+	 * Fights every ordering of one army against every ordering of the other, split across the threads of a fork-join pool,
+	 * and records the outcome of every pair. Also stores the counts of each outcome like {@link #analyse(int[], int[])}.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param pool Pool to run the tasks on.
+	 * @return Ordinal of the {@link TunnelState} each pair ends in, indexed by
+	 * {@code Permutations.rank(westOrdering) * eastCombinations + Permutations.rank(eastOrdering)}.
+	 * @throws IllegalArgumentException If there are too many pairs of orderings to fit in an array.
 	 */
-	private int charToSoldierType(char c) {
-		switch(c) {
-			case RED: return SoldierType.RED;
-			case GREEN: return SoldierType.GREEN;
-			case BLUE: return SoldierType.BLUE;
-			case CYAN: return SoldierType.CYAN;
-			case MAGENTA: return SoldierType.MAGENTA;
-			case YELLOW: return SoldierType.YELLOW;
-			case WHITE: return SoldierType.WHITE;
-			default: throw new IllegalArgumentException(Character.toString(c) + " is not a valid soldier type");
+	public byte[] outcomes(int[] west, int[] east, ForkJoinPool pool) {
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		if(westCombinations > Integer.MAX_VALUE / eastCombinations) {
+			throw new IllegalArgumentException("Too many pairs of orderings to record every outcome.");
 		}
-	}	
+		combinations = multiply(westCombinations, eastCombinations);
+		
+		byte[] outcomes = new byte[(int)combinations];
+		pool.invoke(new OutcomeTask(west.clone(), east.clone(), 0L, westCombinations, (int)eastCombinations, outcomes, Ruleset.DEFAULT));
+		
+		int[] counts = new int[TunnelState.values().length];
+		for(int i = 0; i < outcomes.length; i++) counts[outcomes[i]]++;
+		this.west = counts[TunnelState.West.ordinal()];
+		this.east = counts[TunnelState.East.ordinal()];
+		draws = counts[TunnelState.Draw.ordinal()];
+		return outcomes;
+	}
+	
+	public void analyse(String west, String east, ForkJoinPool pool, File journal, JobRunner.Progress progress) throws IOException {
+		analyse(ArmyCodec.parse(west), ArmyCodec.parse(east), pool, journal, progress);
+	}
+	
+	/**
+	 * Fights every ordering of one army against every ordering of the other, split into numbered units of west orderings
+	 * that are run on a fork-join pool and recorded in a journal as they finish (see {@link JobRunner}). If the analysis
+	 * is stopped, running it again with the same journal only fights the units that hadn't finished.
+	 * Gives the same counts as {@link #analyse(int[], int[])} and records the time taken in {@link #nanos}.
+	 * If {@link #workers} is set each unit is handed to a worker process by one of the pool's threads.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param pool Pool to run the units on (one thread per worker when there are workers).
+	 * @param journal Journal file or {@code null} to not checkpoint.
+	 * @param progress Listener to report progress to or {@code null}.
+	 * @throws IOException If the journal could not be used.
+	 */
+	public void analyse(int[] west, int[] east, ForkJoinPool pool, File journal, JobRunner.Progress progress) throws IOException {
+		
+		long start = System.nanoTime();
+		
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		taskNanos = 0L;
+		if(cached(west, east)) {
+			nanos = System.nanoTime() - start;
+			return;
+		}
+		
+		AnalysisJob job = new AnalysisJob(west, east, westCombinations, eastCombinations, Ruleset.DEFAULT, workers);
+		new JobRunner(job).run(journal, pool, progress);
+		
+		this.west = job.counts[WEST];
+		this.east = job.counts[EAST];
+		draws = job.counts[DRAWS];
+		nanos = System.nanoTime() - start;
+		store(west, east);
+	}
+	
+	public void walk(String west, String east, TrieAnalyser.Listener listener) {
+		walk(ArmyCodec.parse(west), ArmyCodec.parse(east), listener);
+	}
+	
+	/**
+	 * Fights every ordering of one army against every ordering of the other, playing shared starts of orderings only once
+	 * (see {@link TrieAnalyser}). Gives the same counts as {@link #analyse(int[], int[])}.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param listener Listener to pass each decided set of orderings to or {@code null} (the cache is only used without one).
+	 */
+	public void walk(int[] west, int[] east, TrieAnalyser.Listener listener) {
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		if(listener == null && cached(west, east)) return;
+		
+		TrieAnalyser trie = new TrieAnalyser(Ruleset.DEFAULT);
+		trie.analyse(west, east, listener);
+		
+		this.west = trie.west;
+		this.east = trie.east;
+		draws = trie.draws;
+		store(west, east);
+	}
+	
+	public void sample(String west, String east, long maxSamples, double tolerance, long seed, ForkJoinPool pool) {
+		sample(ArmyCodec.parse(west), ArmyCodec.parse(east), maxSamples, tolerance, seed, pool);
+	}
+	
+	/**
+	 * Fights random orderings of one army against random orderings of the other (see {@link SampleAnalyser}).
+	 * Use {@link SampleAnalyser#lower(long, long)} and {@link SampleAnalyser#upper(long, long)} with {@link #samples}
+	 * for confidence intervals of the counts.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param maxSamples Most fights to sample.
+	 * @param tolerance Confidence interval width at which to stop sampling early or 0 to draw every sample.
+	 * @param seed Seed for the random orderings.
+	 * @param pool Pool to sample on.
+	 */
+	public void sample(int[] west, int[] east, long maxSamples, double tolerance, long seed, ForkJoinPool pool) {
+		westCombinations = Permutations.count(west);
+		eastCombinations = Permutations.count(east);
+		combinations = multiply(westCombinations, eastCombinations);
+		
+		SampleAnalyser sampler = new SampleAnalyser(Ruleset.DEFAULT);
+		sampler.sample(west, east, maxSamples, tolerance, seed, pool);
+		
+		this.west = sampler.west;
+		this.east = sampler.east;
+		draws = sampler.draws;
+		samples = sampler.samples;
+	}
+	
+	public void count(String west, String east) {
+		count(ArmyCodec.parse(west), ArmyCodec.parse(east));
+	}
+	
+	/**
+	 * Counts the outcomes of every ordering of one army against every ordering of the other without fighting them
+	 * (see {@link OutcomeCounter}). Gives the same numbers as {@link #analyse(int[], int[])} but in far less time.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 */
+	public void count(int[] west, int[] east) {
+		if(cached(west, east)) {
+			exactWest = BigInteger.valueOf(this.west);
+			exactEast = BigInteger.valueOf(this.east);
+			exactDraws = BigInteger.valueOf(draws);
+		}
+		else {
+			OutcomeCounter counter = new OutcomeCounter(west, east, Ruleset.DEFAULT);
+			counter.count();
+			
+			exactWest = counter.west;
+			exactEast = counter.east;
+			exactDraws = counter.draws;
+			
+			// Counts too big for a long are not cached
+			if(exactWest.bitLength() < Long.SIZE && exactEast.bitLength() < Long.SIZE && exactDraws.bitLength() < Long.SIZE) {
+				this.west = exactWest.longValue();
+				this.east = exactEast.longValue();
+				draws = exactDraws.longValue();
+				store(west, east);
+			}
+		}
+		exactCombinations = exactWest.add(exactEast).add(exactDraws);
+	}
+	
+	/**
+	 * Fights a range of orderings of the west army against every ordering of the east army.
+	 * @param west Soldier types in the west army (not changed).
+	 * @param east Soldier types in the east army (not changed).
+	 * @param from Rank of the first west ordering (see {@link Permutations#rank(int[])}).
+	 * @param to Rank after the last west ordering.
+	 * @param rules Rules for the soldiers.
+	 * @return Number of west wins, east wins and draws.
+	 */
+	static long[] fight(int[] west, int[] east, long from, long to, Ruleset rules) {
+		return fight(west, east, from, to, rules, null, 0);
+	}
+	
+	/**
+	 * Fights a range of orderings of the west army against every ordering of the east army,
+	 * optionally recording the outcome of each fight.
+	 * @param outcomes Array to put the ordinal of each outcome in (west ordering by west ordering, each against every
+	 * east ordering in turn) or {@code null} to only count them.
+	 * @param offset Index in {@code outcomes} of the first fight.
+	 * @return Number of west wins, east wins and draws.
+	 * @see #fight(int[], int[], long, long, Ruleset)
+	 */
+	private static long[] fight(int[] west, int[] east, long from, long to, Ruleset rules, byte[] outcomes, int offset) {
+		int[] w = west.clone();
+		int[] e = east.clone();
+		Permutations.unrank(w, from);
+		
+		long[] counts = new long[DRAWS + 1];
+		for(long rank = from; rank < to; rank++) {
+			Permutations.first(e);
+			do {
+				TunnelState outcome = CombatAnalyser.fight(w, e, rules);
+				if(outcomes != null) outcomes[offset++] = (byte)outcome.ordinal();
+				if(outcome == TunnelState.West) counts[WEST]++;
+				else if(outcome == TunnelState.East) counts[EAST]++;
+				else counts[DRAWS]++;
+			} while(Permutations.next(e));
+			Permutations.next(w);
+		}
+		return counts;
+	}
+	
+	/**
+	 * Looks up the counts for a pair of armies in the cache and puts them in {@link #west}, {@link #east} and {@link #draws}.
+	 * @return {@code true} if the pair was found.
+	 */
+	private boolean cached(int[] west, int[] east) {
+		if(cache == null) return false;
+		
+		long[] counts = new long[DRAWS + 1];
+		if(!cache.get(west, east, counts)) return false;
+		
+		this.west = counts[ResultCache.WEST];
+		this.east = counts[ResultCache.EAST];
+		draws = counts[ResultCache.DRAWS];
+		return true;
+	}
+	
+	/**
+	 * Stores the counts in {@link #west}, {@link #east} and {@link #draws} for a pair of armies in the cache.
+	 */
+	private void store(int[] west, int[] east) {
+		if(cache == null) return;
+		
+		try {
+			cache.put(west, east, this.west, this.east, draws);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Result could not be stored in the cache.", e);
+		}
+	}
+	
+	/**
+	 * Multiplies two numbers of orderings.
+	 * @return Product or {@link Long#MAX_VALUE} if it is too big for a long.
+	 */
+	private static long multiply(long a, long b) {
+		if(a != 0L && b > Long.MAX_VALUE / a) return Long.MAX_VALUE;
+		return a * b;
+	}
 }
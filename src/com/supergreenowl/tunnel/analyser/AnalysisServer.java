@@ -0,0 +1,263 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.supergreenowl.tunnel.model.ArmyCodec;
+import com.supergreenowl.tunnel.model.SoldierType;
+
+/**
+ * Long-lived server that answers "west army vs. east army" queries from other programs on the same machine, so they
+ * don't pay for starting and warming up a JVM for every matchup.
+ * <p>
+ * Clients connect to a loopback port and send one query per line; each gets one line back:
+ * <ul>
+ * <li>{@code WEST EAST} (e.g. {@code RRGB WWC}) gets the number of pairs of orderings won by the west army, won by
+ * the east army and drawn, separated by spaces, counted by {@link OutcomeCounter}.</li>
+ * <li>{@code STATS} gets the number of queries answered from memory, the number that had to be worked out, the number
+ * of results held and the most that can be held.</li>
+ * <li>{@code QUIT} closes the connection.</li>
+ * </ul>
+ * Anything else, a pair of armies with more than {@link #MAX_STATES} states or {@link #MAX_SOLDIERS} soldiers in
+ * either army, or a query that fails gets a line starting with {@code ERROR}. The most recently used results are kept in memory (results that haven't been asked for in a
+ * while are dropped once there are {@link #capacity} of them) and, if there is a {@link ResultCache}, also looked up
+ * in and stored in that. Each client is served on its own thread.
+ * @author luke
+ *
+ */
+public class AnalysisServer {
+	
+	/** Default most results to keep in memory. */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	
+	/**
+	 * Most states (the product over both armies of the number of each soldier type + 1) a query may have.
+	 * Counting takes a few seconds at this size and grows with the number of states.
+	 */
+	public static final long MAX_STATES = 1L << 20;
+	
+	/** Most soldiers either army in a query may have (the numbers of orderings of an army this size are huge). */
+	public static final int MAX_SOLDIERS = 1 << 10;
+	
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	
+	/**
+	 * Pair of armies packed into counts codes with the smaller in the west, so a fight is the same key from either end.
+	 * @author luke
+	 *
+	 */
+	private static class Key {
+		
+		private final long west;
+		private final long east;
+		
+		public Key(long west, long east) {
+			this.west = west;
+			this.east = east;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) return false;
+			Key key = (Key)o;
+			return west == key.west && east == key.east;
+		}
+		
+		@Override
+		public int hashCode() {
+			return ArmyCodec.hash(west * 0x9E3779B97F4A7C15L ^ east);
+		}
+	}
+	
+	/**
+	 * Serves one client until it quits or disconnects.
+	 * @author luke
+	 *
+	 */
+	private class Client implements Runnable {
+		
+		private final Socket socket;
+		
+		public Client(Socket socket) {
+			this.socket = socket;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), ASCII));
+				Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), ASCII));
+				String line;
+				while((line = in.readLine()) != null) {
+					line = line.trim();
+					if(line.equals("QUIT")) break;
+					if(line.length() == 0) continue;
+					out.write(answer(line));
+					out.write('\n');
+					out.flush();
+				}
+			}
+			catch(IOException e) {
+				// Client went away
+			}
+			finally {
+				try {
+					socket.close();
+				}
+				catch(IOException e) {
+					// Already closed
+				}
+			}
+		}
+	}
+	
+	/** Most results kept in memory. */
+	public final int capacity;
+	
+	/** Results most recently asked for, least recent first, as west wins, east wins and draws of the key's west army. */
+	private final LinkedHashMap<Key, BigInteger[]> results;
+	
+	private final ResultCache cache;
+	private long hits, misses;
+	
+	/**
+	 * @param capacity Most results to keep in memory.
+	 * @param cache Cache file to look results up in and store them in or {@code null} for none.
+	 */
+	public AnalysisServer(final int capacity, ResultCache cache) {
+		if(capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+		
+		this.capacity = capacity;
+		this.cache = cache;
+		results = new LinkedHashMap<Key, BigInteger[]>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, BigInteger[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Answers one line sent by a client.
+	 * @param line Query without its line ending.
+	 * @return Answer without its line ending.
+	 */
+	public String answer(String line) {
+		if(line.equals("STATS")) {
+			synchronized(results) {
+				return hits + " " + misses + " " + results.size() + " " + capacity;
+			}
+		}
+		
+		String[] armies = line.split("\\s+");
+		if(armies.length != 2) return "ERROR Expected WEST EAST, STATS or QUIT.";
+		
+		try {
+			BigInteger[] counts = count(ArmyCodec.parse(armies[0]), ArmyCodec.parse(armies[1]));
+			return counts[0] + " " + counts[1] + " " + counts[2];
+		}
+		catch(RuntimeException e) {
+			return "ERROR " + e.getMessage();
+		}
+		catch(OutOfMemoryError e) {
+			return "ERROR Out of memory.";
+		}
+	}
+	
+	/**
+	 * Counts the outcomes of every ordering of one army against every ordering of the other, from memory if they have
+	 * been counted recently.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @return West wins, east wins and draws.
+	 * @throws IllegalArgumentException If the armies have more than {@link #MAX_STATES} states or either army has more
+	 * than {@link #MAX_SOLDIERS} soldiers.
+	 */
+	public BigInteger[] count(int[] west, int[] east) {
+		if(west.length > MAX_SOLDIERS || east.length > MAX_SOLDIERS) {
+			throw new IllegalArgumentException("Army is too big, the most soldiers is " + MAX_SOLDIERS + ".");
+		}
+		if(states(west) > MAX_STATES / states(east)) {
+			throw new IllegalArgumentException("Armies are too big, the most states is " + MAX_STATES + ".");
+		}
+		
+		long w = ArmyCodec.counts(west), e = ArmyCodec.counts(east);
+		boolean swap = w > e;
+		Key key = w < 0L || e < 0L ? null : swap ? new Key(e, w) : new Key(w, e);
+		
+		BigInteger[] counts = null;
+		if(key != null) {
+			synchronized(results) {
+				counts = results.get(key);
+				if(counts != null) hits++;
+				else misses++;
+			}
+		}
+		
+		if(counts == null) {
+			AnalysisEngine engine = new AnalysisEngine();
+			engine.cache = cache;
+			if(swap) engine.count(east, west);
+			else engine.count(west, east);
+			counts = new BigInteger[] { engine.exactWest, engine.exactEast, engine.exactDraws };
+			
+			if(key != null) {
+				synchronized(results) {
+					results.put(key, counts);
+				}
+			}
+		}
+		
+		return swap ? new BigInteger[] { counts[1], counts[0], counts[2] } : counts;
+	}
+	
+	/**
+	 * Gets the number of sets of soldiers a side could have sent from an army: the product of (number of each type + 1).
+	 * Stops counting once there are more than {@link #MAX_STATES} so it can't overflow however long the army is.
+	 */
+	private static long states(int[] army) {
+		int[] counts = new int[SoldierType.COUNT];
+		for(int i = 0; i < army.length; i++) counts[army[i]]++;
+		
+		long states = 1L;
+		for(int t = 0; t < SoldierType.COUNT && states <= MAX_STATES; t++) states *= counts[t] + 1;
+		return states;
+	}
+	
+	/**
+	 * Accepts clients on a loopback port until the server is killed.
+	 * @param port Port to listen on.
+	 * @throws IOException If the port could not be listened on.
+	 */
+	public void serve(int port) throws IOException {
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		ExecutorService clients = Executors.newCachedThreadPool();
+		try {
+			while(true) {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				clients.execute(new Client(socket));
+			}
+		}
+		finally {
+			clients.shutdown();
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,408 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+
+/**
+ * Fights every army that can be bought with a budget against every other and works out which armies are worth buying.
+ * <p>
+ * An army is every soldier a player buys before the game, in any order, so each cell of the payoff matrix is the
+ * number of orderings of the west army that beat orderings of the east army less the number that lose, as a proportion
+ * of all pairs of orderings. Only armies that spend enough of the budget that nothing else can be bought are swept.
+ * The fight is the same from either end of the tunnel so the matrix is antisymmetric and only the cells above the
+ * diagonal are fought, each by whichever of {@link TrieAnalyser} and {@link OutcomeCounter} should be quicker.
+ * Cells are fought in units that can be checkpointed in a {@link Journal}.
+ * Pairings already in a {@link ResultCache} are looked up rather than fought again and new ones are added to it.
+ * <p>
+ * The matrix is then solved for the mixed strategy that can't be beaten (the equilibrium) by fictitious play:
+ * each round the army that does best against the mix of armies picked so far is picked again.
+ * @author luke
+ *
+ */
+public class ArmySweep {
+	
+	/** Number of cells of the matrix in one unit of the sweep. */
+	private static final int CELLS_PER_UNIT = 256;
+	
+	/**
+	 * Job that fills the cells above the diagonal in units of a run of cells, row by row, so it can be checkpointed.
+	 * Each unit's results are the payoffs of its cells as float bits.
+	 * @author luke
+	 *
+	 */
+	private class SweepJob implements JobRunner.Job {
+		
+		@Override
+		public String id() {
+			return "Sweep armies of " + coins + " coins (" + available + ") in units of " + CELLS_PER_UNIT
+					+ " cells under rules:\n" + rules;
+		}
+		
+		@Override
+		public int units() {
+			return (int)((cells() + CELLS_PER_UNIT - 1) / CELLS_PER_UNIT);
+		}
+		
+		@Override
+		public long work(int unit) {
+			return Math.min(CELLS_PER_UNIT, cells() - (long)unit * CELLS_PER_UNIT);
+		}
+		
+		@Override
+		public long[] run(int unit) {
+			TrieAnalyser trie = new TrieAnalyser(rules);
+			long[] results = new long[(int)work(unit)];
+			
+			int[] cell = first(unit);
+			for(int i = 0; i < results.length; i++) {
+				results[i] = Float.floatToRawIntBits(fight(cell[0], cell[1], trie));
+				next(cell);
+			}
+			return results;
+		}
+		
+		@Override
+		public void finished(int unit, long[] results) {
+			int[] cell = first(unit);
+			for(int i = 0; i < results.length; i++) {
+				float p = Float.intBitsToFloat((int)results[i]);
+				payoff[cell[0] * size + cell[1]] = p;
+				payoff[cell[1] * size + cell[0]] = -p;
+				next(cell);
+			}
+		}
+		
+		/**
+		 * Gets the first cell in a unit.
+		 * @return West and east army of the cell.
+		 */
+		private int[] first(int unit) {
+			long skip = (long)unit * CELLS_PER_UNIT;
+			int w = 0;
+			while(skip >= size - 1 - w) skip -= size - 1 - w++;
+			return new int[] { w, w + 1 + (int)skip };
+		}
+		
+		/**
+		 * Moves on to the next cell above the diagonal.
+		 */
+		private void next(int[] cell) {
+			if(++cell[1] == size) {
+				cell[0]++;
+				cell[1] = cell[0] + 1;
+			}
+		}
+	}
+	
+	private final Ruleset rules;
+	private final int coins;
+	private final SoldierAvailability available;
+	private final int[][] armies;
+	private final int size;
+	
+	/** Payoff to the west army of each pairing, indexed by {@code west * size() + east}. */
+	private final float[] payoff;
+	
+	/** Cache of outcome counts to look pairings up in before fighting them or {@code null} for none. */
+	public ResultCache cache;
+	
+	/** Payoff of each army against the mix picked by the last {@link #solve(int)}. */
+	private double[] versusMix;
+	
+	/**
+	 * Creates a sweep of every army that spends a budget.
+	 * @param coins Budget for each army.
+	 * @param available Soldier types that can be bought.
+	 * @param rules Rules for the soldiers.
+	 * @throws IllegalArgumentException If a soldier type that can be bought costs nothing or there are too many armies.
+	 */
+	public ArmySweep(int coins, SoldierAvailability available, Ruleset rules) {
+		this.rules = rules;
+		this.coins = coins;
+		this.available = available;
+		
+		List<int[]> found = armies(coins, available, rules);
+		armies = found.toArray(new int[found.size()][]);
+		size = armies.length;
+		if((long)size * size > Integer.MAX_VALUE) throw new IllegalArgumentException(size + " armies are too many to sweep.");
+		payoff = new float[size * size];
+	}
+	
+	/**
+	 * Finds every army that can be bought with a budget and leaves too little to buy any more soldiers.
+	 * @param coins Budget for the army.
+	 * @param available Soldier types that can be bought.
+	 * @param rules Rules for the soldiers.
+	 * @return Soldier types in each army, in type order.
+	 * @throws IllegalArgumentException If a soldier type that can be bought costs nothing.
+	 */
+	public static List<int[]> armies(int coins, SoldierAvailability available, Ruleset rules) {
+		int cheapest = Integer.MAX_VALUE;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			if(!available.allows(t)) continue;
+			if(rules.cost(t) == 0) throw new IllegalArgumentException("Soldiers of type " + t + " cost nothing.");
+			cheapest = Math.min(cheapest, rules.cost(t));
+		}
+		
+		List<int[]> armies = new ArrayList<int[]>();
+		armies(0, coins, cheapest, new int[SoldierType.COUNT], available, rules, armies);
+		return armies;
+	}
+	
+	private static void armies(int type, int coins, int cheapest, int[] counts, SoldierAvailability available, Ruleset rules, List<int[]> armies) {
+		if(type == SoldierType.COUNT) {
+			if(coins < cheapest) armies.add(toArmy(counts));
+			return;
+		}
+		
+		if(!available.allows(type)) {
+			armies(type + 1, coins, cheapest, counts, available, rules, armies);
+			return;
+		}
+		
+		int cost = rules.cost(type);
+		for(int n = coins / cost; n >= 0; n--) {
+			counts[type] = n;
+			armies(type + 1, coins - n * cost, cheapest, counts, available, rules, armies);
+		}
+		counts[type] = 0;
+	}
+	
+	private static int[] toArmy(int[] counts) {
+		int length = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) length += counts[t];
+		
+		int[] army = new int[length];
+		int i = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			for(int n = 0; n < counts[t]; n++) army[i++] = t;
+		}
+		return army;
+	}
+	
+	/**
+	 * Gets the number of armies swept.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets one of the armies swept.
+	 * @param index Index of the army.
+	 * @return Soldier types in the army, in type order (do not change).
+	 */
+	public int[] army(int index) {
+		return armies[index];
+	}
+	
+	/**
+	 * Gets the number of cells that have to be fought to fill the matrix.
+	 * @return
+	 */
+	public long cells() {
+		return (long)size * (size - 1) / 2;
+	}
+	
+	/**
+	 * Gets the payoff of a pairing once the matrix has been filled.
+	 * @param west Index of the west army.
+	 * @param east Index of the east army.
+	 * @return Proportion of pairs of orderings won by the west army less the proportion won by the east army.
+	 */
+	public float payoff(int west, int east) {
+		return payoff[west * size + east];
+	}
+	
+	/**
+	 * Fills the payoff matrix by fighting every army against every other.
+	 * The cells are filled in numbered units that are recorded in a journal as they finish (see {@link JobRunner}) so
+	 * a sweep that is stopped can be carried on by filling it again with the same journal.
+	 * @param pool Pool to fight on.
+	 * @param journal Journal file or {@code null} to not checkpoint.
+	 * @param progress Listener to report progress to (in cells) or {@code null}.
+	 * @throws IOException If the journal could not be used.
+	 * @throws IllegalStateException If some pairing never ends because neither soldier in a duel can hurt the other.
+	 */
+	public void fill(ForkJoinPool pool, File journal, JobRunner.Progress progress) throws IOException {
+		new JobRunner(new SweepJob()).run(journal, pool, progress);
+	}
+	
+	/**
+	 * Works out the payoff of one pairing.
+	 * The trie walk does no more than one step per pair of orderings, which is cheap, while the counter moves a few
+	 * big numbers per state for each type and hitpoints a surviving soldier can have. Timings put the two level when
+	 * there are about as many pairs of orderings as pairs of sets of soldiers sent, so that decides which is used.
+	 */
+	private float fight(int w, int e, TrieAnalyser trie) {
+		int[] west = armies[w];
+		int[] east = armies[e];
+		
+		long[] counts = new long[ResultCache.DRAWS + 1];
+		if(cache != null && cache.get(west, east, counts)) {
+			return payoff(counts[ResultCache.WEST], counts[ResultCache.EAST], counts[ResultCache.DRAWS]);
+		}
+		
+		long orderings = multiply(Permutations.count(west, 0), Permutations.count(east, 0));
+		long states = multiply(states(west), states(east));
+		
+		if(orderings <= states) {
+			trie.analyse(west, east, null);
+			store(west, east, trie.west, trie.east, trie.draws);
+			return payoff(trie.west, trie.east, trie.draws);
+		}
+		
+		OutcomeCounter counter = new OutcomeCounter(west, east, rules);
+		counter.count();
+		if(counter.west.bitLength() < Long.SIZE && counter.east.bitLength() < Long.SIZE && counter.draws.bitLength() < Long.SIZE) {
+			store(west, east, counter.west.longValue(), counter.east.longValue(), counter.draws.longValue());
+		}
+		BigInteger total = counter.west.add(counter.east).add(counter.draws);
+		return (float)(counter.west.subtract(counter.east).doubleValue() / total.doubleValue());
+	}
+	
+	private static float payoff(long west, long east, long draws) {
+		return (float)((double)(west - east) / (double)(west + east + draws));
+	}
+	
+	private void store(int[] west, int[] east, long westWins, long eastWins, long draws) {
+		if(cache == null) return;
+		
+		try {
+			cache.put(west, east, westWins, eastWins, draws);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Result could not be stored in the cache.", e);
+		}
+	}
+	
+	/**
+	 * Gets the number of sets of soldiers a side could have sent from an army: the product of (number of each type + 1).
+	 */
+	private static long states(int[] army) {
+		long states = 1L;
+		int n = 1;
+		for(int i = 1; i <= army.length; i++) {
+			if(i < army.length && army[i] == army[i - 1]) n++;
+			else {
+				states *= n + 1;
+				n = 1;
+			}
+		}
+		return states;
+	}
+	
+	private static long multiply(long a, long b) {
+		if(a != 0L && b > Long.MAX_VALUE / a) return Long.MAX_VALUE;
+		return a * b;
+	}
+	
+	/**
+	 * Solves the filled matrix for the equilibrium by fictitious play.
+	 * The mix of armies picked gets closer to the equilibrium the more rounds are played; how far off it still is
+	 * is given by {@link #exploitability()}.
+	 * @param rounds Number of rounds to play.
+	 * @return Proportion of rounds in which each army was picked.
+	 */
+	public double[] solve(int rounds) {
+		int[] picks = new int[size];
+		
+		// Total payoff of each army against every army picked so far
+		double[] totals = new double[size];
+		
+		int pick = 0;
+		for(int round = 0; round < rounds; round++) {
+			picks[pick]++;
+			
+			// Payoff against the army just picked is minus its payoff against each army
+			int row = pick * size;
+			int best = 0;
+			for(int a = 0; a < size; a++) {
+				totals[a] -= payoff[row + a];
+				if(totals[a] > totals[best]) best = a;
+			}
+			pick = best;
+		}
+		
+		versusMix = new double[size];
+		double[] mix = new double[size];
+		for(int a = 0; a < size; a++) {
+			versusMix[a] = totals[a] / rounds;
+			mix[a] = (double)picks[a] / rounds;
+		}
+		return mix;
+	}
+	
+	/**
+	 * Gets how much the best army gains against the mix found by the last {@link #solve(int)}.
+	 * The equilibrium of a symmetric game is worth 0 so this is 0 if the mix is the equilibrium.
+	 * @return
+	 */
+	public double exploitability() {
+		return versusMix[bestResponse()];
+	}
+	
+	/**
+	 * Gets the army that does best against the mix found by the last {@link #solve(int)}.
+	 * @return Index of the army.
+	 */
+	public int bestResponse() {
+		int best = 0;
+		for(int a = 1; a < size; a++) {
+			if(versusMix[a] > versusMix[best]) best = a;
+		}
+		return best;
+	}
+	
+	/**
+	 * Gets the army that does best against another army.
+	 * @param east Index of the army to beat.
+	 * @return Index of the army with the highest payoff against {@code east}.
+	 */
+	public int bestResponse(int east) {
+		int best = 0;
+		for(int a = 1; a < size; a++) {
+			if(payoff[a * size + east] > payoff[best * size + east]) best = a;
+		}
+		return best;
+	}
+	
+	/**
+	 * Finds the armies that are never worse than some other army against any army.
+	 * @param against Index of the army that dominates each army or -1 if it isn't dominated by any.
+	 * @return Number of armies that are not dominated.
+	 */
+	public int dominated(int[] against) {
+		int undominated = 0;
+		for(int a = 0; a < size; a++) {
+			against[a] = -1;
+			for(int b = 0; b < size && against[a] < 0; b++) {
+				if(b != a && dominates(b, a)) against[a] = b;
+			}
+			if(against[a] < 0) undominated++;
+		}
+		return undominated;
+	}
+	
+	/**
+	 * Determines if one army does at least as well as another against every army and better against one.
+	 */
+	private boolean dominates(int a, int b) {
+		boolean better = false;
+		int rowA = a * size, rowB = b * size;
+		for(int e = 0; e < size; e++) {
+			if(payoff[rowA + e] < payoff[rowB + e]) return false;
+			if(payoff[rowA + e] > payoff[rowB + e]) better = true;
+		}
+		return better;
+	}
+}
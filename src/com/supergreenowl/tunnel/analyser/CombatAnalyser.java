@@ -2,13 +2,27 @@ package com.supergreenowl.tunnel.analyser;
 
 import java.util.Queue;
 
-import com.supergreenowl.tunnel.model.CombatEngine;
+import com.supergreenowl.tunnel.model.DuelTable;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.Soldier;
 import com.supergreenowl.tunnel.model.TunnelState;
 
 public class CombatAnalyser {
 	
 	public static TunnelState fight(Queue<Soldier> west, Queue<Soldier> east) {
+		return fight(west, east, Ruleset.DEFAULT);
+	}
+	
+	/**
+	 * Lets two armies fight each other until at least one is out of soldiers.
+	 * @param west Soldiers that entered from the west (the dead are removed).
+	 * @param east Soldiers that entered from the east (the dead are removed).
+	 * @param rules Rules for the soldiers.
+	 * @return Winner of the fight.
+	 * @throws IllegalStateException If the fight never ends because neither soldier in a duel can hurt the other.
+	 */
+	public static TunnelState fight(Queue<Soldier> west, Queue<Soldier> east, Ruleset rules) {
+		DuelTable duels = rules.duels;
 		
 		// Let the two armies fight each other until at least 1 is out of soldiers
 		while(!west.isEmpty() && !east.isEmpty()) {
@@ -16,7 +30,7 @@ public class CombatAnalyser {
 			Soldier e = east.peek();
 			
 			// Let the two soldiers fight each other until at least one dies
-			fight(w, e);
+			fight(w, e, duels);
 			
 			// Remove any dead soldiers
 			if(w.hp <= 0) west.remove();
@@ -32,15 +46,50 @@ public class CombatAnalyser {
 	}
 	
 	
+	/**
+	 * Lets two armies fight each other until at least one is out of soldiers without creating any soldiers.
+	 * @param west Types of the soldiers that entered from the west in order (not changed).
+	 * @param east Types of the soldiers that entered from the east in order (not changed).
+	 * @param rules Rules for the soldiers.
+	 * @return Winner of the fight.
+	 * @throws IllegalStateException If the fight never ends because neither soldier in a duel can hurt the other.
+	 */
+	public static TunnelState fight(int[] west, int[] east, Ruleset rules) {
+		DuelTable duels = rules.duels;
+		
+		int w = 0, e = 0;
+		int westHp = west.length > 0 ? rules.hitpoints(west[0]) : 0;
+		int eastHp = east.length > 0 ? rules.hitpoints(east[0]) : 0;
+		
+		while(w < west.length && e < east.length) {
+			int duel = duels.index(west[w], east[e], westHp, eastHp);
+			if(duels.winner(duel) == TunnelState.Open) {
+				throw new IllegalStateException("Soldiers of types " + west[w] + " and " + east[e] + " can't hurt each other.");
+			}
+			westHp = duels.westHp(duel);
+			eastHp = duels.eastHp(duel);
+			
+			// Next soldier in to replace each dead one
+			if(westHp == 0 && ++w < west.length) westHp = rules.hitpoints(west[w]);
+			if(eastHp == 0 && ++e < east.length) eastHp = rules.hitpoints(east[e]);
+		}
+		
+		if(w == west.length) return e == east.length ? TunnelState.Draw : TunnelState.East;
+		else return TunnelState.West;
+	}
+	
 	/**
 	 * Runs a fight between two soldiers.
 	 * @param west
 	 * @param east
+	 * @param duels Outcomes of duels under the rules of the fight.
 	 */
-	private static void fight(Soldier west, Soldier east) {
-		while(west.hp > 0 && east.hp > 0) {
-			west.hp -= CombatEngine.DAMAGE[east.type][west.type];
-			east.hp -= CombatEngine.DAMAGE[west.type][east.type];
+	private static void fight(Soldier west, Soldier east, DuelTable duels) {
+		int duel = duels.index(west.type, east.type, west.hp, east.hp);
+		if(duels.winner(duel) == TunnelState.Open) {
+			throw new IllegalStateException("Soldiers of types " + west.type + " and " + east.type + " can't hurt each other.");
 		}
+		west.hp = duels.westHp(duel);
+		east.hp = duels.eastHp(duel);
 	}	
 }
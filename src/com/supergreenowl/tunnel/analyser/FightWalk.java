@@ -0,0 +1,274 @@
+package com.supergreenowl.tunnel.analyser;
+
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.LongMap.Entry;
+import com.supergreenowl.tunnel.model.DuelTable;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Walks every state of a fight between two armies one duel at a time, carrying a weight for each state.
+ * <p>
+ * Part way through a fight all that matters is which soldiers each side has sent so far (not their order) and the type
+ * and hitpoints of a soldier that survived the last duel. Sending in a soldier of each type that is left splits the
+ * weight of a state by type, and states reached in more than one way merge. States are grouped into layers by the
+ * number of soldiers sent and each layer is thrown away once it has been moved forward.
+ * <p>
+ * Subclasses decide what the weight is: {@link OutcomeCounter} counts numbers of ways and {@link MarkovEvaluator}
+ * works out chances.
+ * @author luke
+ *
+ * @param <W> Type of the weight carried by each state.
+ */
+abstract class FightWalk<W> {
+	
+	protected static final int WEST = 0;
+	protected static final int EAST = 1;
+	
+	/** Marks a state in which both sides send in a fresh soldier. */
+	private static final int FRESH = 2;
+	
+	private final Ruleset rules;
+	private final DuelTable duels;
+	private final int hpCount;
+	
+	/** Numbers of each soldier type in each army, indexed by side. */
+	private final int[][] army = new int[2][SoldierType.COUNT];
+	
+	/** Numbers of each soldier type not yet sent in the state being moved forward, indexed by side. */
+	protected final int[][] left = new int[2][SoldierType.COUNT];
+	
+	/** Numbers of soldiers sent in the state being moved forward, indexed by side. */
+	protected final int[] sent = new int[2];
+	
+	/** Place values used to pack the numbers of each soldier type a side has sent into a single number, indexed by side. */
+	private final long[][] radix = new long[2][SoldierType.COUNT];
+	
+	private long eastStates;
+	
+	/** States indexed by number of soldiers sent; each maps a packed state to its weight. */
+	private LongMap<W>[] layers;
+	
+	/** Layer being filled by the current move. */
+	private int next;
+	
+	/**
+	 * @param rules Rules for the soldiers.
+	 */
+	protected FightWalk(Ruleset rules) {
+		this.rules = rules;
+		this.duels = rules.duels;
+		this.hpCount = rules.maxHitpoints() + 1;
+	}
+	
+	/**
+	 * Works out which soldier types a side might send next. Called with {@link #left} and {@link #sent} set for the
+	 * state being moved forward, before {@link #send(Object, int, int)} is called for that side.
+	 * @param side Side sending a fresh soldier.
+	 */
+	protected abstract void choose(int side);
+	
+	/**
+	 * Gets the weight passed on by sending a soldier.
+	 * @param weight Weight of the state the soldier is sent from.
+	 * @param side Side sending the soldier.
+	 * @param type Type of the soldier (the side has at least one left).
+	 * @return Weight passed on or {@code null} if the side never sends this type from here.
+	 */
+	protected abstract W send(W weight, int side, int type);
+	
+	/**
+	 * Adds the weight of another way of reaching a state to the state's total.
+	 * @param total Weight the state already has or {@code null} if this is the first way of reaching it.
+	 * @param weight Weight to add.
+	 * @return New total for the state.
+	 */
+	protected abstract W add(W total, W weight);
+	
+	/**
+	 * Adds to an outcome once a side has run out of soldiers, with {@link #left} set for the end of the fight.
+	 * @param winner Winner of the fight.
+	 * @param weight Weight of reaching the end of the fight.
+	 */
+	protected abstract void end(TunnelState winner, W weight);
+	
+	/**
+	 * Walks every state of a fight between two armies from the start to the end.
+	 * @param westArmy Soldier types in the west army.
+	 * @param eastArmy Soldier types in the east army.
+	 * @param start Weight of the start of the fight.
+	 * @return Number of states passed through.
+	 * @throws IllegalArgumentException If the armies have too many states to pack each one into a long.
+	 * @throws IllegalStateException If some fight never ends because neither soldier in a duel can hurt the other.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected long walk(int[] westArmy, int[] eastArmy, W start) {
+		for(int t = 0; t < SoldierType.COUNT; t++) army[WEST][t] = army[EAST][t] = 0;
+		for(int i = 0; i < westArmy.length; i++) army[WEST][westArmy[i]]++;
+		for(int i = 0; i < eastArmy.length; i++) army[EAST][eastArmy[i]]++;
+		
+		long westCount = 1L, eastCount = 1L;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			radix[WEST][t] = westCount;
+			westCount = multiply(westCount, army[WEST][t] + 1);
+			radix[EAST][t] = eastCount;
+			eastCount = multiply(eastCount, army[EAST][t] + 1);
+		}
+		
+		// Biggest packed state + 1 (see key)
+		multiply(multiply(multiply(multiply(westCount, eastCount), 3), SoldierType.COUNT), hpCount);
+		eastStates = eastCount;
+		
+		reset(0L, 0L);
+		boolean westOut = isEmpty(WEST), eastOut = isEmpty(EAST);
+		if(westOut || eastOut) {
+			end(westOut ? (eastOut ? TunnelState.Draw : TunnelState.East) : TunnelState.West, start);
+			return 0L;
+		}
+		
+		long states = 0L;
+		layers = new LongMap[westArmy.length + eastArmy.length + 1];
+		layers[0] = new LongMap<W>();
+		layers[0].put(key(0L, 0L, FRESH, 0, 0), start);
+		
+		for(int soldiers = 0; soldiers < layers.length; soldiers++) {
+			LongMap<W> layer = layers[soldiers];
+			if(layer == null) continue;
+			states += layer.size;
+			
+			for(Entry<W> entry : layer.entries()) {
+				move(entry.key, entry.value, soldiers);
+			}
+			layers[soldiers] = null;
+		}
+		layers = null;
+		return states;
+	}
+	
+	/**
+	 * Moves a state forward by one duel.
+	 * @param key Packed state.
+	 * @param weight Weight of the state.
+	 * @param soldiers Number of soldiers sent so far by both sides.
+	 */
+	private void move(long key, W weight, int soldiers) {
+		int hp = (int)(key % hpCount);
+		key /= hpCount;
+		int type = (int)(key % SoldierType.COUNT);
+		key /= SoldierType.COUNT;
+		int side = (int)(key % 3);
+		key /= 3;
+		long eastUsed = key % eastStates;
+		long westUsed = key / eastStates;
+		
+		reset(westUsed, eastUsed);
+		
+		if(side == FRESH) {
+			next = soldiers + 2;
+			choose(WEST);
+			choose(EAST);
+			for(int w = 0; w < SoldierType.COUNT; w++) {
+				if(left[WEST][w] == 0) continue;
+				W westWeight = send(weight, WEST, w);
+				if(westWeight == null) continue;
+				left[WEST][w]--;
+				for(int e = 0; e < SoldierType.COUNT; e++) {
+					if(left[EAST][e] == 0) continue;
+					W eastWeight = send(westWeight, EAST, e);
+					if(eastWeight == null) continue;
+					left[EAST][e]--;
+					duel(westUsed + radix[WEST][w], eastUsed + radix[EAST][e], w, rules.hitpoints(w), e, rules.hitpoints(e), eastWeight);
+					left[EAST][e]++;
+				}
+				left[WEST][w]++;
+			}
+		}
+		else {
+			next = soldiers + 1;
+			int other = 1 - side;
+			choose(other);
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				if(left[other][t] == 0) continue;
+				W sentWeight = send(weight, other, t);
+				if(sentWeight == null) continue;
+				left[other][t]--;
+				if(side == WEST) duel(westUsed, eastUsed + radix[EAST][t], type, hp, t, rules.hitpoints(t), sentWeight);
+				else duel(westUsed + radix[WEST][t], eastUsed, t, rules.hitpoints(t), type, hp, sentWeight);
+				left[other][t]++;
+			}
+		}
+	}
+	
+	/**
+	 * Resolves a duel and passes the weight of reaching it on to the state it leads to.
+	 */
+	private void duel(long westUsed, long eastUsed, int westType, int westHp, int eastType, int eastHp, W weight) {
+		int duel = duels.index(westType, eastType, westHp, eastHp);
+		if(duels.winner(duel) == TunnelState.Open) {
+			throw new IllegalStateException("Soldiers of types " + westType + " and " + eastType + " can't hurt each other.");
+		}
+		
+		int w = duels.westHp(duel);
+		int e = duels.eastHp(duel);
+		
+		if(w == 0 && e == 0) {
+			boolean westOut = isEmpty(WEST), eastOut = isEmpty(EAST);
+			if(westOut) end(eastOut ? TunnelState.Draw : TunnelState.East, weight);
+			else if(eastOut) end(TunnelState.West, weight);
+			else merge(key(westUsed, eastUsed, FRESH, 0, 0), weight);
+		}
+		else if(w == 0) {
+			if(isEmpty(WEST)) end(TunnelState.East, weight);
+			else merge(key(westUsed, eastUsed, EAST, eastType, e), weight);
+		}
+		else {
+			if(isEmpty(EAST)) end(TunnelState.West, weight);
+			else merge(key(westUsed, eastUsed, WEST, westType, w), weight);
+		}
+	}
+	
+	private void merge(long key, W weight) {
+		LongMap<W> layer = layers[next];
+		if(layer == null) layer = layers[next] = new LongMap<W>();
+		layer.put(key, add(layer.get(key), weight));
+	}
+	
+	/**
+	 * Works out the numbers of each soldier type left (and so sent) from packed numbers of soldiers sent.
+	 */
+	private void reset(long westUsed, long eastUsed) {
+		sent[WEST] = sent[EAST] = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			int w = (int)(westUsed / radix[WEST][t] % (army[WEST][t] + 1));
+			int e = (int)(eastUsed / radix[EAST][t] % (army[EAST][t] + 1));
+			left[WEST][t] = army[WEST][t] - w;
+			left[EAST][t] = army[EAST][t] - e;
+			sent[WEST] += w;
+			sent[EAST] += e;
+		}
+	}
+	
+	private boolean isEmpty(int side) {
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			if(left[side][t] > 0) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Multiplies two numbers of states.
+	 * @param a At least 1.
+	 * @param b At least 0.
+	 * @return
+	 * @throws IllegalArgumentException If the product doesn't fit in a long.
+	 */
+	private static long multiply(long a, long b) {
+		if(b > Long.MAX_VALUE / a) throw new IllegalArgumentException("Armies have too many states to walk.");
+		return a * b;
+	}
+	
+	private long key(long westUsed, long eastUsed, int side, int type, int hp) {
+		return (((westUsed * eastStates + eastUsed) * 3 + side) * SoldierType.COUNT + type) * hpCount + hp;
+	}
+}
@@ -0,0 +1,214 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Runs a long job split into numbered units of work on a fork-join pool, recording each finished unit in a
+ * {@link Journal} so that running the job again skips the units that are already done.
+ * <p>
+ * Units run in any order and on any thread but their results are handed to the job one at a time. While the units
+ * run the thread that started the job reports progress every so often, with the rate work is being done at and
+ * how long the rest should take.
+ * @author luke
+ *
+ */
+public class JobRunner {
+	
+	/**
+	 * A job made up of numbered units of work.
+	 * @author luke
+	 *
+	 */
+	public interface Job {
+		
+		/**
+		 * Describes the job, including anything that changes how it is split into units, so a journal is never used
+		 * for a different job.
+		 * @return
+		 */
+		String id();
+		
+		/**
+		 * Gets the number of units in the job.
+		 * @return
+		 */
+		int units();
+		
+		/**
+		 * Gets the amount of work in a unit (such as the number of fights), used to report progress.
+		 * @param unit Number of the unit.
+		 * @return
+		 */
+		long work(int unit);
+		
+		/**
+		 * Does the work of one unit (may be called from several threads at once).
+		 * @param unit Number of the unit.
+		 * @return Results of the unit.
+		 */
+		long[] run(int unit);
+		
+		/**
+		 * Takes the results of a unit that has finished now or in an earlier run (never called from two threads at once).
+		 * @param unit Number of the unit.
+		 * @param results Results returned by {@link #run(int)}.
+		 */
+		void finished(int unit, long[] results);
+	}
+	
+	/**
+	 * Receives progress reports.
+	 * @author luke
+	 *
+	 */
+	public interface Progress {
+		
+		/**
+		 * Called every so often while a job runs and once when it has finished.
+		 * @param done Number of units finished, including any finished by an earlier run.
+		 * @param units Number of units in the job.
+		 * @param work Amount of work done by this run.
+		 * @param left Amount of work left to do.
+		 * @param nanos Time taken by this run so far (ns).
+		 */
+		void progress(int done, int units, long work, long left, long nanos);
+	}
+	
+	/** Time between progress reports (s). */
+	private static final long REPORT_SECONDS = 10L;
+	
+	/**
+	 * Fork-join task that runs a range of the units left to do.
+	 * @author luke
+	 *
+	 */
+	private class UnitTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int from;
+		private final int to;
+		
+		public UnitTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				int unit = pending.get(from);
+				long[] results = job.run(unit);
+				finish(unit, results);
+				work.addAndGet(job.work(unit));
+				done.incrementAndGet();
+				return;
+			}
+			
+			int mid = (from + to) >>> 1;
+			invokeAll(new UnitTask(from, mid), new UnitTask(mid, to));
+		}
+	}
+	
+	private final Job job;
+	private Journal journal;
+	private IntArray pending;
+	
+	private final AtomicInteger done = new AtomicInteger();
+	private final AtomicLong work = new AtomicLong();
+	
+	public JobRunner(Job job) {
+		this.job = job;
+	}
+	
+	/**
+	 * Runs every unit of the job that isn't already done.
+	 * @param path Journal file to skip finished units from and record new ones in or {@code null} to run every unit.
+	 * @param pool Pool to run the units on.
+	 * @param progress Listener to report progress to or {@code null}.
+	 * @throws IOException If the journal could not be used.
+	 */
+	public void run(File path, ForkJoinPool pool, Progress progress) throws IOException {
+		journal = path == null ? null : new Journal(path, job.id());
+		try {
+			run(pool, progress);
+		}
+		finally {
+			if(journal != null) journal.close();
+			journal = null;
+		}
+	}
+	
+	private void run(ForkJoinPool pool, Progress progress) throws IOException {
+		int units = job.units();
+		pending = new IntArray(units);
+		long total = 0L;
+		int skipped = 0;
+		for(int unit = 0; unit < units; unit++) {
+			long[] results = journal == null ? null : journal.result(unit);
+			if(results != null) {
+				job.finished(unit, results);
+				skipped++;
+			}
+			else {
+				pending.add(unit);
+				total += job.work(unit);
+			}
+		}
+		
+		done.set(skipped);
+		work.set(0L);
+		long start = System.nanoTime();
+		if(pending.size > 0) {
+			ForkJoinTask<Void> task = pool.submit(new UnitTask(0, pending.size));
+			while(true) {
+				try {
+					task.get(REPORT_SECONDS, TimeUnit.SECONDS);
+					break;
+				}
+				catch(TimeoutException e) {
+					if(progress != null) progress.progress(done.get(), units, work.get(), total - work.get(), System.nanoTime() - start);
+				}
+				catch(InterruptedException e) {
+					task.cancel(true);
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Job was interrupted.");
+				}
+				catch(ExecutionException e) {
+					Throwable cause = e.getCause();
+					if(cause.getCause() instanceof IOException) throw (IOException)cause.getCause();
+					if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+					if(cause instanceof Error) throw (Error)cause;
+					throw new IllegalStateException(cause);
+				}
+			}
+		}
+		
+		if(progress != null) progress.progress(done.get(), units, work.get(), 0L, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Records a finished unit and passes its results to the job.
+	 */
+	private synchronized void finish(int unit, long[] results) {
+		try {
+			if(journal != null) journal.record(unit, results);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unit " + unit + " could not be recorded in the journal.", e);
+		}
+		job.finished(unit, results);
+	}
+}
@@ -0,0 +1,170 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Checkpoint file of the results of the work units of a job that have finished, so a job that is stopped part way
+ * can carry on from where it got to.
+ * <p>
+ * The file starts with a description of the job and every unit that finishes is appended as a record of its number,
+ * its results and a checksum, written in one go. When the file is opened again a record cut short by the job being
+ * killed fails its checksum and is dropped (along with anything after it) so that unit is simply done again.
+ * @author luke
+ *
+ */
+public class Journal {
+	
+	/** Identifies a journal file. */
+	private static final int MAGIC = 0x4b4e4a4c;
+	
+	/** Most results a unit can have (anything more is taken to be a damaged record). */
+	public static final int MAX_VALUES = 1 << 20;
+	
+	private final File path;
+	private final RandomAccessFile file;
+	private final IntMap<long[]> results = new IntMap<long[]>();
+	private final CRC32 crc = new CRC32();
+	
+	/**
+	 * Opens a journal, creating it if it doesn't exist.
+	 * @param path Journal file.
+	 * @param job Description of the job, which must match the one the journal was created for (including anything that
+	 * changes how the job is split into units).
+	 * @throws IOException If the file could not be opened or is a journal for a different job.
+	 */
+	public Journal(File path, String job) throws IOException {
+		this.path = path;
+		long end = path.exists() ? read(job) : 0L;
+		
+		file = new RandomAccessFile(path, "rw");
+		if(end == 0L) {
+			file.setLength(0L);
+			file.writeInt(MAGIC);
+			file.writeUTF(job);
+		}
+		else {
+			// Drop anything after the last complete record
+			file.setLength(end);
+			file.seek(end);
+		}
+	}
+	
+	/**
+	 * Reads the results of finished units from an existing journal.
+	 * @return Position after the last complete record or 0 if the file is empty.
+	 */
+	private long read(String job) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+		try {
+			long end;
+			try {
+				if(in.readInt() != MAGIC) throw new IOException(path + " is not a journal.");
+				String header = in.readUTF();
+				if(!header.equals(job)) throw new IOException(path + " is a journal for a different job: " + header);
+				end = 4 + 2 + header.getBytes("UTF-8").length;
+			}
+			catch(EOFException e) {
+				return 0L;
+			}
+			
+			while(true) {
+				try {
+					int unit = in.readInt();
+					int count = in.readInt();
+					if(count < 0 || count > MAX_VALUES) break;
+					
+					long[] values = new long[count];
+					for(int i = 0; i < count; i++) values[i] = in.readLong();
+					if(in.readInt() != checksum(unit, values)) break;
+					
+					results.put(unit, values);
+					end += recordLength(count);
+				}
+				catch(EOFException e) {
+					break;
+				}
+			}
+			return end;
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Determines if a unit had finished when the journal was opened or has been recorded since.
+	 * @param unit Number of the unit.
+	 * @return
+	 */
+	public synchronized boolean isDone(int unit) {
+		return results.containsKey(unit);
+	}
+	
+	/**
+	 * Gets the results of a finished unit.
+	 * @param unit Number of the unit.
+	 * @return Results or {@code null} if the unit hasn't finished.
+	 */
+	public synchronized long[] result(int unit) {
+		return results.get(unit);
+	}
+	
+	/**
+	 * Gets the number of units that have finished.
+	 * @return
+	 */
+	public synchronized int size() {
+		return results.size;
+	}
+	
+	/**
+	 * Appends the results of a unit that has finished.
+	 * @param unit Number of the unit.
+	 * @param values Results of the unit.
+	 * @throws IOException If the record could not be written.
+	 */
+	public synchronized void record(int unit, long[] values) throws IOException {
+		if(values.length > MAX_VALUES) throw new IllegalArgumentException("Units can't have more than " + MAX_VALUES + " results.");
+		
+		ByteBuffer record = ByteBuffer.allocate(recordLength(values.length));
+		record.putInt(unit);
+		record.putInt(values.length);
+		for(int i = 0; i < values.length; i++) record.putLong(values[i]);
+		record.putInt(checksum(unit, values));
+		
+		file.write(record.array());
+		results.put(unit, values.clone());
+	}
+	
+	/**
+	 * Closes the journal file.
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		file.close();
+	}
+	
+	private int checksum(int unit, long[] values) {
+		crc.reset();
+		ByteBuffer bytes = ByteBuffer.allocate(8 + values.length * 8);
+		bytes.putInt(unit);
+		bytes.putInt(values.length);
+		for(int i = 0; i < values.length; i++) bytes.putLong(values[i]);
+		crc.update(bytes.array());
+		return (int)crc.getValue();
+	}
+	
+	private static int recordLength(int count) {
+		return 4 + 4 + count * 8 + 4;
+	}
+}
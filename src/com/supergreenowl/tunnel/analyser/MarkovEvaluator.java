@@ -0,0 +1,164 @@
+package com.supergreenowl.tunnel.analyser;
+
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Works out the exact chance of each outcome of a fight between two players that choose which soldier to send next at
+ * random (like {@link com.supergreenowl.tunnel.ai.EasyAI}), without playing any games.
+ * <p>
+ * Soldiers fight in the order they are sent (as in {@link CombatAnalyser}). A player's next choice only depends on the
+ * soldiers they have left, so part way through a fight all that matters is which soldiers each side has sent and the
+ * type and hitpoints of a soldier that survived the last duel. The evaluator walks those states (see {@link FightWalk})
+ * carrying the chance of reaching each one, splitting it by the chance of each type being sent and adding it to the
+ * outcome once a side runs out.
+ * <p>
+ * Players that pick their army at random are handled with {@link SelectionOdds}: each pair of armies is evaluated and
+ * weighted by the chance of both being picked.
+ * @author luke
+ *
+ */
+public class MarkovEvaluator extends FightWalk<double[]> {
+	
+	/**
+	 * How a player chooses which soldier to send next.
+	 * @author luke
+	 *
+	 */
+	public interface Dispatch {
+		
+		/**
+		 * Works out the chance of each soldier type being sent next.
+		 * @param left Numbers of each soldier type not yet sent (not all 0).
+		 * @param sent Number of soldiers sent so far.
+		 * @param odds Array to put the chances in, indexed by soldier type (0 for types with none left).
+		 */
+		void next(int[] left, int sent, double[] odds);
+	}
+	
+	/** Sends each type that has soldiers left with the same chance (as {@link com.supergreenowl.tunnel.controller.Player#selectRandomSoldier()}). */
+	public static final Dispatch RANDOM_TYPE = new Dispatch() {
+		@Override
+		public void next(int[] left, int sent, double[] odds) {
+			int types = 0;
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				if(left[t] > 0) types++;
+			}
+			for(int t = 0; t < SoldierType.COUNT; t++) odds[t] = left[t] > 0 ? 1d / types : 0d;
+		}
+	};
+	
+	/** Sends each soldier left with the same chance, so every ordering of the army is equally likely. */
+	public static final Dispatch RANDOM_SOLDIER = new Dispatch() {
+		@Override
+		public void next(int[] left, int sent, double[] odds) {
+			int soldiers = 0;
+			for(int t = 0; t < SoldierType.COUNT; t++) soldiers += left[t];
+			for(int t = 0; t < SoldierType.COUNT; t++) odds[t] = (double)left[t] / soldiers;
+		}
+	};
+	
+	/**
+	 * Creates a dispatch that sends soldiers in a fixed order.
+	 * @param order Soldier types in the order they are sent.
+	 * @return
+	 */
+	public static Dispatch inOrder(final int[] order) {
+		return new Dispatch() {
+			@Override
+			public void next(int[] left, int sent, double[] odds) {
+				if(sent >= order.length || left[order[sent]] == 0) throw new IllegalArgumentException("Order is not of the army being sent.");
+				for(int t = 0; t < SoldierType.COUNT; t++) odds[t] = 0d;
+				odds[order[sent]] = 1d;
+			}
+		};
+	}
+	
+	/** Chance of sending each soldier type next, indexed by side. */
+	private final double[][] odds = new double[2][SoldierType.COUNT];
+	
+	private final Dispatch[] dispatch = new Dispatch[2];
+	
+	/** Number of states passed through by the last evaluation. */
+	public long states;
+	
+	/** Chance of each outcome of the last evaluation. */
+	public double west, east, draws;
+	
+	/**
+	 * @param rules Rules for the soldiers.
+	 */
+	public MarkovEvaluator(Ruleset rules) {
+		super(rules);
+	}
+	
+	/**
+	 * Works out the chance of each outcome for two players who pick their armies at random and stores them in
+	 * {@link #west}, {@link #east} and {@link #draws}.
+	 * @param westArmies Chance of each army the west player picks.
+	 * @param westDispatch How the west player chooses soldiers to send.
+	 * @param eastArmies Chance of each army the east player picks.
+	 * @param eastDispatch How the east player chooses soldiers to send.
+	 * @throws IllegalArgumentException If the armies have too many states to walk.
+	 * @throws IllegalStateException If some fight never ends because neither soldier in a duel can hurt the other.
+	 */
+	public void evaluate(SelectionOdds westArmies, Dispatch westDispatch, SelectionOdds eastArmies, Dispatch eastDispatch) {
+		double w = 0d, e = 0d, d = 0d;
+		long s = 0L;
+		for(int i = 0; i < westArmies.size(); i++) {
+			for(int j = 0; j < eastArmies.size(); j++) {
+				double chance = westArmies.odds(i) * eastArmies.odds(j);
+				evaluate(westArmies.army(i), westDispatch, eastArmies.army(j), eastDispatch);
+				w += west * chance;
+				e += east * chance;
+				d += draws * chance;
+				s += states;
+			}
+		}
+		west = w;
+		east = e;
+		draws = d;
+		states = s;
+	}
+	
+	/**
+	 * Works out the chance of each outcome for two armies and stores them in {@link #west}, {@link #east} and {@link #draws}.
+	 * @param westArmy Soldier types in the west army.
+	 * @param westDispatch How the west player chooses soldiers to send.
+	 * @param eastArmy Soldier types in the east army.
+	 * @param eastDispatch How the east player chooses soldiers to send.
+	 * @throws IllegalArgumentException If the armies have too many states to walk.
+	 * @throws IllegalStateException If some fight never ends because neither soldier in a duel can hurt the other.
+	 */
+	public void evaluate(int[] westArmy, Dispatch westDispatch, int[] eastArmy, Dispatch eastDispatch) {
+		dispatch[WEST] = westDispatch;
+		dispatch[EAST] = eastDispatch;
+		west = east = draws = 0d;
+		states = walk(westArmy, eastArmy, new double[] { 1d });
+	}
+	
+	@Override
+	protected void choose(int side) {
+		dispatch[side].next(left[side], sent[side], odds[side]);
+	}
+	
+	@Override
+	protected double[] send(double[] chance, int side, int type) {
+		return odds[side][type] == 0d ? null : new double[] { chance[0] * odds[side][type] };
+	}
+	
+	@Override
+	protected double[] add(double[] total, double[] chance) {
+		if(total == null) return chance;
+		total[0] += chance[0];
+		return total;
+	}
+	
+	@Override
+	protected void end(TunnelState winner, double[] chance) {
+		if(winner == TunnelState.Draw) draws += chance[0];
+		else if(winner == TunnelState.West) west += chance[0];
+		else east += chance[0];
+	}
+}
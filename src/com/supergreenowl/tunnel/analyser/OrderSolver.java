@@ -0,0 +1,533 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.supergreenowl.tunnel.model.ArmyCodec;
+import com.supergreenowl.tunnel.model.DuelTable;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Finds the best order to send an army's soldiers in against every ordering of an opposing army, such as the
+ * fixed order of a campaign level's {@code SoldierList}.
+ * <p>
+ * Each pairing scores 2 for a win, 1 for a draw and 0 for a loss. Orderings are compared by the total score against
+ * every opposing ordering ({@link Objective#AVERAGE}) or by the lowest ({@link Objective#WORST}), with the other used
+ * to break ties. The search walks the orderings of the army as a trie, keeping where each opposing ordering has got
+ * to after the soldiers sent so far, and prunes a branch as soon as its bound can't beat the best ordering found.
+ * The bound for each undecided pairing is the best the rest of the army could do against that one opposing ordering
+ * if it could pick its order knowing it, which is memoized on the soldiers left and what's left of the opposing
+ * ordering. Branches below the first soldiers are searched in parallel and share the best score so far.
+ * @author luke
+ *
+ */
+public class OrderSolver {
+	
+	/**
+	 * What an ordering is chosen for.
+	 * @author luke
+	 *
+	 */
+	public enum Objective {
+		/** Highest total score against every opposing ordering. */
+		AVERAGE,
+		/** Highest score against the opposing ordering it does worst against. */
+		WORST
+	}
+	
+	/** Most opposing orderings the solver will take on. */
+	public static final int MAX_OPPONENTS = 1 << 18;
+	
+	/** Score of a pairing. */
+	private static final int LOSS = 0, DRAW = 1, WIN = 2;
+	
+	/** Number of soldiers sent before the rest of a branch is searched by one task. */
+	private static final int SPLIT_DEPTH = 2;
+	
+	/**
+	 * Most soldiers left for which the bound of a pairing is worked out exactly; with more it is taken to be a win
+	 * (looking further ahead prunes a little more but costs far more than it saves against big opposing armies).
+	 */
+	private static final int LOOKAHEAD = 4;
+	
+	/** Slots in a new memo table. */
+	private static final int INITIAL_MEMO = 1 << 12;
+	
+	/** Most slots in a memo table (once full it is emptied rather than grown, so big searches stay in memory). */
+	private static final int MAX_MEMO = 1 << 22;
+	
+	/** Marks a pairing whose outcome is decided (in place of the rest of the opposing ordering). */
+	private static final long DECIDED = -1L;
+	
+	private final Ruleset rules;
+	private final DuelTable duels;
+	private final int[] army;
+	private final int[] counts = new int[SoldierType.COUNT];
+	
+	/** Place values used to pack the numbers of each type left into a single number. */
+	private final int[] radix = new int[SoldierType.COUNT];
+	
+	/** Opposing orderings as ordered codes (see {@link ArmyCodec}). */
+	private final long[] opponents;
+	
+	private Objective objective;
+	
+	/** Best ordering found so far and its score. */
+	private int[] best;
+	private long bestScore;
+	
+	/** Searches not in use, kept between tasks so what's memoized by one is used by the next. */
+	private final List<Search> idle = new ArrayList<Search>();
+	
+	/** Number of nodes of the trie visited by the last search. */
+	public long nodes;
+	
+	/** Score of the best ordering (total of every pairing and lowest of any pairing). */
+	public long total, worst;
+	
+	/**
+	 * @param army Soldier types in the army to order.
+	 * @param opponent Soldier types in the opposing army (every ordering is tried).
+	 * @param rules Rules for the soldiers.
+	 * @throws IllegalArgumentException If the opposing army has more than {@link #MAX_OPPONENTS} orderings or
+	 * {@link ArmyCodec#MAX_LENGTH} soldiers.
+	 */
+	public OrderSolver(int[] army, int[] opponent, Ruleset rules) {
+		if(army.length == 0 || opponent.length == 0) throw new IllegalArgumentException("Both armies need soldiers.");
+		if(opponent.length > ArmyCodec.MAX_LENGTH) throw new IllegalArgumentException("Opposing army has too many soldiers.");
+		long orderings = Permutations.count(opponent);
+		if(orderings > MAX_OPPONENTS) throw new IllegalArgumentException("Opposing army has too many orderings (" + orderings + ").");
+		
+		this.rules = rules;
+		this.duels = rules.duels;
+		this.army = army.clone();
+		for(int i = 0; i < army.length; i++) counts[army[i]]++;
+		
+		long states = 1L;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			radix[t] = (int)states;
+			states *= counts[t] + 1;
+		}
+		if(states > Integer.MAX_VALUE / (Ruleset.MAX_HITPOINTS + 1)) throw new IllegalArgumentException("Army has too many soldiers.");
+		
+		opponents = new long[(int)orderings];
+		int[] o = opponent.clone();
+		Permutations.first(o);
+		int n = 0;
+		do {
+			opponents[n++] = ArmyCodec.encode(o);
+		} while(Permutations.next(o));
+	}
+	
+	/**
+	 * Gets the number of orderings of the opposing army.
+	 * @return
+	 */
+	public int opponents() {
+		return opponents.length;
+	}
+	
+	/**
+	 * Finds the best ordering of the army, storing its scores in {@link #total} and {@link #worst}.
+	 * @param objective What to choose the ordering for.
+	 * @param pool Pool to search on.
+	 * @return Best ordering (one of them if several are equally good).
+	 */
+	public int[] solve(Objective objective, ForkJoinPool pool) {
+		this.objective = objective;
+		best = null;
+		bestScore = -1L;
+		nodes = 0L;
+		
+		pool.invoke(new SearchTask(new int[0]));
+		idle.clear();
+		
+		// Score the ordering found from scratch
+		evaluate(best);
+		return best.clone();
+	}
+	
+	/**
+	 * Scores an ordering of the army against every ordering of the opposing army, storing the scores in {@link #total}
+	 * and {@link #worst}.
+	 * @param ordering Soldier types of the army in order.
+	 * @throws IllegalArgumentException If the ordering isn't of the army's soldiers.
+	 */
+	public void evaluate(int[] ordering) {
+		int[] left = counts.clone();
+		for(int i = 0; i < ordering.length; i++) {
+			if(ordering[i] < 0 || ordering[i] >= SoldierType.COUNT || left[ordering[i]]-- == 0) ordering = null;
+			if(ordering == null) break;
+		}
+		if(ordering == null || ordering.length != army.length) throw new IllegalArgumentException("Ordering is not of the army's soldiers.");
+		
+		Search search = new Search();
+		search.start(ordering);
+		total = search.total[army.length];
+		worst = search.worst[army.length];
+	}
+	
+	/**
+	 * Combines the total and worst scores of an ordering into one number to maximise.
+	 */
+	private long score(long total, long worst) {
+		long scale = 2L * opponents.length + 1L;
+		return objective == Objective.AVERAGE ? total * (WIN + 1) + worst : worst * scale + total;
+	}
+	
+	private synchronized Search borrow() {
+		return idle.isEmpty() ? new Search() : idle.remove(idle.size() - 1);
+	}
+	
+	private synchronized long bestScore() {
+		return bestScore;
+	}
+	
+	private synchronized void offer(int[] ordering, long score, long visited) {
+		nodes += visited;
+		if(ordering != null && score > bestScore) {
+			best = ordering.clone();
+			bestScore = score;
+		}
+	}
+	
+	/**
+	 * Fork-join task that searches every ordering starting with a fixed run of soldiers.
+	 * @author luke
+	 *
+	 */
+	private class SearchTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] prefix;
+		
+		public SearchTask(int[] prefix) {
+			this.prefix = prefix;
+		}
+		
+		@Override
+		protected void compute() {
+			int[] left = counts.clone();
+			for(int i = 0; i < prefix.length; i++) left[prefix[i]]--;
+			
+			if(prefix.length < SPLIT_DEPTH && prefix.length < army.length - 1) {
+				List<SearchTask> tasks = new ArrayList<SearchTask>();
+				for(int t = 0; t < SoldierType.COUNT; t++) {
+					if(left[t] == 0) continue;
+					int[] next = new int[prefix.length + 1];
+					System.arraycopy(prefix, 0, next, 0, prefix.length);
+					next[prefix.length] = t;
+					tasks.add(new SearchTask(next));
+				}
+				invokeAll(tasks);
+				return;
+			}
+			
+			Search search = borrow();
+			search.start(prefix);
+			search.search(prefix.length);
+			offer(search.found, search.foundScore, search.visited);
+			synchronized(OrderSolver.this) {
+				idle.add(search);
+			}
+		}
+	}
+	
+	/**
+	 * State of one depth-first search, owned by one thread.
+	 * @author luke
+	 *
+	 */
+	private class Search {
+		
+		/** Soldiers sent so far. */
+		private final int[] sent = new int[army.length];
+		private final int[] left = counts.clone();
+		private int packedLeft;
+		private int soldiersLeft;
+		
+		/** What's left of each opposing ordering after each number of soldiers sent, or {@link #DECIDED}. */
+		private final long[][] rest = new long[army.length + 1][];
+		
+		/** Hitpoints of the front opposing soldier after each number of soldiers sent, or the score if decided. */
+		private final int[][] hp = new int[army.length + 1][];
+		
+		/** Total and lowest score of decided pairings after each number of soldiers sent. */
+		private final long[] total = new long[army.length + 1];
+		private final int[] worst = new int[army.length + 1];
+		
+		/** Number of undecided pairings after each number of soldiers sent. */
+		private final int[] undecided = new int[army.length + 1];
+		
+		/**
+		 * Best score of the soldiers left against each remainder of an opposing ordering, in an open addressing table
+		 * keyed by the remainder (never {@link ArmyCodec#EMPTY}, which marks a free slot) and the packed soldiers left
+		 * and hitpoints of the front opposing soldier.
+		 */
+		private long[] memoRest = new long[INITIAL_MEMO];
+		private int[] memoKey = new int[INITIAL_MEMO];
+		private byte[] memoScore = new byte[INITIAL_MEMO];
+		private int memoSize;
+		
+		/** What's left of the opposing ordering after the last call to {@link #send(int, long, int)}. */
+		private long sendRest;
+		private int sendHp;
+		
+		private int[] found;
+		private long foundScore = -1L;
+		private long visited;
+		
+		public Search() {
+			for(int d = 0; d <= army.length; d++) {
+				rest[d] = new long[opponents.length];
+				hp[d] = new int[opponents.length];
+			}
+		}
+		
+		/**
+		 * Sets up the search with the first soldiers already sent (the memo is kept from earlier searches).
+		 */
+		public void start(int[] prefix) {
+			packedLeft = 0;
+			soldiersLeft = army.length;
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				left[t] = counts[t];
+				packedLeft += left[t] * radix[t];
+			}
+			found = null;
+			foundScore = -1L;
+			visited = 0L;
+			
+			for(int i = 0; i < opponents.length; i++) {
+				rest[0][i] = opponents[i];
+				hp[0][i] = rules.hitpoints(ArmyCodec.get(opponents[i], 0));
+			}
+			total[0] = 0L;
+			worst[0] = WIN;
+			undecided[0] = opponents.length;
+			for(int d = 0; d < prefix.length; d++) advance(d, prefix[d]);
+		}
+		
+		/**
+		 * Sends the next soldier against every opposing ordering still undecided.
+		 * @param depth Number of soldiers already sent.
+		 * @param type Type of soldier to send.
+		 */
+		private void advance(int depth, int type) {
+			sent[depth] = type;
+			left[type]--;
+			packedLeft -= radix[type];
+			soldiersLeft--;
+			boolean last = packedLeft == 0;
+			
+			long[] fromRest = rest[depth], toRest = rest[depth + 1];
+			int[] fromHp = hp[depth], toHp = hp[depth + 1];
+			long sum = total[depth];
+			int low = worst[depth];
+			int open = 0;
+			for(int i = 0; i < opponents.length; i++) {
+				if(fromRest[i] == DECIDED) {
+					toRest[i] = DECIDED;
+					toHp[i] = fromHp[i];
+					continue;
+				}
+				
+				int score = send(type, fromRest[i], fromHp[i], last);
+				if(score >= 0) {
+					toRest[i] = DECIDED;
+					toHp[i] = score;
+					sum += score;
+					if(score < low) low = score;
+				}
+				else {
+					toRest[i] = sendRest;
+					toHp[i] = sendHp;
+					open++;
+				}
+			}
+			total[depth + 1] = sum;
+			undecided[depth + 1] = open;
+			worst[depth + 1] = low;
+		}
+		
+		private void retreat(int type) {
+			left[type]++;
+			packedLeft += radix[type];
+			soldiersLeft++;
+		}
+		
+		/**
+		 * Searches every ordering of the soldiers left.
+		 * @param depth Number of soldiers sent.
+		 */
+		public void search(int depth) {
+			visited++;
+			if(depth == army.length) {
+				long score = score(total[depth], worst[depth]);
+				if(score > foundScore && score > bestScore()) {
+					found = sent.clone();
+					foundScore = score;
+				}
+				return;
+			}
+			
+			// Bound each branch and try the most promising first
+			long[] bounds = new long[SoldierType.COUNT];
+			int branches = 0;
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				bounds[t] = left[t] > 0 ? bound(depth, t, Math.max(foundScore, bestScore())) : -1L;
+				if(bounds[t] >= 0L) branches++;
+			}
+			
+			for(; branches > 0; branches--) {
+				int type = 0;
+				for(int t = 1; t < SoldierType.COUNT; t++) {
+					if(bounds[t] > bounds[type]) type = t;
+				}
+				long bound = bounds[type];
+				bounds[type] = -1L;
+				if(bound <= Math.max(foundScore, bestScore())) return;
+				
+				advance(depth, type);
+				search(depth + 1);
+				retreat(type);
+			}
+		}
+		
+		/**
+		 * Gets the most a branch could score if every undecided pairing went as well as it possibly could.
+		 * @param depth Number of soldiers sent.
+		 * @param type Type of the next soldier.
+		 * @param target Score the branch has to beat.
+		 * @return Bound or -1 if it can't beat the target.
+		 */
+		private long bound(int depth, int type, long target) {
+			long[] fromRest = rest[depth];
+			int[] fromHp = hp[depth];
+			left[type]--;
+			packedLeft -= radix[type];
+			soldiersLeft--;
+			boolean last = packedLeft == 0;
+			
+			long sum = total[depth];
+			int low = worst[depth];
+			int open = undecided[depth];
+			for(int i = 0; i < opponents.length && open > 0; i++) {
+				if(fromRest[i] == DECIDED) continue;
+				
+				int score = send(type, fromRest[i], fromHp[i], last);
+				if(score < 0) score = best(sendRest, sendHp);
+				sum += score;
+				if(score < low) low = score;
+				
+				// Give up as soon as the pairings left can't lift the branch past the target
+				if(--open > 0 && score < WIN && score(sum + (long)open * WIN, low) <= target) break;
+			}
+			
+			retreat(type);
+			if(open > 0) return -1L;
+			long bound = score(sum, low);
+			return bound > target ? bound : -1L;
+		}
+		
+		/**
+		 * Gets the best the soldiers left could score against what's left of one opposing ordering.
+		 */
+		private int best(long opponent, int opponentHp) {
+			if(soldiersLeft > LOOKAHEAD) return WIN;
+			
+			int key = packedLeft * (Ruleset.MAX_HITPOINTS + 1) + opponentHp;
+			int mask = memoRest.length - 1;
+			int slot = ArmyCodec.hash(opponent * 0x9E3779B97F4A7C15L ^ key) & mask;
+			while(memoRest[slot] != ArmyCodec.EMPTY) {
+				if(memoRest[slot] == opponent && memoKey[slot] == key) return memoScore[slot];
+				slot = (slot + 1) & mask;
+			}
+			
+			int score = LOSS;
+			for(int t = 0; t < SoldierType.COUNT && score < WIN; t++) {
+				if(left[t] == 0) continue;
+				
+				left[t]--;
+				packedLeft -= radix[t];
+				soldiersLeft--;
+				int s = send(t, opponent, opponentHp, packedLeft == 0);
+				if(s < 0) s = best(sendRest, sendHp);
+				left[t]++;
+				packedLeft += radix[t];
+				soldiersLeft++;
+				if(s > score) score = s;
+			}
+			
+			remember(opponent, key, score);
+			return score;
+		}
+		
+		private void remember(long opponent, int key, int score) {
+			if((memoSize + 1) * 4L > memoRest.length * 3L && memoRest.length == MAX_MEMO) {
+				Arrays.fill(memoRest, ArmyCodec.EMPTY);
+				memoSize = 0;
+			}
+			else if((memoSize + 1) * 4L > memoRest.length * 3L) {
+				long[] oldRest = memoRest;
+				int[] oldKey = memoKey;
+				byte[] oldScore = memoScore;
+				memoRest = new long[oldRest.length * 2];
+				memoKey = new int[oldRest.length * 2];
+				memoScore = new byte[oldRest.length * 2];
+				memoSize = 0;
+				for(int i = 0; i < oldRest.length; i++) {
+					if(oldRest[i] != ArmyCodec.EMPTY) remember(oldRest[i], oldKey[i], oldScore[i]);
+				}
+			}
+			
+			int mask = memoRest.length - 1;
+			int slot = ArmyCodec.hash(opponent * 0x9E3779B97F4A7C15L ^ key) & mask;
+			while(memoRest[slot] != ArmyCodec.EMPTY) slot = (slot + 1) & mask;
+			memoRest[slot] = opponent;
+			memoKey[slot] = key;
+			memoScore[slot] = (byte)score;
+			memoSize++;
+		}
+		
+		/**
+		 * Fights one soldier against what's left of an opposing ordering until it dies or the opposing ordering runs out.
+		 * @param type Type of soldier sent.
+		 * @param opponent What's left of the opposing ordering.
+		 * @param opponentHp Hitpoints of the front opposing soldier.
+		 * @param last {@code true} if this is the last soldier.
+		 * @return Score of the pairing if it is decided; otherwise -1 with what's left of the opposing ordering in
+		 * {@link #sendRest} and {@link #sendHp}.
+		 */
+		private int send(int type, long opponent, int opponentHp, boolean last) {
+			int soldierHp = rules.hitpoints(type);
+			while(true) {
+				int other = ArmyCodec.get(opponent, 0);
+				int duel = duels.index(type, other, soldierHp, opponentHp);
+				if(duels.winner(duel) == TunnelState.Open) {
+					throw new IllegalStateException("Soldiers of types " + type + " and " + other + " can't hurt each other.");
+				}
+				soldierHp = duels.westHp(duel);
+				opponentHp = duels.eastHp(duel);
+				
+				if(opponentHp == 0) {
+					opponent >>>= ArmyCodec.BITS_PER_SOLDIER;
+					if(opponent == ArmyCodec.EMPTY) return soldierHp > 0 || !last ? WIN : DRAW;
+					opponentHp = rules.hitpoints(ArmyCodec.get(opponent, 0));
+				}
+				if(soldierHp == 0) {
+					if(last) return LOSS;
+					sendRest = opponent;
+					sendHp = opponentHp;
+					return -1;
+				}
+			}
+		}
+	}
+}
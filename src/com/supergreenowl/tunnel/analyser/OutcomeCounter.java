@@ -0,0 +1,154 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.math.BigInteger;
+
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Counts how many pairings of orderings of two armies end in each outcome without fighting them one by one.
+ * <p>
+ * The counter walks the states of the fight (see {@link FightWalk}) carrying the number of ways of reaching each one.
+ * When a side runs out every ordering of the soldiers the winner has left ends the same way, so the ways are
+ * multiplied by that multinomial coefficient and added to the outcome. Numbers of ways are carried as longs and only
+ * switch to big integers once they overflow, which saves memory as there is one for every state being held.
+ * <p>
+ * The number of states grows with the product of (number of soldiers of each type + 1) for both
+ * armies so armies with only a few types of soldier can be very large.
+ * @author luke
+ *
+ */
+public class OutcomeCounter extends FightWalk<Number> {
+	
+	/** Biggest number whose factorial fits in a long. */
+	private static final int LONG_FACTORIALS = 20;
+	
+	private final int[] westArmy, eastArmy;
+	
+	private final long[] smallFactorial;
+	private final BigInteger[] factorial;
+	
+	private int states;
+	
+	/** Numbers of ways of each outcome so far, each a {@link Long} until it overflows and a {@link BigInteger} after. */
+	private Number westWays, eastWays, drawWays;
+	
+	public BigInteger west, east, draws;
+	
+	/**
+	 * Creates a counter for two armies.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param rules Rules for the soldiers.
+	 */
+	public OutcomeCounter(int[] west, int[] east, Ruleset rules) {
+		super(rules);
+		this.westArmy = west;
+		this.eastArmy = east;
+		
+		int n = Math.max(west.length, east.length);
+		factorial = new BigInteger[n + 1];
+		factorial[0] = BigInteger.ONE;
+		for(int i = 1; i <= n; i++) factorial[i] = factorial[i - 1].multiply(BigInteger.valueOf(i));
+		
+		smallFactorial = new long[Math.min(n, LONG_FACTORIALS) + 1];
+		for(int i = 0; i < smallFactorial.length; i++) smallFactorial[i] = factorial[i].longValue();
+	}
+	
+	/**
+	 * Counts the outcomes of every ordering of the west army against every ordering of the east army
+	 * and stores them in {@link #west}, {@link #east} and {@link #draws}.
+	 * @throws IllegalArgumentException If the armies have too many states to walk.
+	 * @throws IllegalStateException If some pairing never ends because neither soldier in a duel can hurt the other.
+	 */
+	public void count() {
+		westWays = eastWays = drawWays = Long.valueOf(0L);
+		states = (int)walk(westArmy, eastArmy, Long.valueOf(1L));
+		west = big(westWays);
+		east = big(eastWays);
+		draws = big(drawWays);
+	}
+	
+	/**
+	 * Gets the number of states passed through by the last count.
+	 * @return
+	 */
+	public int states() {
+		return states;
+	}
+	
+	@Override
+	protected void choose(int side) {
+		// Every soldier left can be sent next
+	}
+	
+	@Override
+	protected Number send(Number ways, int side, int type) {
+		return ways;
+	}
+	
+	@Override
+	protected Number add(Number total, Number ways) {
+		return total == null ? ways : sum(total, ways);
+	}
+	
+	/**
+	 * Adds to the count of an outcome once a side has run out of soldiers:
+	 * every ordering of the soldiers the winner has left ends the same way.
+	 * @param winner Winner of the fight.
+	 * @param ways Number of ways of reaching the end of the fight.
+	 */
+	@Override
+	protected void end(TunnelState winner, Number ways) {
+		if(winner == TunnelState.Draw) drawWays = sum(drawWays, ways);
+		else if(winner == TunnelState.West) westWays = sum(westWays, product(ways, orderings(WEST)));
+		else eastWays = sum(eastWays, product(ways, orderings(EAST)));
+	}
+	
+	/**
+	 * Gets the number of orderings of the soldiers one side has left.
+	 * @param side
+	 * @return
+	 */
+	private Number orderings(int side) {
+		int n = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) n += left[side][t];
+		
+		if(n <= LONG_FACTORIALS) {
+			long divisor = 1L;
+			for(int t = 0; t < SoldierType.COUNT; t++) divisor *= smallFactorial[left[side][t]];
+			return Long.valueOf(smallFactorial[n] / divisor);
+		}
+		
+		BigInteger divisor = BigInteger.ONE;
+		for(int t = 0; t < SoldierType.COUNT; t++) divisor = divisor.multiply(factorial[left[side][t]]);
+		return factorial[n].divide(divisor);
+	}
+	
+	/**
+	 * Adds two numbers of ways, as a long unless that would overflow.
+	 */
+	private static Number sum(Number a, Number b) {
+		if(a instanceof Long && b instanceof Long) {
+			long x = a.longValue(), y = b.longValue();
+			if(x <= Long.MAX_VALUE - y) return Long.valueOf(x + y);
+		}
+		return big(a).add(big(b));
+	}
+	
+	/**
+	 * Multiplies two numbers of ways, as a long unless that would overflow.
+	 */
+	private static Number product(Number a, Number b) {
+		if(a instanceof Long && b instanceof Long) {
+			long x = a.longValue(), y = b.longValue();
+			if(x == 0L || y <= Long.MAX_VALUE / x) return Long.valueOf(x * y);
+		}
+		return big(a).multiply(big(b));
+	}
+	
+	private static BigInteger big(Number ways) {
+		return ways instanceof BigInteger ? (BigInteger)ways : BigInteger.valueOf(ways.longValue());
+	}
+}
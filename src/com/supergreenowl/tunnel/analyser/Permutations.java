@@ -0,0 +1,205 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.util.Arrays;
+
+import com.supergreenowl.tunnel.model.SoldierType;
+
+/**
+ * Steps through the unique orderings of an army (a multiset of soldier types) in place.
+ * Sort the array with {@link #first(int[])} and then call {@link #next(int[])} until it returns {@code false};
+ * every distinct ordering is visited exactly once in lexicographic order without allocating anything.
+ * @author luke
+ *
+ */
+public class Permutations {
+	
+	/**
+	 * Rearranges an army into its first (lexicographically smallest) ordering.
+	 * @param army Soldier types.
+	 */
+	public static void first(int[] army) {
+		first(army, 0);
+	}
+	
+	/**
+	 * Rearranges the soldiers of an army from a position on into their first ordering, leaving those in front of it alone.
+	 * @param army Soldier types.
+	 * @param from Position of the first soldier to rearrange.
+	 */
+	public static void first(int[] army, int from) {
+		Arrays.sort(army, from, army.length);
+	}
+	
+	/**
+	 * Rearranges an army into the next ordering after its current one.
+	 * @param army Soldier types.
+	 * @return {@code false} if the army was already in its last ordering (it is then back in its first ordering).
+	 */
+	public static boolean next(int[] army) {
+		return next(army, 0);
+	}
+	
+	/**
+	 * Rearranges the soldiers of an army from a position on into their next ordering, leaving those in front of it alone.
+	 * @param army Soldier types.
+	 * @param from Position of the first soldier to rearrange.
+	 * @return {@code false} if those soldiers were already in their last ordering (they are then back in their first ordering).
+	 */
+	public static boolean next(int[] army, int from) {
+		
+		// Find the rightmost soldier that is smaller than the one after it
+		int i = army.length - 2;
+		while(i >= from && army[i] >= army[i + 1]) i--;
+		
+		if(i < from) {
+			reverse(army, from, army.length - 1);
+			return false;
+		}
+		
+		// Swap it with the rightmost soldier that is bigger than it and put the tail back in order
+		int j = army.length - 1;
+		while(army[j] <= army[i]) j--;
+		
+		int t = army[i];
+		army[i] = army[j];
+		army[j] = t;
+		
+		reverse(army, i + 1, army.length - 1);
+		return true;
+	}
+	
+	/**
+	 * Counts the unique orderings of an army: n! / (n1! n2! ...) where n1, n2, ... are the numbers of each soldier type.
+	 * @param army Soldier types.
+	 * @return Number of orderings or {@link Long#MAX_VALUE} if there are too many to count in a long.
+	 */
+	public static long count(int[] army) {
+		return count(army, 0);
+	}
+	
+	/**
+	 * Counts the unique orderings of the soldiers of an army from a position on.
+	 * @param army Soldier types.
+	 * @param from Position of the first soldier to count.
+	 * @return Number of orderings or {@link Long#MAX_VALUE} if there are too many to count in a long.
+	 */
+	public static long count(int[] army, int from) {
+		int[] counts = new int[SoldierType.COUNT];
+		for(int i = from; i < army.length; i++) counts[army[i]]++;
+		return orderings(counts);
+	}
+	
+	/**
+	 * Counts the unique orderings of a number of soldiers of each type: n! / (n1! n2! ...).
+	 * @param counts Number of soldiers of each type.
+	 * @return Number of orderings or {@link Long#MAX_VALUE} if there are too many to count in a long.
+	 */
+	public static long orderings(int[] counts) {
+		
+		// Multiply binomial coefficients one type at a time so the result is always a whole number
+		long result = 1L;
+		int n = 0;
+		for(int t = 0; t < counts.length; t++) {
+			for(int k = 1; k <= counts[t]; k++) {
+				n++;
+				long g = gcd(n, k);
+				long a = n / g;
+				long b = k / g;
+				if(result / b > Long.MAX_VALUE / a) return Long.MAX_VALUE;
+				result = result / b * a;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Gets the position of an ordering in the lexicographic order that {@link #next(int[])} steps through,
+	 * so every unique ordering of an army has its own index from 0 to {@link #count(int[])} - 1.
+	 * @param army Soldier types in order (not changed).
+	 * @return Rank of the ordering.
+	 * @throws IllegalArgumentException If the army has too many orderings to rank in a long.
+	 */
+	public static long rank(int[] army) {
+		int[] counts = new int[SoldierType.COUNT];
+		for(int i = 0; i < army.length; i++) counts[army[i]]++;
+		
+		long orderings = orderings(counts);
+		if(orderings == Long.MAX_VALUE) throw new IllegalArgumentException("Army has too many orderings to rank.");
+		
+		long rank = 0L;
+		for(int i = 0, n = army.length; n > 0; i++, n--) {
+			// Every ordering that puts a smaller type here comes first
+			for(int t = 0; t < army[i]; t++) {
+				if(counts[t] > 0) rank += starting(orderings, counts[t], n);
+			}
+			orderings = starting(orderings, counts[army[i]], n);
+			counts[army[i]]--;
+		}
+		return rank;
+	}
+	
+	/**
+	 * Rearranges an army into the ordering with a rank (the inverse of {@link #rank(int[])}).
+	 * Starting from {@code unrank} and calling {@link #next(int[])} steps through a range of ranks, so a range can be
+	 * handed to each thread or process without them having to agree on anything else.
+	 * @param army Soldier types (rearranged).
+	 * @param rank Rank of the ordering, from 0 to {@link #count(int[])} - 1.
+	 * @throws IllegalArgumentException If there is no ordering with the rank.
+	 */
+	public static void unrank(int[] army, long rank) {
+		int[] counts = new int[SoldierType.COUNT];
+		for(int i = 0; i < army.length; i++) counts[army[i]]++;
+		
+		long orderings = orderings(counts);
+		if(rank < 0L || rank >= orderings || orderings == Long.MAX_VALUE) {
+			throw new IllegalArgumentException("Army has no ordering with rank " + rank + ".");
+		}
+		
+		for(int i = 0, n = army.length; n > 0; i++, n--) {
+			int t = 0;
+			while(true) {
+				if(counts[t] > 0) {
+					long block = starting(orderings, counts[t], n);
+					if(rank < block) {
+						orderings = block;
+						break;
+					}
+					rank -= block;
+				}
+				t++;
+			}
+			army[i] = t;
+			counts[t]--;
+		}
+	}
+	
+	/**
+	 * Counts the orderings of some soldiers that start with a particular type: orderings * count / n.
+	 * @param orderings Number of orderings of the soldiers.
+	 * @param count Number of soldiers of the type.
+	 * @param n Number of soldiers.
+	 * @return
+	 */
+	private static long starting(long orderings, int count, int n) {
+		// Divide first so it can't overflow; n / g always divides orderings exactly
+		long g = gcd(count, n);
+		return orderings / (n / g) * (count / g);
+	}
+	
+	private static long gcd(long a, long b) {
+		while(b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+	
+	private static void reverse(int[] army, int from, int to) {
+		while(from < to) {
+			int t = army[from];
+			army[from++] = army[to];
+			army[to--] = t;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+
+import com.supergreenowl.tunnel.model.ArmyCodec;
+import com.supergreenowl.tunnel.model.Ruleset;
+
+/**
+ * Table of analysis results kept in a memory-mapped file so they survive from one run to the next.
+ * <p>
+ * The outcome counts of every ordering of one army against every ordering of the other only depend on how many
+ * soldiers of each type the armies have, so each army is packed into its counts code (see {@link ArmyCodec#counts(int[])}).
+ * A fight is the same from either end of the tunnel so each pair is stored once with the smaller packed army in
+ * the west and the counts are swapped when it is looked up the other way round.
+ * <p>
+ * The file is a header (which includes the rules the results were worked out with) followed by an open addressing
+ * hash table of fixed size slots, so lookups read a few longs straight out of the mapped file. When the table gets
+ * too full it is copied into a new file twice the size which then replaces the old one. The whole file is mapped as
+ * one buffer so the table can't grow past {@link #MAX_CAPACITY} slots.
+ * <p>
+ * The file is locked while it is open so that two analysers can't write to the same cache at once.
+ * @author luke
+ *
+ */
+public class ResultCache {
+	
+	/** Indices of the counts passed to and from the cache. */
+	public static final int WEST = 0, EAST = 1, DRAWS = 2;
+	
+	/** Identifies a cache file. */
+	private static final int MAGIC = 0x4b4e5243;
+	private static final int VERSION = 2;
+	
+	private static final int HEADER = 4096;
+	private static final int CAPACITY = 8;
+	private static final int SIZE = 12;
+	private static final int RULES = 16;
+	
+	/** Slot layout: west army, east army, west wins, east wins, draws. */
+	private static final int SLOT = 40;
+	
+	/** Set on the packed west army of a slot in use (packed armies never use the top bit). */
+	private static final long USED = Long.MIN_VALUE;
+	
+	private static final int INITIAL_CAPACITY = 1 << 16;
+	
+	/** Most slots a cache can have (the file must fit in a single mapped buffer). */
+	public static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER) / SLOT);
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private File file;
+	private RandomAccessFile raf;
+	private FileLock lock;
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private int size;
+	private final byte[] rules;
+	
+	/** Number of lookups that found a result since the cache was opened. */
+	public long hits;
+	
+	/** Number of lookups that found nothing since the cache was opened. */
+	public long misses;
+	
+	/**
+	 * Opens a cache file, creating it if it doesn't exist.
+	 * @param file Cache file.
+	 * @param rules Rules the cached results are for.
+	 * @throws IOException If the file could not be opened, is in use by another cache or is not a cache for these rules.
+	 */
+	public ResultCache(File file, Ruleset rules) throws IOException {
+		this.file = file;
+		
+		this.rules = rules.toString().getBytes(UTF8);
+		if(RULES + 4 + this.rules.length > HEADER) throw new IllegalArgumentException("Rules are too long to store in a cache.");
+		
+		if(file.exists() && file.length() > 0) open();
+		else create(file, INITIAL_CAPACITY);
+	}
+	
+	private void open() throws IOException {
+		raf = new RandomAccessFile(file, "rw");
+		lock(file);
+		if(raf.length() < HEADER || raf.length() > Integer.MAX_VALUE) {
+			raf.close();
+			throw new IOException(file + " is not a result cache.");
+		}
+		
+		buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		capacity = buffer.getInt(CAPACITY);
+		size = buffer.getInt(SIZE);
+		
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || Integer.bitCount(capacity) != 1
+				|| raf.length() != HEADER + (long)capacity * SLOT) {
+			raf.close();
+			throw new IOException(file + " is not a result cache.");
+		}
+		if(!sameRules()) {
+			raf.close();
+			throw new IOException(file + " holds results for different rules.");
+		}
+	}
+	
+	private boolean sameRules() {
+		if(buffer.getInt(RULES) != rules.length) return false;
+		for(int i = 0; i < rules.length; i++) {
+			if(buffer.get(RULES + 4 + i) != rules[i]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Creates an empty cache file and maps it in place of the current one.
+	 */
+	private void create(File target, int slots) throws IOException {
+		raf = new RandomAccessFile(target, "rw");
+		lock(target);
+		raf.setLength(0L);
+		raf.setLength(HEADER + (long)slots * SLOT);
+		buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(CAPACITY, slots);
+		buffer.putInt(SIZE, 0);
+		buffer.putInt(RULES, rules.length);
+		for(int i = 0; i < rules.length; i++) buffer.put(RULES + 4 + i, rules[i]);
+		
+		capacity = slots;
+		size = 0;
+	}
+	
+	/**
+	 * Locks the file that has just been opened so that no other cache can use it at the same time.
+	 * @throws IOException If the file is already locked (the file is closed first).
+	 */
+	private void lock(File target) throws IOException {
+		try {
+			lock = raf.getChannel().tryLock();
+		}
+		catch(OverlappingFileLockException e) {
+			lock = null;
+		}
+		if(lock == null) {
+			raf.close();
+			throw new IOException(target + " is in use by another result cache.");
+		}
+	}
+	
+	/**
+	 * Looks up the outcome counts of a pair of armies.
+	 * @param west Soldier types in the west army (order doesn't matter).
+	 * @param east Soldier types in the east army (order doesn't matter).
+	 * @param counts Array to put the counts in, indexed by {@link #WEST}, {@link #EAST} and {@link #DRAWS}.
+	 * @return {@code true} if the pair was found; {@code false} if it wasn't and {@code counts} is unchanged.
+	 */
+	public synchronized boolean get(int[] west, int[] east, long[] counts) {
+		long w = ArmyCodec.counts(west), e = ArmyCodec.counts(east);
+		if(w < 0L || e < 0L) {
+			misses++;
+			return false;
+		}
+		
+		boolean swap = w > e;
+		long slot = find(swap ? e : w, swap ? w : e);
+		if(slot < 0L || read(slot) == 0L) {
+			misses++;
+			return false;
+		}
+		
+		counts[swap ? EAST : WEST] = read(slot + 16);
+		counts[swap ? WEST : EAST] = read(slot + 24);
+		counts[DRAWS] = read(slot + 32);
+		hits++;
+		return true;
+	}
+	
+	/**
+	 * Stores the outcome counts of a pair of armies, replacing any already stored.
+	 * Pairs with too many soldiers of one type to pack are not stored.
+	 * @param west Soldier types in the west army (order doesn't matter).
+	 * @param east Soldier types in the east army (order doesn't matter).
+	 * @param westWins Number of pairs of orderings won by the west army.
+	 * @param eastWins Number of pairs of orderings won by the east army.
+	 * @param draws Number of pairs of orderings drawn.
+	 * @throws IOException If the cache had to grow and couldn't (the cache is left as it was).
+	 */
+	public synchronized void put(int[] west, int[] east, long westWins, long eastWins, long draws) throws IOException {
+		long w = ArmyCodec.counts(west), e = ArmyCodec.counts(east);
+		if(w < 0L || e < 0L) return;
+		
+		if(w > e) put(e, w, eastWins, westWins, draws);
+		else put(w, e, westWins, eastWins, draws);
+	}
+	
+	private void put(long w, long e, long westWins, long eastWins, long draws) throws IOException {
+		if((size + 1) * 4L > capacity * 3L) grow();
+		
+		long slot = find(w, e);
+		boolean added = read(slot) == 0L;
+		
+		// Write the counts before marking the slot as used
+		write(slot + 8, e);
+		write(slot + 16, westWins);
+		write(slot + 24, eastWins);
+		write(slot + 32, draws);
+		write(slot, w | USED);
+		
+		if(added) buffer.putInt(SIZE, ++size);
+	}
+	
+	/**
+	 * Finds the slot holding a pair or the empty slot where it would go.
+	 * @return Offset of the slot in the file or -1 if the table is full without the pair.
+	 */
+	private long find(long w, long e) {
+		int mask = capacity - 1;
+		int i = ArmyCodec.hash(w * 0x9E3779B97F4A7C15L ^ e) & mask;
+		for(int probes = 0; probes < capacity; probes++) {
+			long slot = HEADER + (long)i * SLOT;
+			long key = read(slot);
+			if(key == 0L || (key == (w | USED) && read(slot + 8) == e)) return slot;
+			i = (i + 1) & mask;
+		}
+		return -1L;
+	}
+	
+	private long read(long offset) {
+		return buffer.getLong((int)offset);
+	}
+	
+	private void write(long offset, long value) {
+		buffer.putLong((int)offset, value);
+	}
+	
+	/**
+	 * Copies every result into a new file with twice as many slots and swaps it in for the current file.
+	 */
+	private void grow() throws IOException {
+		if(capacity >= MAX_CAPACITY) {
+			throw new IOException(file + " is full: a result cache can't hold more than " + MAX_CAPACITY + " slots.");
+		}
+		
+		MappedByteBuffer old = buffer;
+		RandomAccessFile oldFile = raf;
+		FileLock oldLock = lock;
+		int oldCapacity = capacity, oldSize = size;
+		
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			create(temp, capacity * 2);
+			for(int i = 0; i < oldCapacity; i++) {
+				int slot = (int)(HEADER + (long)i * SLOT);
+				long key = old.getLong(slot);
+				if(key == 0L) continue;
+				put(key & ~USED, old.getLong(slot + 8), old.getLong(slot + 16), old.getLong(slot + 24), old.getLong(slot + 32));
+			}
+			buffer.force();
+			
+			// Replace the file while the old one is still locked so no other cache can open it in between
+			if(!temp.renameTo(file)) throw new IOException("Could not replace " + file + " with " + temp + ".");
+		}
+		catch(IOException e) {
+			// Go back to the old file
+			if(raf != oldFile) raf.close();
+			temp.delete();
+			buffer = old;
+			raf = oldFile;
+			lock = oldLock;
+			capacity = oldCapacity;
+			size = oldSize;
+			throw e;
+		}
+		oldFile.close();
+	}
+	
+	/**
+	 * Gets the number of pairs stored.
+	 * @return
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	
+	/**
+	 * Writes any changes out to the file and closes it.
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		buffer.force();
+		lock.release();
+		raf.close();
+	}
+}
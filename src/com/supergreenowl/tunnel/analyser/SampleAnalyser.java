@@ -0,0 +1,187 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Estimates how often each side wins by fighting random orderings of the two armies
+ * for armies with far too many orderings to fight them all.
+ * <p>
+ * Samples are drawn in chunks, each with its own random number generator seeded from the seed and the number of
+ * the chunk, so the estimates only depend on the seed and not on how many threads the chunks are spread over.
+ * Chunks are run in rounds; after each round the 95% Wilson score interval of each outcome is worked out and sampling
+ * stops once every interval is narrower than the tolerance.
+ * @author luke
+ *
+ */
+public class SampleAnalyser {
+	
+	/** z value for a 95% confidence interval. */
+	public static final double Z = 1.96;
+	
+	/** Number of samples drawn with one random number generator (by one fork-join task). */
+	private static final int SAMPLES_PER_CHUNK = 4096;
+	
+	/** Number of chunks drawn between checks of the confidence intervals. */
+	private static final int CHUNKS_PER_ROUND = 16;
+	
+	private static final int WEST = 0;
+	private static final int EAST = 1;
+	private static final int DRAWS = 2;
+	
+	/** Multiplier used to spread chunk numbers over the seeds of their random number generators. */
+	private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * Fork-join task that draws the samples of a range of chunks.
+	 * @author luke
+	 *
+	 */
+	private class SampleTask extends RecursiveTask<long[]> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long from;
+		private final long to;
+		
+		public SampleTask(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected long[] compute() {
+			if(to - from == 1) return sample(from);
+			
+			long mid = (from + to) >>> 1;
+			SampleTask right = new SampleTask(mid, to);
+			right.fork();
+			long[] counts = new SampleTask(from, mid).compute();
+			long[] r = right.join();
+			for(int i = 0; i < counts.length; i++) counts[i] += r[i];
+			return counts;
+		}
+	}
+	
+	private final Ruleset rules;
+	private int[] westArmy;
+	private int[] eastArmy;
+	private long seed;
+	private long maxSamples;
+	
+	public long west, east, draws, samples;
+	
+	public SampleAnalyser(Ruleset rules) {
+		this.rules = rules;
+	}
+	
+	/**
+	 * Fights random orderings of the two armies and stores the number of each outcome in {@link #west}, {@link #east}
+	 * and {@link #draws}.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param maxSamples Most fights to sample.
+	 * @param tolerance Width below which the confidence interval of every outcome has to be before sampling stops
+	 * early (a proportion, e.g. 0.01 for one percentage point) or 0 to always draw {@code maxSamples} samples.
+	 * @param seed Seed for the random orderings.
+	 * @param pool Pool to sample on.
+	 */
+	public void sample(int[] west, int[] east, long maxSamples, double tolerance, long seed, ForkJoinPool pool) {
+		this.westArmy = west.clone();
+		this.eastArmy = east.clone();
+		this.seed = seed;
+		this.maxSamples = maxSamples;
+		this.west = this.east = draws = samples = 0L;
+		
+		long chunks = (maxSamples + SAMPLES_PER_CHUNK - 1) / SAMPLES_PER_CHUNK;
+		for(long chunk = 0; chunk < chunks; chunk += CHUNKS_PER_ROUND) {
+			long[] counts = pool.invoke(new SampleTask(chunk, Math.min(chunk + CHUNKS_PER_ROUND, chunks)));
+			this.west += counts[WEST];
+			this.east += counts[EAST];
+			draws += counts[DRAWS];
+			samples = this.west + this.east + draws;
+			
+			if(tolerance > 0d && width(this.west) < tolerance && width(this.east) < tolerance && width(draws) < tolerance) break;
+		}
+	}
+	
+	/**
+	 * Gets the width of the confidence interval of the proportion of samples with an outcome.
+	 * @param count Number of samples with the outcome.
+	 * @return
+	 */
+	public double width(long count) {
+		return upper(count, samples) - lower(count, samples);
+	}
+	
+	/**
+	 * Gets the lower bound of the 95% Wilson score interval of a proportion.
+	 * @param count Number of samples with an outcome.
+	 * @param samples Number of samples.
+	 * @return
+	 */
+	public static double lower(long count, long samples) {
+		return wilson(count, samples, -1d);
+	}
+	
+	/**
+	 * Gets the upper bound of the 95% Wilson score interval of a proportion.
+	 * @param count Number of samples with an outcome.
+	 * @param samples Number of samples.
+	 * @return
+	 */
+	public static double upper(long count, long samples) {
+		return wilson(count, samples, 1d);
+	}
+	
+	private static double wilson(long count, long samples, double sign) {
+		if(samples == 0) return sign < 0d ? 0d : 1d;
+		
+		double n = samples;
+		double p = count / n;
+		double z2 = Z * Z;
+		double centre = p + z2 / (2d * n);
+		double spread = Z * Math.sqrt(p * (1d - p) / n + z2 / (4d * n * n));
+		return Math.min(1d, Math.max(0d, (centre + sign * spread) / (1d + z2 / n)));
+	}
+	
+	/**
+	 * Draws the samples of one chunk.
+	 * @param chunk Number of the chunk.
+	 * @return Counts of each outcome.
+	 */
+	private long[] sample(long chunk) {
+		Random random = new Random(seed + chunk * SEED_MIX);
+		int[] w = westArmy.clone();
+		int[] e = eastArmy.clone();
+		long[] counts = new long[DRAWS + 1];
+		
+		long n = Math.min(SAMPLES_PER_CHUNK, maxSamples - chunk * SAMPLES_PER_CHUNK);
+		for(long i = 0; i < n; i++) {
+			shuffle(w, random);
+			shuffle(e, random);
+			
+			TunnelState outcome = CombatAnalyser.fight(w, e, rules);
+			if(outcome == TunnelState.West) counts[WEST]++;
+			else if(outcome == TunnelState.East) counts[EAST]++;
+			else counts[DRAWS]++;
+		}
+		return counts;
+	}
+	
+	/**
+	 * Puts an army in a random order (Fisher-Yates).
+	 */
+	private static void shuffle(int[] army, Random random) {
+		for(int i = army.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = army[i];
+			army[i] = army[j];
+			army[j] = t;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.supergreenowl.tunnel.analyser;
+
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.Player;
+import com.supergreenowl.tunnel.controller.Snapshot;
+import com.supergreenowl.tunnel.model.Direction;
+
+/**
+ * Player that dispatches soldiers at fixed game times.
+ * Each soldier is dispatched on the first tick at or after its time. If the engine auto-dispatched a soldier of
+ * the same type first then there are none of that type left and the scheduled dispatch does nothing, just as
+ * it would for any other player.
+ * @author luke
+ *
+ */
+public class ScheduledPlayer extends Player {
+	
+	private final int[] types;
+	private final float[] times;
+	private int next;
+	
+	/**
+	 * Creates a player that dispatches the soldiers in a schedule (and has no others).
+	 * @param direction Direction from which the player sends soldiers.
+	 * @param types Types of the soldiers in the order they are dispatched.
+	 * @param times Game time at which each soldier is dispatched (s, in ascending order).
+	 */
+	public ScheduledPlayer(Direction direction, int[] types, float[] times) {
+		super(false, direction);
+		
+		if(types.length != times.length) throw new IllegalArgumentException("Every soldier must have a dispatch time.");
+		for(int i = 1; i < times.length; i++) {
+			if(times[i] < times[i - 1]) throw new IllegalArgumentException("Dispatch times must be in ascending order.");
+		}
+		
+		this.types = types.clone();
+		this.times = times.clone();
+		
+		for(int i = 0; i < types.length; i++) {
+			if(selectedSoldiers[types[i]] == NONE_SELECTED) selectedSoldiers[types[i]] = 0;
+			selectedSoldiers[types[i]]++;
+		}
+	}
+	
+	@Override
+	public void setEngine(Engine engine) {
+		super.setEngine(engine);
+		next = 0;
+	}
+	
+	@Override
+	public void play(float gameTime) {
+		while(next < types.length && times[next] <= gameTime) {
+			engine.dispatchSoldier(direction, types[next++]);
+		}
+	}
+	
+	@Override
+	public float nextPlayTime() {
+		return next < times.length ? times[next] : Float.POSITIVE_INFINITY;
+	}
+	
+	@Override
+	public void write(Snapshot snapshot) {
+		super.write(snapshot);
+		snapshot.putInt(next);
+	}
+	
+	@Override
+	public void read(Snapshot snapshot) {
+		super.read(snapshot);
+		next = snapshot.getInt();
+	}
+}
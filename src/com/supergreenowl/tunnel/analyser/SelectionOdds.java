@@ -0,0 +1,202 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.supergreenowl.tunnel.ai.SelectionStrategy;
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.controller.Player;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.utils.Random;
+
+/**
+ * Exact chance of each army that a {@link SelectionStrategy} can pick.
+ * <p>
+ * Strategies make their random choices with {@link Random#nextInt(int)}, so the strategy is run again and again with
+ * a generator that plays back a sequence of choices, working through every sequence like an odometer. Each run ends
+ * with an army whose chance is the product of the chances of the choices that led to it.
+ * <p>
+ * A strategy that draws again until it gets a number it likes (like {@link com.supergreenowl.tunnel.ai.SnowySelectionStrategy})
+ * has sequences of any length, so sequences longer than {@link #MAX_DRAWS} are given up on and the chances of the rest
+ * are scaled up to make up for them. The chances of what such a loop finally picks don't depend on how many times it
+ * drew, so the scaled chances are still exact.
+ * @author luke
+ *
+ */
+public class SelectionOdds {
+	
+	/** Most numbers drawn by one run of a strategy before it is given up on. */
+	public static final int MAX_DRAWS = 32;
+	
+	/**
+	 * Thrown by {@link Choices} to give up on a sequence that is too long.
+	 */
+	private static class TooLong extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+	}
+	
+	/**
+	 * Generator that plays back a sequence of choices and then chooses 0 for anything else it's asked for.
+	 * @author luke
+	 *
+	 */
+	private static class Choices extends java.util.Random {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** Number chosen and number it was chosen from for each draw in the sequence. */
+		private final IntArray chosen = new IntArray(), limits = new IntArray();
+		
+		/** Number of draws made in the current run. */
+		private int drawn;
+		
+		@Override
+		public int nextInt(int n) {
+			if(n <= 0) throw new IllegalArgumentException("n must be positive");
+			
+			if(drawn < chosen.size) {
+				if(limits.get(drawn) != n) throw new IllegalStateException("Selection strategy doesn't repeat itself.");
+				return chosen.get(drawn++);
+			}
+			if(drawn == MAX_DRAWS) throw new TooLong();
+			
+			chosen.add(0);
+			limits.add(n);
+			drawn++;
+			return 0;
+		}
+		
+		/**
+		 * Gets the chance of the sequence played back in the current run.
+		 */
+		public double odds() {
+			double odds = 1d;
+			for(int i = 0; i < drawn; i++) odds /= limits.get(i);
+			return odds;
+		}
+		
+		/**
+		 * Moves on to the next sequence after the current run.
+		 * @return {@code false} if every sequence has been played.
+		 */
+		public boolean next() {
+			chosen.truncate(drawn);
+			limits.truncate(drawn);
+			drawn = 0;
+			
+			while(chosen.size > 0 && chosen.peek() + 1 == limits.peek()) {
+				chosen.pop();
+				limits.pop();
+			}
+			if(chosen.size == 0) return false;
+			
+			chosen.set(chosen.size - 1, chosen.peek() + 1);
+			return true;
+		}
+	}
+	
+	/** Numbers of each soldier type in each army that can be picked. */
+	private final List<int[]> counts = new ArrayList<int[]>();
+	
+	/** Chance of each army being picked. */
+	private final List<Double> odds = new ArrayList<Double>();
+	
+	/** Chance that was given up on in sequences longer than {@link #MAX_DRAWS} (before scaling). */
+	public double abandoned;
+	
+	/**
+	 * Works out the chance of each army picked by a strategy.
+	 * @param strategy Selection strategy.
+	 * @param coins Coins to spend.
+	 * @param available Soldier types that can be picked.
+	 * @throws IllegalStateException If the strategy's choices depend on something other than the numbers it draws.
+	 */
+	public SelectionOdds(SelectionStrategy strategy, int coins, SoldierAvailability available) {
+		Choices choices = new Choices();
+		java.util.Random old = Random.setGenerator(choices);
+		try {
+			do {
+				Player player = new Player(false, Direction.West);
+				try {
+					strategy.select(player, coins, available);
+				}
+				catch(TooLong e) {
+					abandoned += choices.odds();
+					continue;
+				}
+				add(player.selectedSoldiers, choices.odds());
+			}
+			while(choices.next());
+		}
+		finally {
+			Random.setGenerator(old);
+		}
+		
+		if(abandoned > 0d) {
+			for(int i = 0; i < odds.size(); i++) odds.set(i, odds.get(i) / (1d - abandoned));
+		}
+	}
+	
+	/**
+	 * Creates odds for an army that is always picked.
+	 * @param army Soldier types in the army (order doesn't matter).
+	 */
+	public SelectionOdds(int[] army) {
+		int[] selected = new int[SoldierType.COUNT];
+		for(int i = 0; i < army.length; i++) selected[army[i]]++;
+		add(selected, 1d);
+	}
+	
+	private void add(int[] selected, double chance) {
+		int[] army = new int[SoldierType.COUNT];
+		for(int t = 0; t < SoldierType.COUNT; t++) army[t] = Math.max(selected[t], 0);
+		
+		for(int i = 0; i < counts.size(); i++) {
+			if(Arrays.equals(counts.get(i), army)) {
+				odds.set(i, odds.get(i) + chance);
+				return;
+			}
+		}
+		counts.add(army);
+		odds.add(chance);
+	}
+	
+	/**
+	 * Gets the number of different armies that can be picked.
+	 * @return
+	 */
+	public int size() {
+		return counts.size();
+	}
+	
+	/**
+	 * Gets an army that can be picked.
+	 * @param i Index of the army (0 to {@link #size()} - 1).
+	 * @return Soldier types in the army in type order.
+	 */
+	public int[] army(int i) {
+		int[] count = counts.get(i);
+		int n = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) n += count[t];
+		
+		int[] army = new int[n];
+		n = 0;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			for(int j = 0; j < count[t]; j++) army[n++] = t;
+		}
+		return army;
+	}
+	
+	/**
+	 * Gets the chance of an army being picked.
+	 * @param i Index of the army (0 to {@link #size()} - 1).
+	 * @return
+	 */
+	public double odds(int i) {
+		return odds.get(i);
+	}
+}
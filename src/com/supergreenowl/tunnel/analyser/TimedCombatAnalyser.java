@@ -0,0 +1,89 @@
+package com.supergreenowl.tunnel.analyser;
+
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.EventEngine;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.Tunnel;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Fights two armies dispatched into the tunnel at set times, taking walking, queueing, the cadence of hits, dying
+ * and the auto-dispatch into account, unlike {@link CombatAnalyser} which only lines the soldiers up.
+ * <p>
+ * Fights are played by an {@link EventEngine}, which works out when the next collision, hit, death, exit or
+ * dispatch happens from the soldiers' positions and speeds and jumps straight to it rather than stepping every
+ * tick. Its results are identical to an {@link Engine} stepping every tick so the outcome of a fight is exactly what
+ * a real game with the same dispatches and seed would give.
+ * @author luke
+ *
+ */
+public class TimedCombatAnalyser {
+	
+	/** Default game time after which a fight that is still going is given up on (s). */
+	public static final float DEFAULT_MAX_TIME = 600f;
+	
+	private final Ruleset rules;
+	private final int maxTicks;
+	
+	/** Game time at which the last fight ended (s). */
+	public float gameTime;
+	
+	public TimedCombatAnalyser() {
+		this(Ruleset.DEFAULT, DEFAULT_MAX_TIME);
+	}
+	
+	/**
+	 * Creates a new analyser.
+	 * @param rules Rules for the soldiers.
+	 * @param maxTime Game time after which a fight that is still going is given up on (s).
+	 */
+	public TimedCombatAnalyser(Ruleset rules, float maxTime) {
+		this.rules = rules;
+		this.maxTicks = (int)(maxTime / Engine.FIXED_STEP);
+	}
+	
+	/**
+	 * Fights two armies dispatched according to a schedule.
+	 * @param westTypes Types of the west soldiers in the order they are dispatched.
+	 * @param westTimes Game time at which each west soldier is dispatched (s, in ascending order).
+	 * @param eastTypes Types of the east soldiers in the order they are dispatched.
+	 * @param eastTimes Game time at which each east soldier is dispatched (s, in ascending order).
+	 * @param seed Seed for the game (only used for auto-dispatch).
+	 * @return Winner of the fight or {@link TunnelState#Open} if it was given up on.
+	 */
+	public TunnelState fight(int[] westTypes, float[] westTimes, int[] eastTypes, float[] eastTimes, long seed) {
+		ScheduledPlayer west = new ScheduledPlayer(Direction.West, westTypes, westTimes);
+		ScheduledPlayer east = new ScheduledPlayer(Direction.East, eastTypes, eastTimes);
+		
+		EventEngine engine = new EventEngine(west, east, seed, new Tunnel(rules));
+		engine.advance(maxTicks);
+		
+		gameTime = engine.gameTime;
+		return engine.tunnel.state;
+	}
+	
+	/**
+	 * Fights two armies that each dispatch a soldier at a regular interval from the start of the game.
+	 * @param west Types of the west soldiers in the order they are dispatched.
+	 * @param east Types of the east soldiers in the order they are dispatched.
+	 * @param interval Time between dispatches (s).
+	 * @param seed Seed for the game (only used for auto-dispatch).
+	 * @return Winner of the fight or {@link TunnelState#Open} if it was given up on.
+	 */
+	public TunnelState fight(int[] west, int[] east, float interval, long seed) {
+		return fight(west, schedule(west.length, interval), east, schedule(east.length, interval), seed);
+	}
+	
+	/**
+	 * Makes a schedule of dispatch times at a regular interval.
+	 * @param count Number of soldiers.
+	 * @param interval Time between dispatches (s).
+	 * @return
+	 */
+	public static float[] schedule(int count, float interval) {
+		float[] times = new float[count];
+		for(int i = 0; i < count; i++) times[i] = i * interval;
+		return times;
+	}
+}
@@ -0,0 +1,135 @@
+package com.supergreenowl.tunnel.analyser;
+
+import com.supergreenowl.tunnel.model.DuelTable;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Fights every ordering of one army against every ordering of the other by walking both sets of orderings as tries.
+ * <p>
+ * Orderings that start the same way fight the same way until they differ, so the fight is only played once for each
+ * shared start: the walk sends in the next soldier of a side only when that side needs one, branching on each type it
+ * has left. As soon as a side runs out the fight is decided whatever order the soldiers that were never sent come in,
+ * so the whole branch is counted in one step with the multinomial count of those soldiers. Each decided branch can
+ * also be passed to a {@link Listener} to list the orderings that win.
+ * @author luke
+ *
+ */
+public class TrieAnalyser {
+	
+	/**
+	 * Receives every decided branch of the walk.
+	 * @author luke
+	 *
+	 */
+	public interface Listener {
+		
+		/**
+		 * Called when a branch of the walk is decided.
+		 * The orderings in the branch are the soldiers sent so far followed by any ordering of the rest of each army.
+		 * @param winner Winner of every fight in the branch.
+		 * @param west West soldiers sent so far (only valid during the call).
+		 * @param westSent Number of west soldiers sent.
+		 * @param east East soldiers sent so far (only valid during the call).
+		 * @param eastSent Number of east soldiers sent.
+		 * @param fights Number of pairs of orderings in the branch.
+		 */
+		void decided(TunnelState winner, int[] west, int westSent, int[] east, int eastSent, long fights);
+	}
+	
+	private final Ruleset rules;
+	private final DuelTable duels;
+	
+	private final int[] westLeft = new int[SoldierType.COUNT];
+	private final int[] eastLeft = new int[SoldierType.COUNT];
+	private int[] westSent;
+	private int[] eastSent;
+	
+	private Listener listener;
+	
+	public long west, east, draws;
+	
+	/** Number of duels fought during the last walk. */
+	public long duelsFought;
+	
+	public TrieAnalyser(Ruleset rules) {
+		this.rules = rules;
+		this.duels = rules.duels;
+	}
+	
+	/**
+	 * Fights every ordering of the west army against every ordering of the east army and stores the counts of each
+	 * outcome in {@link #west}, {@link #east} and {@link #draws}.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param listener Listener to pass decided branches to or {@code null}.
+	 * @throws IllegalStateException If some pairing never ends because neither soldier in a duel can hurt the other.
+	 */
+	public void analyse(int[] west, int[] east, Listener listener) {
+		this.listener = listener;
+		this.west = this.east = draws = duelsFought = 0L;
+		
+		for(int t = 0; t < SoldierType.COUNT; t++) westLeft[t] = eastLeft[t] = 0;
+		for(int i = 0; i < west.length; i++) westLeft[west[i]]++;
+		for(int i = 0; i < east.length; i++) eastLeft[east[i]]++;
+		westSent = new int[west.length];
+		eastSent = new int[east.length];
+		
+		walk(0, 0, 0, 0);
+		this.listener = null;
+	}
+	
+	/**
+	 * Walks the branches of the tries below a point in the fight.
+	 * @param ws Number of west soldiers sent.
+	 * @param es Number of east soldiers sent.
+	 * @param westHp Hitpoints of the west soldier in the tunnel (0 if a new one needs to be sent).
+	 * @param eastHp Hitpoints of the east soldier in the tunnel (0 if a new one needs to be sent).
+	 */
+	private void walk(int ws, int es, int westHp, int eastHp) {
+		boolean westOut = westHp == 0 && ws == westSent.length;
+		boolean eastOut = eastHp == 0 && es == eastSent.length;
+		
+		if(westOut || eastOut) {
+			if(westOut && eastOut) decide(TunnelState.Draw, ws, es, 1L);
+			else if(westOut) decide(TunnelState.East, ws, es, Permutations.orderings(eastLeft));
+			else decide(TunnelState.West, ws, es, Permutations.orderings(westLeft));
+		}
+		else if(westHp == 0) {
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				if(westLeft[t] == 0) continue;
+				westLeft[t]--;
+				westSent[ws] = t;
+				walk(ws + 1, es, rules.hitpoints(t), eastHp);
+				westLeft[t]++;
+			}
+		}
+		else if(eastHp == 0) {
+			for(int t = 0; t < SoldierType.COUNT; t++) {
+				if(eastLeft[t] == 0) continue;
+				eastLeft[t]--;
+				eastSent[es] = t;
+				walk(ws, es + 1, westHp, rules.hitpoints(t));
+				eastLeft[t]++;
+			}
+		}
+		else {
+			int duel = duels.index(westSent[ws - 1], eastSent[es - 1], westHp, eastHp);
+			if(duels.winner(duel) == TunnelState.Open) {
+				throw new IllegalStateException("Soldiers of types " + westSent[ws - 1] + " and " + eastSent[es - 1] + " can't hurt each other.");
+			}
+			
+			duelsFought++;
+			walk(ws, es, duels.westHp(duel), duels.eastHp(duel));
+		}
+	}
+	
+	private void decide(TunnelState winner, int ws, int es, long fights) {
+		if(winner == TunnelState.West) west += fights;
+		else if(winner == TunnelState.East) east += fights;
+		else draws += fights;
+		
+		if(listener != null) listener.decided(winner, westSent, ws, eastSent, es, fights);
+	}
+}
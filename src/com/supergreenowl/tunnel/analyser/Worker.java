@@ -0,0 +1,144 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+
+/**
+ * Worker process that fights ranges of orderings handed to it by a {@link WorkerPool}, so a big analysis can be spread
+ * over several JVMs each with its own heap.
+ * <p>
+ * The worker talks to its coordinator over a pair of byte streams (its standard input and output when started by a
+ * pool; nothing else may be written to standard output). Everything is big-endian as written by {@link DataOutputStream}:
+ * <ul>
+ * <li>The coordinator opens with {@link #MAGIC}, {@link #VERSION} and the rules to fight under as a UTF string in the
+ * format read by {@link Ruleset#load(java.io.Reader)}; the worker answers with {@link #MAGIC} and {@link #VERSION} once
+ * it has loaded them.</li>
+ * <li>{@link #FIGHT} is followed by the west and east armies (each a short length and a byte per soldier type) and the
+ * first and last + 1 ranks of the west orderings to fight against every east ordering. The worker answers with
+ * the number of west wins, east wins and draws as longs, or with {@link #FAILED} and a UTF message if some fight
+ * never ends under its rules.</li>
+ * <li>{@link #QUIT} (or the end of the stream) stops the worker.</li>
+ * </ul>
+ * Nothing in the protocol depends on the streams being pipes, so the same messages can be carried over sockets.
+ * @author luke
+ *
+ */
+public class Worker {
+	
+	/** Identifies the protocol. */
+	static final int MAGIC = 0x4b4e574b;
+	static final int VERSION = 2;
+	
+	/** Request to fight a range of orderings. */
+	static final byte FIGHT = 1;
+	
+	/** Request to stop. */
+	static final byte QUIT = 2;
+	
+	/** Sent in place of the west wins when a range can't be fought. */
+	static final long FAILED = -1L;
+	
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private Ruleset rules;
+	
+	public Worker(InputStream in, OutputStream out) {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+	}
+	
+	/**
+	 * Answers requests until told to stop or the coordinator goes away.
+	 * @throws IOException If the streams fail or the coordinator doesn't speak the protocol.
+	 */
+	public void serve() throws IOException {
+		if(in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Coordinator does not speak this protocol.");
+		rules = Ruleset.load(new StringReader(in.readUTF()));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.flush();
+		
+		while(true) {
+			int request = in.read();
+			if(request < 0 || request == QUIT) return;
+			if(request != FIGHT) throw new IOException("Unknown request " + request + ".");
+			
+			int[] west = readArmy(in);
+			int[] east = readArmy(in);
+			long from = in.readLong();
+			long to = in.readLong();
+			
+			try {
+				long[] counts = AnalysisEngine.fight(west, east, from, to, rules);
+				for(int i = 0; i < counts.length; i++) out.writeLong(counts[i]);
+			}
+			catch(IllegalStateException e) {
+				out.writeLong(FAILED);
+				out.writeUTF(String.valueOf(e.getMessage()));
+			}
+			out.flush();
+		}
+	}
+	
+	/**
+	 * Writes a request to fight a range of west orderings against every east ordering.
+	 * @param out Stream to the worker (not flushed).
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param from Rank of the first west ordering.
+	 * @param to Rank after the last west ordering.
+	 * @throws IOException
+	 */
+	static void writeFight(DataOutputStream out, int[] west, int[] east, long from, long to) throws IOException {
+		out.writeByte(FIGHT);
+		writeArmy(out, west);
+		writeArmy(out, east);
+		out.writeLong(from);
+		out.writeLong(to);
+	}
+	
+	private static void writeArmy(DataOutputStream out, int[] army) throws IOException {
+		if(army.length > Short.MAX_VALUE) throw new IllegalArgumentException("Army is too big to send to a worker.");
+		out.writeShort(army.length);
+		for(int i = 0; i < army.length; i++) out.writeByte(army[i]);
+	}
+	
+	private static int[] readArmy(DataInputStream in) throws IOException {
+		int length = in.readShort();
+		if(length < 0) throw new IOException("Bad army length " + length + ".");
+		
+		int[] army = new int[length];
+		for(int i = 0; i < length; i++) {
+			army[i] = in.readByte();
+			if(army[i] < 0 || army[i] >= SoldierType.COUNT) throw new IOException("Bad soldier type " + army[i] + ".");
+		}
+		return army;
+	}
+	
+	/**
+	 * Runs a worker on standard input and output.
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		try {
+			new Worker(System.in, System.out).serve();
+		}
+		catch(EOFException e) {
+			// Coordinator went away
+		}
+		catch(IOException e) {
+			System.err.println("Worker stopped: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
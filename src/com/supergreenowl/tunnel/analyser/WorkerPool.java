@@ -0,0 +1,227 @@
+package com.supergreenowl.tunnel.analyser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.supergreenowl.tunnel.model.Ruleset;
+
+/**
+ * Coordinator for a number of local {@link Worker} processes that ranges of orderings are handed out to.
+ * <p>
+ * Each call to {@link #fight(int[], int[], long, long)} borrows an idle worker, sends it the range and waits for its
+ * counts, so several threads (such as those of a {@link JobRunner}) can keep all the workers busy. If a worker dies
+ * or stops making sense its range is handed to another worker and a new process is started in its place, up to
+ * {@link #MAX_RESTARTS} times.
+ * @author luke
+ *
+ */
+public class WorkerPool {
+	
+	/** Most worker processes started to replace ones that died. */
+	public static final int MAX_RESTARTS = 16;
+	
+	/** Time to wait for an idle worker before checking that there are any left (s). */
+	private static final long WAIT_SECONDS = 1L;
+	
+	/**
+	 * Worker process and the streams to talk to it over.
+	 * @author luke
+	 *
+	 */
+	private static class Connection {
+		
+		private final Process process;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		
+		public Connection(Process process) {
+			this.process = process;
+			in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+		}
+		
+		public void close() {
+			try {
+				out.writeByte(Worker.QUIT);
+				out.close();
+			}
+			catch(IOException e) {
+				// Already gone
+			}
+			process.destroy();
+		}
+	}
+	
+	private final String rules;
+	private final List<String> command;
+	private final LinkedBlockingQueue<Connection> idle = new LinkedBlockingQueue<Connection>();
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private int restarts;
+	private boolean closed;
+	
+	/** Number of ranges that were handed to another worker because theirs died. */
+	public int retries;
+	
+	/**
+	 * Starts worker processes running the same classes as this JVM.
+	 * @param workers Number of workers.
+	 * @param rules Rules for the workers to fight under.
+	 * @throws IOException If a worker could not be started.
+	 */
+	public WorkerPool(int workers, Ruleset rules) throws IOException {
+		if(workers < 1) throw new IllegalArgumentException("A pool needs at least one worker.");
+		
+		this.rules = rules.toString();
+		command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Worker.class.getName());
+		
+		try {
+			for(int i = 0; i < workers; i++) idle.add(start());
+		}
+		catch(IOException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Starts a worker and sends it the rules.
+	 */
+	private Connection start() throws IOException {
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Connection connection = new Connection(builder.start());
+		synchronized(this) {
+			connections.add(connection);
+		}
+		
+		try {
+			connection.out.writeInt(Worker.MAGIC);
+			connection.out.writeInt(Worker.VERSION);
+			connection.out.writeUTF(rules);
+			connection.out.flush();
+			if(connection.in.readInt() != Worker.MAGIC || connection.in.readInt() != Worker.VERSION) {
+				throw new IOException("Worker does not speak this protocol.");
+			}
+		}
+		catch(IOException e) {
+			lost(connection);
+			throw e;
+		}
+		return connection;
+	}
+	
+	/**
+	 * Fights a range of west orderings against every ordering of the east army on one of the workers.
+	 * @param west Soldier types in the west army.
+	 * @param east Soldier types in the east army.
+	 * @param from Rank of the first west ordering.
+	 * @param to Rank after the last west ordering.
+	 * @return Number of west wins, east wins and draws.
+	 * @throws IllegalStateException If every worker has died and no more can be started or some fight never ends.
+	 */
+	public long[] fight(int[] west, int[] east, long from, long to) {
+		while(true) {
+			Connection connection = borrow();
+			try {
+				Worker.writeFight(connection.out, west, east, from, to);
+				connection.out.flush();
+				
+				long[] counts = new long[3];
+				counts[0] = connection.in.readLong();
+				if(counts[0] == Worker.FAILED) {
+					String message = connection.in.readUTF();
+					idle.add(connection);
+					throw new IllegalStateException(message);
+				}
+				for(int i = 1; i < counts.length; i++) counts[i] = connection.in.readLong();
+				if(counts[0] < 0L || counts[1] < 0L || counts[2] < 0L) throw new IOException("Worker sent negative counts.");
+				
+				idle.add(connection);
+				return counts;
+			}
+			catch(IOException e) {
+				replace(connection);
+				synchronized(this) {
+					retries++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Waits for an idle worker.
+	 */
+	private Connection borrow() {
+		while(true) {
+			synchronized(this) {
+				if(closed) throw new IllegalStateException("Worker pool has been closed.");
+				if(connections.isEmpty()) throw new IllegalStateException("Every worker has died.");
+			}
+			
+			try {
+				Connection connection = idle.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+				if(connection != null) return connection;
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted waiting for a worker.", e);
+			}
+		}
+	}
+	
+	/**
+	 * Drops a worker that has failed and starts a new one if there are restarts left.
+	 */
+	private void replace(Connection connection) {
+		lost(connection);
+		
+		synchronized(this) {
+			if(closed || restarts >= MAX_RESTARTS) return;
+			restarts++;
+		}
+		
+		try {
+			idle.add(start());
+		}
+		catch(IOException e) {
+			System.err.println("Worker could not be restarted: " + e.getMessage());
+		}
+	}
+	
+	private void lost(Connection connection) {
+		connection.process.destroy();
+		synchronized(this) {
+			connections.remove(connection);
+		}
+	}
+	
+	/**
+	 * Gets the number of workers that are running.
+	 * @return
+	 */
+	public synchronized int size() {
+		return connections.size();
+	}
+	
+	/**
+	 * Tells every worker to stop.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for(Connection connection : connections) connection.close();
+		connections.clear();
+		idle.clear();
+	}
+}
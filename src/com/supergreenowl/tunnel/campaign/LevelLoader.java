@@ -32,7 +32,16 @@ public class LevelLoader {
 	 * Creates a new level loader.
 	 */
 	public LevelLoader() {
-		file = Gdx.files.internal(FILE_NAME);
+		this(Gdx.files.internal(FILE_NAME));
+	}
+	
+	/**
+	 * Creates a new level loader that loads levels from the specified file.
+	 * A {@code FileHandle} can be created directly from a {@code java.io.File} so levels can be loaded without starting libgdx.
+	 * @param file File to load levels from.
+	 */
+	public LevelLoader(FileHandle file) {
+		this.file = file;
 	}
 	
 	/**
@@ -2,7 +2,7 @@ package com.supergreenowl.tunnel.campaign;
 
 import com.badlogic.gdx.utils.IntArray;
 import com.supergreenowl.tunnel.controller.Player;
-import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.ArmyCodec;
 
 /**
  * A list of soldiers for a campaign level. The list is initialised with a string such as "{@code WRGBCMYRGB}" indicating soldier types in a specified order. 
@@ -11,13 +11,6 @@ import com.supergreenowl.tunnel.model.SoldierType;
  */
 public class SoldierList {
 
-	private static final char RED = 'R';
-	private static final char GREEN = 'G';
-	private static final char BLUE = 'B';
-	private static final char CYAN = 'C';
-	private static final char MAGENTA = 'M';
-	private static final char YELLOW = 'Y';
-	private static final char WHITE = 'W';
 	
 	private IntArray order;
 	private int pointer;
@@ -30,7 +23,7 @@ public class SoldierList {
 		length = list.length();
 		order = new IntArray(length);
 		for(int i = 0; i < length; i++) {
-			int type = charToSoldierType(list.charAt(i));
+			int type = ArmyCodec.fromChar(list.charAt(i));
 			
 			// Add soldier type to ordered list
 			order.add(type);
@@ -62,6 +55,41 @@ public class SoldierList {
 		pointer = 0;
 	}
 	
+	/**
+	 * Gets the position in the list of the next soldier.
+	 * @return Number of soldiers already taken from the list.
+	 */
+	public int getPosition() {
+		return pointer;
+	}
+	
+	/**
+	 * Sets the position in the list of the next soldier (e.g. to restore a saved game).
+	 * @param position Number of soldiers already taken from the list.
+	 */
+	public void setPosition(int position) {
+		if(position < 0 || position > length) throw new IllegalArgumentException("Position " + position + " is outside the list.");
+		pointer = position;
+	}
+	
+	/**
+	 * Gets the soldier types in this list in order.
+	 * @return New array of soldier types.
+	 */
+	public int[] toArray() {
+		int[] types = new int[length];
+		for(int i = 0; i < length; i++) types[i] = order.get(i);
+		return types;
+	}
+	
+	/**
+	 * Gets the list in the form it was created from, e.g. "{@code WRGBCMYRGB}".
+	 */
+	@Override
+	public String toString() {
+		return ArmyCodec.toString(toArray());
+	}
+	
 	/**
 	 * Sets the specified soldier selection array to be filled with the soldiers in this list.
 	 */
@@ -77,22 +105,4 @@ public class SoldierList {
 		}
 		
 	}
-	
-	/**
-	 * Converts a character representing a soldier to a soldier type.
-	 * @param c
-	 * @return Soldier type corresponding to specified character.
-	 */
-	private int charToSoldierType(char c) {
-		switch(c) {
-			case RED: return SoldierType.RED;
-			case GREEN: return SoldierType.GREEN;
-			case BLUE: return SoldierType.BLUE;
-			case CYAN: return SoldierType.CYAN;
-			case MAGENTA: return SoldierType.MAGENTA;
-			case YELLOW: return SoldierType.YELLOW;
-			case WHITE: return SoldierType.WHITE;
-			default: throw new IllegalArgumentException(Character.toString(c) + " is not a valid soldier type");
-		}
-	}	
 }
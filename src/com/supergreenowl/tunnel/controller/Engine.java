@@ -1,13 +1,14 @@
 package com.supergreenowl.tunnel.controller;
 
-import com.badlogic.gdx.utils.Array;
 import com.supergreenowl.tunnel.model.CombatEngine;
 import com.supergreenowl.tunnel.model.Direction;
 import com.supergreenowl.tunnel.model.Soldier;
 import com.supergreenowl.tunnel.model.SoldierState;
+import com.supergreenowl.tunnel.model.SoldierStore;
 import com.supergreenowl.tunnel.model.SoldierType;
 import com.supergreenowl.tunnel.model.Tunnel;
 import com.supergreenowl.tunnel.model.TunnelState;
+import com.supergreenowl.tunnel.utils.SeedableRandom;
 
 /**
  * Main game engine.
@@ -22,10 +23,26 @@ public class Engine {
 	/** Time at which a soldier will be automatically dispatched if none has been yet (s). */
 	public static final float AUTO_DISPATCH_TIME = 5f;
 	
+	/**
+	 * Length of one simulation tick in fixed step mode (s).
+	 * A power of two is used so that game times, positions and timers are all exact in floating point.
+	 * This means adding {@code n} ticks one at a time gives exactly the same result as adding {@code n * FIXED_STEP} in one go.
+	 */
+	public static final float FIXED_STEP = 1f / 64f;
+	
 	/** Frequency of score updates in seconds. */
 	private static final float SCORE_UPDATE_FREQUENCY = 0.5f;
 	
 	private static final int SCORE_MULTIPLIER = 1000;
+	
+	/**
+	 * Maximum number of ticks simulated by one call to {@link #update(float)} in fixed step mode.
+	 * If the game can't keep up (e.g. after a long pause or with huge armies) time is dropped rather than falling further behind.
+	 */
+	public static final int MAX_TICKS_PER_UPDATE = 16;
+	
+	/** Returned by {@link #begin(float)} if there is nothing more to do in a step. */
+	protected static final float NO_STEP = -1f;
 	private static final int POINTS_PER_SECOND = 100;
 	
 	public Tunnel tunnel;
@@ -51,18 +68,71 @@ public class Engine {
 	public boolean isPaused;
 	
 	/**
-	 * Listener that receives combat events from this engine.
+	 * Indicates if this engine updates the game in ticks of {@link #FIXED_STEP} rather than by the time elapsed each frame.
+	 * In fixed step mode the same dispatches at the same tick always produce the same game regardless of frame rate.
+	 */
+	public boolean isFixedStep;
+	
+	/** Number of ticks simulated so far in fixed step mode. */
+	public int ticks;
+	
+	/**
+	 * Time between waves of reinforcements in an endless game (s) or 0 for a normal game.
+	 * Each wave gives both players another army of the soldiers they selected. Endless games can't be drawn.
 	 */
-	public CombatListener listener;
+	public float waveInterval;
+	
+	/** Number of waves of reinforcements so far. */
+	public int waves;
+	
+	/**
+	 * Stream that receives events from this engine or {@code null} if no one is listening (e.g. in a headless game).
+	 */
+	public EventStream events;
+	
+	/** Random number generator used for all random decisions made during the game. */
+	SeedableRandom random;
+	
+	/** Performs combat between the soldiers at the front of each army. */
+	protected CombatEngine combat;
 	
-	private CombatEngine combat;
 	private float scoreLastUpdated;
-		
-	public Engine(Player west, Player east) {		
+	
+	/** Time elapsed that has not yet been simulated in fixed step mode (s). */
+	private float accumulator;
+	
+	/**
+	 * Creates a new engine with a randomly chosen seed.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 */
+	public Engine(Player west, Player east) {
+		this(west, east, new SeedableRandom().nextLong());
+	}
+	
+	/**
+	 * Creates a new engine.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param seed Seed for random decisions made during the game. Games with the same seed and dispatches are identical.
+	 */
+	public Engine(Player west, Player east, long seed) {
+		this(west, east, seed, new Tunnel());
+	}
+	
+	/**
+	 * Creates a new engine for a game in the specified tunnel.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param seed Seed for random decisions made during the game.
+	 * @param tunnel Empty tunnel in which to play the game.
+	 */
+	public Engine(Player west, Player east, long seed, Tunnel tunnel) {
+		random = new SeedableRandom(seed);
 		gameTime = 0f;
 		scoreLastUpdated = 0f;
-		tunnel = new Tunnel();
-		combat = new CombatEngine();
+		this.tunnel = tunnel;
+		combat = new CombatEngine(tunnel.rules);
 		isDispatchedWest = isDispatchedEast = false;
 		
 		this.west = west;
@@ -72,49 +142,117 @@ public class Engine {
 		
 		this.isPaused = true;
 		this.pausedTime = 0f;
+		this.isFixedStep = false;
+		this.ticks = 0;
+		this.accumulator = 0f;
+		this.waveInterval = 0f;
+		this.waves = 0;
 	}
 	
 	/**
 	 * Updates the game state.
-	 * @param elapsed
+	 * In fixed step mode the elapsed time is accumulated and the game is advanced by as many whole ticks as have elapsed.
+	 * @param elapsed Time elapsed since the last update (s).
 	 */
 	public void update(float elapsed) {
 		
+		if(isFixedStep) {
+			accumulator += elapsed;
+			int count = 0;
+			while(accumulator >= FIXED_STEP) {
+				accumulator -= FIXED_STEP;
+				if(++count == MAX_TICKS_PER_UPDATE) {
+					accumulator = 0f;
+					break;
+				}
+			}
+			advance(count);
+		}
+		else step(elapsed);
+	}
+	
+	/**
+	 * Advances the game by a number of ticks of {@link #FIXED_STEP} (or until the game is over).
+	 * Headless games can call this directly rather than {@link #update(float)}.
+	 * @param count Number of ticks to advance.
+	 */
+	public void advance(int count) {
+		for(int i = 0; i < count && tunnel.state == TunnelState.Open; i++) {
+			ticks++;
+			step(FIXED_STEP);
+		}
+	}
+	
+	/**
+	 * Advances the game state by a single step.
+	 * @param elapsed Length of the step (s).
+	 */
+	protected void step(float elapsed) {
+		
+		elapsed = begin(elapsed);
+		if(elapsed == NO_STEP) return;
+		
+		int w = tunnel.west.size();
+		int e = tunnel.east.size();
+		
+		play();
+		
+		// Advance the state time of every soldier and move walking soldiers
+		// A soldier's movement only depends on the state it was in at the start of the update so this can be done in one go
+		// (soldiers dispatched by the players above don't move until the next update)
+		tunnel.west.advance(w, elapsed);
+		tunnel.east.advance(e, elapsed);
+		
+		resolve(w, e);
+	}
+	
+	/**
+	 * Starts a step: handles the pre-game pause, advances the game time and checks for a draw.
+	 * @param elapsed Length of the step (s).
+	 * @return Time by which to advance the soldiers (s) or {@link #NO_STEP} if the step should end here.
+	 */
+	protected float begin(float elapsed) {
+		
 		if(isPaused) {
 			if((pausedTime += elapsed) >= PRE_GAME_PAUSE) {
 				isPaused = false;
 				elapsed =  pausedTime - PRE_GAME_PAUSE;
 			}
-			else return; // Still paused!
+			else return NO_STEP; // Still paused!
 		}
 		
-		if(tunnel.state != TunnelState.Open) return;
+		if(tunnel.state != TunnelState.Open) return NO_STEP;
 		
 		gameTime += elapsed;
+		updateScores(elapsed);
 		
-		// Deduct points for elapsed time
-		if(gameTime - scoreLastUpdated >= SCORE_UPDATE_FREQUENCY) {
-			west.score -= elapsed * POINTS_PER_SECOND;
-			if(west.score < 0) west.score = 0;
-			east.score -= elapsed * POINTS_PER_SECOND;
-			if(east.score < 0) east.score = 0;
-			scoreLastUpdated = gameTime;
+		if(isEndless()) {
+			// Send in the next wave of reinforcements (endless games are never drawn)
+			if(gameTime >= nextWaveTime()) {
+				waves++;
+				west.reinforce();
+				east.reinforce();
+			}
+			return elapsed;
 		}
 		
-		Array<Soldier> westSoldiers = tunnel.west;
-		Array<Soldier> eastSoldiers = tunnel.east;
-		
-		int w = westSoldiers.size;
-		int e = eastSoldiers.size;
-		
 		// There is no one in the tunnel - if there are no waiting soldiers either then it's a draw
-		if(w == 0 && e == 0) {
+		if(tunnel.west.size() == 0 && tunnel.east.size() == 0) {
 			if(west.totalSoldiers() == 0 && east.totalSoldiers() == 0) {
 				tunnel.state = TunnelState.Draw;
-				return;
+				addEvent(EventStream.DRAW, null, SoldierType.NONE, Tunnel.NOT_IN_TUNNEL, 0);
+				return NO_STEP;
 			}
 		}
 		
+		return elapsed;
+	}
+	
+	/**
+	 * Lets both players play and automatically dispatches soldiers if either player has waited too long.
+	 */
+	protected void play() {
+		
 		// Let AI play
 		west.play(gameTime);
 		east.play(gameTime);
@@ -123,6 +261,7 @@ public class Engine {
 		if(!isDispatchedWest && gameTime >= AUTO_DISPATCH_TIME) {
 			int type = west.selectRandomSoldier();
 			if(type != Player.NONE_SELECTED) {
+				addEvent(EventStream.AUTO_DISPATCH, Direction.West, type, Tunnel.NOT_IN_TUNNEL, 0);
 				dispatchSoldier(Direction.West, type);
 			}
 		}
@@ -130,161 +269,303 @@ public class Engine {
 		if(!isDispatchedEast && gameTime >= AUTO_DISPATCH_TIME) {
 			int type = east.selectRandomSoldier();
 			if(type != Player.NONE_SELECTED) {
+				addEvent(EventStream.AUTO_DISPATCH, Direction.East, type, Tunnel.NOT_IN_TUNNEL, 0);
 				dispatchSoldier(Direction.East, type);
 			}
 		}
 		
-		int len = Math.max(w, e);
-		float wprev = Tunnel.NOT_IN_TUNNEL;
-		float eprev = Tunnel.NOT_IN_TUNNEL;
+	}
+	
+	/**
+	 * Finishes a step once the soldiers have moved: checks for a winner, stops and starts soldiers, removes the dead and performs combat.
+	 * @param w Number of west soldiers in the tunnel at the start of the step.
+	 * @param e Number of east soldiers in the tunnel at the start of the step.
+	 */
+	protected void resolve(int w, int e) {
 		
-		// Update soldiers alternating west then east from the front of each army
-		// Move soldiers
-		for(int i = 0; i < len; i++) {
-			
-			if(w > 0 && w > i) {
-				// update west.get(i)
-				Soldier s = westSoldiers.get(i);
-				SoldierState ss = s.state;
-				s.stateTime += elapsed;
-				
-				// Move a walking soldier
-				float pos = s.position;
-				if(ss == SoldierState.Walking) {
-					pos += s.speed * elapsed;
-					s.position = pos;
-					
-					if(pos >= Tunnel.LENGTH + Soldier.RADIUS) {
-						tunnel.state = TunnelState.West;
-						return;
-					}
-				}
-				
-				// Check for dead soldiers
-				if(ss == SoldierState.Dying && s.stateTime >= CombatEngine.DYING_DURATION) {
-					s.setState(SoldierState.Dead);
-				}
-				
-				// Check for soldier waiting on dying soldier
-				if(i == 0 && ss == SoldierState.Stopped) {
-					if(e == 0) {
-						// Dying soldier has been cleaned up and there are no enemies left - so walk again
-						s.setState(SoldierState.Walking);
-					}
-					else if(eastSoldiers.get(0).state != SoldierState.Dying) {
-						// Soldier in front is dead already (and might have been removed) - so walk again 
-						s.setState(SoldierState.Walking);
-					}
-				}
-				
-				// Check collision with soldier in front
-				if(wprev != Tunnel.NOT_IN_TUNNEL) {
-					float distance = wprev - pos;
-					
-					if(distance <= Soldier.DIAMETER && ss != SoldierState.Stopped) {
-						// stop if caught up to soldier ahead
-						s.setState(SoldierState.Stopped);
-					}
-					else if(distance > Soldier.DIAMETER && ss == SoldierState.Stopped) {
-						// resume moving if soldier ahead is now far enough away
-						s.setState(SoldierState.Walking);
-					}
-				}
-				
-				wprev = pos; // Set previous position to position of this soldier
-			}
-			
-			if(e > 0 && e > i) {
-				// update east.get(i)
-				Soldier s = eastSoldiers.get(i);
-				SoldierState ss = s.state;
-				s.stateTime += elapsed;
-				
-				// Move a walking soldier
-				float pos = s.position;
-				if(ss == SoldierState.Walking) {
-					pos += s.speed * elapsed;
-					s.position = pos;
-					
-					if(pos <= 0f - Soldier.RADIUS) {
-						tunnel.state = TunnelState.East;
-						return;
-					}
-				}
-				
-				// Check for dead soldiers
-				if(ss == SoldierState.Dying && s.stateTime >= CombatEngine.DYING_DURATION) {
-					s.setState(SoldierState.Dead);
-				}
-								
-				// Check for soldier waiting on dying soldier
-				if(i == 0 && ss == SoldierState.Stopped) {
-					if(w == 0) {
-						// Dying soldier has been cleaned up and there are no enemies left - so walk again
-						s.setState(SoldierState.Walking);
-					}
-					else if(westSoldiers.get(0).state != SoldierState.Dying) {
-						// Soldier in front is dead already (and might have been removed) - so walk again 
-						s.setState(SoldierState.Walking);
-					}
-				}
-				
-				// Check collision with soldier in front
-				if(eprev != Tunnel.NOT_IN_TUNNEL) {
-					float distance = pos - eprev;
-					
-					if(distance <= Soldier.DIAMETER && ss != SoldierState.Stopped) {
-						// stop if caught up to soldier ahead
-						s.setState(SoldierState.Stopped);
-					}
-					else if(distance >= Soldier.DIAMETER && ss == SoldierState.Stopped) {
-						// resume moving if soldier ahead is now far enough away
-						s.setState(SoldierState.Walking);
-					}
-				}
-				
-				eprev = pos; // Set previous position to position of this soldier
-			}
-			
-		}
+		SoldierStore westSoldiers = tunnel.west;
+		SoldierStore eastSoldiers = tunnel.east;
+		
+		// Update the soldiers at the front of each army first (west then east) as each depends on the other
+		if(w > 0 && update(westSoldiers, 0, Tunnel.NOT_IN_TUNNEL, eastSoldiers, e)) return;
+		if(e > 0 && update(eastSoldiers, 0, Tunnel.NOT_IN_TUNNEL, westSoldiers, w)) return;
+		
+		// The rest of each army only depends on the soldier in front
+		// (soldiers behind the front can't walk out of the tunnel before the soldier at the front does)
+		if(updateArmy(westSoldiers, w, eastSoldiers, e)) return;
+		if(updateArmy(eastSoldiers, e, westSoldiers, w)) return;
 		
 		// Remove dead soldiers
 		// This must be before combat as we want to check first live soldier for combat
-		while(westSoldiers.size > 0 && westSoldiers.get(0).state == SoldierState.Dead) westSoldiers.removeIndex(0);
-		while(eastSoldiers.size > 0 && eastSoldiers.get(0).state == SoldierState.Dead) eastSoldiers.removeIndex(0);
+		while(westSoldiers.size() > 0 && westSoldiers.state(0) == SoldierState.Dead) westSoldiers.removeFirst();
+		while(eastSoldiers.size() > 0 && eastSoldiers.state(0) == SoldierState.Dead) eastSoldiers.removeFirst();
 		
 		// Check if combat should occur
-		if(westSoldiers.size > 0 && eastSoldiers.size > 0) {
-			Soldier westLead = westSoldiers.get(0);
-			Soldier eastLead = eastSoldiers.get(0);
+		if(westSoldiers.size() > 0 && eastSoldiers.size() > 0) {
+			SoldierState westState = westSoldiers.state(0);
+			SoldierState eastState = eastSoldiers.state(0);
 			
-			if(westLead.state == SoldierState.Walking || eastLead.state == SoldierState.Walking) {
-				float distance = eastLead.position - westLead.position;
+			if(westState == SoldierState.Walking || eastState == SoldierState.Walking) {
+				float distance = eastSoldiers.position(0) - westSoldiers.position(0);
 				if(distance <= Soldier.DIAMETER) {
-					westLead.setState(SoldierState.Hitting);
-					eastLead.setState(SoldierState.Hitting);
+					westSoldiers.setState(0, SoldierState.Hitting);
+					eastSoldiers.setState(0, SoldierState.Hitting);
+					westState = eastState = SoldierState.Hitting;
 				}
 			}
 			
-			if(westLead.state == SoldierState.Hitting || eastLead.state == SoldierState.Hitting) {
-				combat.fight(westLead, eastLead, listener);
+			if(westState == SoldierState.Hitting || eastState == SoldierState.Hitting) {
+				combat.fight(westSoldiers, eastSoldiers, events, gameTime);
 				
 				// Assign points for killing opponents
-				if(westLead.state == SoldierState.Dying) {
-					west.score -= SoldierType.COST[westLead.type] * SCORE_MULTIPLIER;
+				if(westSoldiers.state(0) == SoldierState.Dying) {
+					int type = westSoldiers.type(0);
+					west.score -= tunnel.rules.cost(type) * SCORE_MULTIPLIER;
 					if(west.score < 0) west.score = 0;
-					east.score += SoldierType.COST[westLead.type] * SCORE_MULTIPLIER;
+					east.score += tunnel.rules.cost(type) * SCORE_MULTIPLIER;
 				}
 				
-				if(eastLead.state == SoldierState.Dying) {
-					east.score -= SoldierType.COST[eastLead.type] * SCORE_MULTIPLIER;
+				if(eastSoldiers.state(0) == SoldierState.Dying) {
+					int type = eastSoldiers.type(0);
+					east.score -= tunnel.rules.cost(type) * SCORE_MULTIPLIER;
 					if(east.score < 0) east.score = 0;
-					west.score += SoldierType.COST[eastLead.type] * SCORE_MULTIPLIER;
+					west.score += tunnel.rules.cost(type) * SCORE_MULTIPLIER;
+				}
+				
+				if(westSoldiers.state(0) == SoldierState.Dying || eastSoldiers.state(0) == SoldierState.Dying) {
+					addEvent(EventStream.SCORE, Direction.West, SoldierType.NONE, Tunnel.NOT_IN_TUNNEL, west.score);
+					addEvent(EventStream.SCORE, Direction.East, SoldierType.NONE, Tunnel.NOT_IN_TUNNEL, east.score);
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Updates every soldier in an army except the one at the front.
+	 * Soldiers resting in a queue are skipped (see {@link SoldierStore#rest(int)}) so that big armies queueing to get into the tunnel cost nothing.
+	 * @param soldiers Army to update.
+	 * @param count Number of soldiers in the army at the start of the step.
+	 * @param enemies Opposing army.
+	 * @param enemyCount Number of opposing soldiers at the start of the step.
+	 * @return True if a soldier has walked out of the far end of the tunnel.
+	 */
+	private boolean updateArmy(SoldierStore soldiers, int count, SoldierStore enemies, int enemyCount) {
+		
+		if(count > 0 && soldiers.state(0) == SoldierState.Walking) soldiers.wake(0);
+		
+		for(int i = 1; i < count; i++) {
+			
+			// Skip soldiers resting in a queue as nothing can change for them until the soldier in front of them moves
+			if(i >= soldiers.restFrom() && i < soldiers.restTo()) {
+				i = Math.min(soldiers.restTo(), count) - 1;
+				continue;
+			}
+			
+			float prev = soldiers.position(i - 1);
+			if(update(soldiers, i, prev, enemies, enemyCount)) return true;
+			
+			SoldierState state = soldiers.state(i);
+			if(state == SoldierState.Walking) {
+				soldiers.wake(i);
+			}
+			else if(state == SoldierState.Stopped && soldiers.state(i - 1) != SoldierState.Walking
+					&& !isClear(soldiers.direction, distance(soldiers.direction, prev, soldiers.position(i)))) {
+				soldiers.rest(i);
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Updates one soldier: checks if it has walked out of the tunnel or finished dying and if it needs to stop or start walking.
+	 * @param soldiers Army the soldier belongs to.
+	 * @param i Index of the soldier.
+	 * @param prev Position of the soldier in front or {@link Tunnel#NOT_IN_TUNNEL} if this is the soldier at the front.
+	 * @param enemies Opposing army.
+	 * @param enemyCount Number of opposing soldiers at the start of the step.
+	 * @return True if the soldier has walked out of the far end of the tunnel (and won the game).
+	 */
+	private boolean update(SoldierStore soldiers, int i, float prev, SoldierStore enemies, int enemyCount) {
+		
+		boolean isWest = soldiers.direction == Direction.West;
+		SoldierState ss = soldiers.state(i);
+		float pos = soldiers.position(i);
+		
+		// Check if a walking soldier has reached the end of the tunnel
+		if(ss == SoldierState.Walking && (isWest ? pos >= Tunnel.LENGTH + Soldier.RADIUS : pos <= 0f - Soldier.RADIUS)) {
+			tunnel.state = isWest ? TunnelState.West : TunnelState.East;
+			addEvent(EventStream.EXIT, soldiers.direction, soldiers.type(i), pos, 0);
+			return true;
+		}
+		
+		// Check for dead soldiers
+		if(ss == SoldierState.Dying && soldiers.stateTime(i) >= CombatEngine.DYING_DURATION) {
+			soldiers.setState(i, SoldierState.Dead);
+		}
+		
+		// Check for soldier waiting on dying soldier
+		if(i == 0 && ss == SoldierState.Stopped) {
+			if(enemyCount == 0) {
+				// Dying soldier has been cleaned up and there are no enemies left - so walk again
+				soldiers.setState(i, SoldierState.Walking);
+			}
+			else if(enemies.state(0) != SoldierState.Dying) {
+				// Soldier in front is dead already (and might have been removed) - so walk again 
+				soldiers.setState(i, SoldierState.Walking);
+			}
+		}
+		
+		// Check collision with soldier in front
+		if(prev != Tunnel.NOT_IN_TUNNEL) {
+			float distance = distance(soldiers.direction, prev, pos);
+			
+			if(distance <= Soldier.DIAMETER && ss != SoldierState.Stopped) {
+				// stop if caught up to soldier ahead
+				soldiers.setState(i, SoldierState.Stopped);
+			}
+			else if(isClear(soldiers.direction, distance) && ss == SoldierState.Stopped) {
+				// resume moving if soldier ahead is now far enough away
+				soldiers.setState(i, SoldierState.Walking);
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Calculates the distance between a soldier and the soldier in front of it.
+	 * @param direction Direction from which the soldiers entered the tunnel.
+	 * @param prev Position of the soldier in front.
+	 * @param pos Position of the soldier behind.
+	 * @return Distance (m).
+	 */
+	private static float distance(Direction direction, float prev, float pos) {
+		return direction == Direction.West ? prev - pos : pos - prev;
+	}
+	
+	/**
+	 * Determines if a stopped soldier is far enough behind the soldier in front to start walking again.
+	 * @param direction Direction from which the soldier entered the tunnel.
+	 * @param distance Distance to the soldier in front (m).
+	 * @return
+	 */
+	private static boolean isClear(Direction direction, float distance) {
+		return direction == Direction.West ? distance > Soldier.DIAMETER : distance >= Soldier.DIAMETER;
+	}
+	
+	/**
+	 * Determines if this is an endless game in which both players are reinforced every {@link #waveInterval}.
+	 * @return
+	 */
+	public boolean isEndless() {
+		return waveInterval > 0f;
+	}
+	
+	/**
+	 * Gets the time of the next wave of reinforcements in an endless game.
+	 * @return Game time (s).
+	 */
+	protected float nextWaveTime() {
+		return (waves + 1) * waveInterval;
+	}
+	
+	/**
+	 * Gets the time of the next deduction of points for time elapsed.
+	 * @return Game time (s).
+	 */
+	protected float nextScoreTime() {
+		return scoreLastUpdated + SCORE_UPDATE_FREQUENCY;
+	}
+	
+	/**
+	 * Deducts points from both players for time elapsed, if a score update is due.
+	 * @param elapsed Length of the current step (s).
+	 */
+	protected void updateScores(float elapsed) {
+		if(gameTime - scoreLastUpdated >= SCORE_UPDATE_FREQUENCY) {
+			int westScore = west.score;
+			int eastScore = east.score;
+			west.score -= elapsed * POINTS_PER_SECOND;
+			if(west.score < 0) west.score = 0;
+			east.score -= elapsed * POINTS_PER_SECOND;
+			if(east.score < 0) east.score = 0;
+			scoreLastUpdated = gameTime;
+			
+			if(west.score != westScore) addEvent(EventStream.SCORE, Direction.West, SoldierType.NONE, Tunnel.NOT_IN_TUNNEL, west.score);
+			if(east.score != eastScore) addEvent(EventStream.SCORE, Direction.East, SoldierType.NONE, Tunnel.NOT_IN_TUNNEL, east.score);
+		}
+	}
+	
+	/**
+	 * Adds an event at the current game time to the event stream, if there is one.
+	 * @param type Type of event (e.g. {@link EventStream#HIT}).
+	 * @param direction Side the event applies to or {@code null} if none.
+	 * @param soldierType Type of soldier involved or {@link SoldierType#NONE}.
+	 * @param position Position of the soldier (m) or {@link Tunnel#NOT_IN_TUNNEL}.
+	 * @param value Value specific to the type of event (or 0).
+	 */
+	protected void addEvent(int type, Direction direction, int soldierType, float position, int value) {
+		if(events != null) events.add(type, direction, soldierType, position, gameTime, value);
+	}
+	
+	/**
+	 * Copies the complete state of the game into a snapshot.
+	 * The snapshot's buffer is reused so taking repeated snapshots does not allocate.
+	 * The event stream is not part of the game state and is not included.
+	 * @param snapshot Snapshot to write to (any previous contents are replaced).
+	 */
+	public void snapshot(Snapshot snapshot) {
+		snapshot.begin();
+		
+		snapshot.putLong(random.getState());
+		snapshot.putFloat(gameTime);
+		snapshot.putFloat(pausedTime);
+		snapshot.putFloat(scoreLastUpdated);
+		snapshot.putFloat(accumulator);
+		snapshot.putInt(ticks);
+		snapshot.putFloat(waveInterval);
+		snapshot.putInt(waves);
+		snapshot.putBoolean(isPaused);
+		snapshot.putBoolean(isFixedStep);
+		snapshot.putBoolean(isDispatchedWest);
+		snapshot.putBoolean(isDispatchedEast);
+		
+		tunnel.write(snapshot);
+		combat.write(snapshot);
+		west.write(snapshot);
+		east.write(snapshot);
+		
+		snapshot.end();
+	}
+	
+	/**
+	 * Restores the complete state of the game from a snapshot.
+	 * The snapshot must have been taken from an engine with the same types of player (e.g. a copy of this game).
+	 * @param snapshot Snapshot previously written by {@link #snapshot(Snapshot)}.
+	 */
+	public void restore(Snapshot snapshot) {
+		snapshot.rewind();
+		
+		random.setState(snapshot.getLong());
+		gameTime = snapshot.getFloat();
+		pausedTime = snapshot.getFloat();
+		scoreLastUpdated = snapshot.getFloat();
+		accumulator = snapshot.getFloat();
+		ticks = snapshot.getInt();
+		waveInterval = snapshot.getFloat();
+		waves = snapshot.getInt();
+		isPaused = snapshot.getBoolean();
+		isFixedStep = snapshot.getBoolean();
+		isDispatchedWest = snapshot.getBoolean();
+		isDispatchedEast = snapshot.getBoolean();
+		
+		tunnel.read(snapshot);
+		combat.read(snapshot);
+		west.read(snapshot);
+		east.read(snapshot);
+	}
+	
 	/**
 	 * Sends a soldier for one of the players into the tunnel if possible.
 	 * @param direction Direction of the player to send a soldier for.
@@ -294,9 +575,11 @@ public class Engine {
 		Player player = direction == Direction.West ? west : east;
 		
 		if(player.soldiers[soldierType] > 0) {
-			Soldier s = new Soldier(player.direction, soldierType);
 			player.soldiers[soldierType]--;
-			tunnel.enter(s);
+			tunnel.enter(player.direction, soldierType);
+			
+			SoldierStore soldiers = direction == Direction.West ? tunnel.west : tunnel.east;
+			addEvent(EventStream.DISPATCH, direction, soldierType, soldiers.position(soldiers.size() - 1), 0);
 			
 			// If there is a CPU player then notify the AI that a soldier has been dispatched by it's opponent
 			// Record that a soldier has been sent by this player to prevent auto-dispatch
@@ -0,0 +1,254 @@
+package com.supergreenowl.tunnel.controller;
+
+import com.supergreenowl.tunnel.model.CombatEngine;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Soldier;
+import com.supergreenowl.tunnel.model.SoldierState;
+import com.supergreenowl.tunnel.model.SoldierStore;
+import com.supergreenowl.tunnel.model.Tunnel;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Game engine that jumps straight from one interesting event to the next rather than stepping through every tick.
+ * Between events soldiers just walk in straight lines (and timers count up) so many ticks can be simulated at once.
+ * Events are collisions between soldiers, soldiers reaching the enemy, hits, deaths, soldiers leaving the tunnel,
+ * AI players playing and auto-dispatch. Every event tick is simulated by {@link Engine#step(float)} so the outcome
+ * of a game is identical to an {@link Engine} in fixed step mode.
+ * <p>
+ * This relies on {@link Engine#FIXED_STEP} being a power of two so that jumping {@code n} ticks at once gives exactly
+ * the same positions and times as {@code n} separate ticks.
+ * @author luke
+ *
+ */
+public class EventEngine extends Engine {
+	
+	/** Value indicating there is no upcoming event. */
+	private static final int NEVER = Integer.MAX_VALUE;
+	
+	/**
+	 * Creates a new event engine with a randomly chosen seed.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 */
+	public EventEngine(Player west, Player east) {
+		super(west, east);
+		isFixedStep = true;
+	}
+	
+	/**
+	 * Creates a new event engine.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param seed Seed for random decisions made during the game.
+	 */
+	public EventEngine(Player west, Player east, long seed) {
+		super(west, east, seed);
+		isFixedStep = true;
+	}
+	
+	/**
+	 * Creates a new event engine for a game in the specified tunnel.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param seed Seed for random decisions made during the game.
+	 * @param tunnel Empty tunnel in which to play the game.
+	 */
+	public EventEngine(Player west, Player east, long seed, Tunnel tunnel) {
+		super(west, east, seed, tunnel);
+		isFixedStep = true;
+	}
+	
+	@Override
+	public void advance(int count) {
+		
+		while(count > 0 && tunnel.state == TunnelState.Open) {
+			int next = nextEvent();
+			
+			if(next > count) {
+				// Nothing happens before the end of this update
+				skip(count);
+				count = 0;
+			}
+			else {
+				// Jump to the tick before the event then simulate the event tick in full
+				skip(next - 1);
+				ticks++;
+				step(FIXED_STEP);
+				count -= next;
+			}
+		}
+	}
+	
+	/**
+	 * Simulates a number of ticks during which nothing happens other than soldiers walking, timers counting up and
+	 * points being deducted. The game time jumps from one deduction to the next and soldiers are moved once at the end.
+	 * @param count Number of ticks to simulate.
+	 */
+	private void skip(int count) {
+		if(count <= 0) return;
+		
+		ticks += count;
+		float elapsed = count * FIXED_STEP;
+		
+		if(isPaused) {
+			pausedTime += elapsed;
+			return;
+		}
+		
+		// Deduct points on the ticks a stepped engine would (the tick reported by ticksUntil may be early
+		// in which case updateScores does nothing and the next tick is tried)
+		int left = count;
+		int due = ticksUntil(gameTime, nextScoreTime());
+		while(due <= left) {
+			gameTime += due * FIXED_STEP;
+			updateScores(FIXED_STEP);
+			left -= due;
+			due = ticksUntil(gameTime, nextScoreTime());
+		}
+		gameTime += left * FIXED_STEP;
+		
+		tunnel.west.advance(tunnel.west.size(), elapsed);
+		tunnel.east.advance(tunnel.east.size(), elapsed);
+	}
+	
+	/**
+	 * Calculates the number of ticks until the next event. 
+	 * The value returned may be earlier than the actual event but is never later.
+	 * @return Number of ticks from now that the next event will occur on (1 is the next tick); {@link #NEVER} if there are no events.
+	 */
+	private int nextEvent() {
+		
+		if(isPaused) return ticksUntil(pausedTime, PRE_GAME_PAUSE);
+		
+		SoldierStore westSoldiers = tunnel.west;
+		SoldierStore eastSoldiers = tunnel.east;
+		int w = westSoldiers.size();
+		int e = eastSoldiers.size();
+		
+		// Game is about to be drawn
+		if(!isEndless() && w == 0 && e == 0 && west.totalSoldiers() == 0 && east.totalSoldiers() == 0) return 1;
+		
+		// Players
+		int next = ticksUntil(gameTime, west.nextPlayTime());
+		
+		// Reinforcements
+		if(isEndless()) next = Math.min(next, ticksUntil(gameTime, nextWaveTime()));
+		next = Math.min(next, ticksUntil(gameTime, east.nextPlayTime()));
+		
+		// Auto-dispatch
+		if(!isDispatchedWest && west.totalSoldiers() > 0) next = Math.min(next, ticksUntil(gameTime, AUTO_DISPATCH_TIME));
+		if(!isDispatchedEast && east.totalSoldiers() > 0) next = Math.min(next, ticksUntil(gameTime, AUTO_DISPATCH_TIME));
+		
+		// Soldiers
+		next = Math.min(next, nextEvent(westSoldiers, eastSoldiers));
+		next = Math.min(next, nextEvent(eastSoldiers, westSoldiers));
+		
+		if(w > 0 && e > 0) {
+			SoldierState westState = westSoldiers.state(0);
+			SoldierState eastState = eastSoldiers.state(0);
+			
+			// Soldiers at the front of each army meet
+			if(westState == SoldierState.Walking || eastState == SoldierState.Walking) {
+				float closing = 0f;
+				if(westState == SoldierState.Walking) closing += westSoldiers.speed;
+				if(eastState == SoldierState.Walking) closing -= eastSoldiers.speed;
+				
+				float distance = eastSoldiers.position(0) - westSoldiers.position(0);
+				next = Math.min(next, ticksToCover(distance - Soldier.DIAMETER, closing));
+			}
+			
+			// Next hit
+			if(westState == SoldierState.Hitting || eastState == SoldierState.Hitting) {
+				next = Math.min(next, ticksUntil(0f, combat.timeToNextHit(westSoldiers, eastSoldiers)));
+			}
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * Calculates the number of ticks until the next event for soldiers from one direction.
+	 * @param soldiers Soldiers to check.
+	 * @param enemies Soldiers from the opposite direction.
+	 * @return Number of ticks until the next event.
+	 */
+	private int nextEvent(SoldierStore soldiers, SoldierStore enemies) {
+		int next = NEVER;
+		int len = soldiers.size();
+		
+		// Make all distances positive regardless of which way the soldiers are walking
+		float sign = soldiers.direction == Direction.West ? 1f : -1f;
+		float speed = sign * soldiers.speed;
+		float exit = sign * (soldiers.direction == Direction.West ? Tunnel.LENGTH + Soldier.RADIUS : 0f - Soldier.RADIUS);
+		
+		SoldierState prevState = null;
+		float prevPos = 0f;
+		
+		for(int i = 0; i < len; i++) {
+			SoldierState state = soldiers.state(i);
+			float pos = sign * soldiers.position(i);
+			
+			if(state == SoldierState.Walking) {
+				// Soldier leaves the tunnel
+				next = Math.min(next, ticksToCover(exit - pos, speed));
+				
+				// Soldier catches up with the soldier in front
+				if(i > 0) {
+					if(prevState == SoldierState.Walking) {
+						if(prevPos - pos <= Soldier.DIAMETER) return 1;
+					}
+					else next = Math.min(next, ticksToCover(prevPos - pos - Soldier.DIAMETER, speed));
+				}
+			}
+			else if(state == SoldierState.Dying) {
+				next = Math.min(next, ticksUntil(soldiers.stateTime(i), CombatEngine.DYING_DURATION));
+			}
+			else if(state == SoldierState.Stopped) {
+				if(i == 0) {
+					// Soldier at the front starts walking again as soon as the enemy in front is not dying
+					if(enemies.size() == 0 || enemies.state(0) != SoldierState.Dying) return 1;
+				}
+				else if(prevState == SoldierState.Walking) {
+					// Soldier in front is walking away
+					next = Math.min(next, ticksToCover(Soldier.DIAMETER - (prevPos - pos), speed));
+				}
+				else if(prevPos - pos >= Soldier.DIAMETER) return 1;
+			}
+			else if(state != SoldierState.Hitting || i > 0) {
+				// Anything else is unexpected so just simulate the next tick normally
+				return 1;
+			}
+			
+			prevState = state;
+			prevPos = pos;
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * Calculates a lower bound for the number of ticks until a time is reached.
+	 * @param now Current time (s).
+	 * @param time Time to reach (s).
+	 * @return Number of ticks (at least 1).
+	 */
+	private static int ticksUntil(float now, float time) {
+		return ticksToCover(time - now, 1f);
+	}
+	
+	/**
+	 * Calculates a lower bound for the number of ticks it will take to cover a distance at a specified speed.
+	 * Rounding down means an event may be reported a tick early but never late.
+	 * @param distance Distance to cover.
+	 * @param speed Speed at which the distance is covered (per second).
+	 * @return Number of ticks (at least 1); {@link #NEVER} if the distance will never be covered.
+	 */
+	private static int ticksToCover(float distance, float speed) {
+		if(distance <= 0f) return 1;
+		if(speed <= 0f) return NEVER;
+		
+		double ticks = Math.floor(distance / (speed * (double)FIXED_STEP));
+		if(ticks >= NEVER) return NEVER;
+		return Math.max(1, (int)ticks);
+	}
+}
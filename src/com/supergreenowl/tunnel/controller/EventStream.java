@@ -0,0 +1,205 @@
+package com.supergreenowl.tunnel.controller;
+
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.Tunnel;
+
+/**
+ * Fixed size ring buffer of typed game events raised by the engine.
+ * Events are stored in parallel arrays that are allocated up front so raising and draining events never creates garbage.
+ * Consumers read events {@code 0} to {@code size() - 1} once per frame and then {@link #clear()} the stream.
+ * If the stream fills up before it is drained the oldest events are overwritten (and counted by {@link #dropped()}).
+ * @author luke
+ *
+ */
+public class EventStream {
+	
+	/** A player dispatched a soldier. */
+	public static final int DISPATCH = 0;
+	
+	/** A soldier was hit but survived. Value is the soldier's remaining hitpoints. */
+	public static final int HIT = 1;
+	
+	/** A soldier was killed. Value is 0 (its remaining hitpoints). */
+	public static final int DEATH = 2;
+	
+	/** A soldier walked out of the far end of the tunnel and won the game. */
+	public static final int EXIT = 3;
+	
+	/** The game was drawn. There is no side, soldier type or position. */
+	public static final int DRAW = 4;
+	
+	/** A player's score changed. Value is the player's new score. There is no soldier type or position. */
+	public static final int SCORE = 5;
+	
+	/** A soldier was dispatched automatically because the player waited too long (followed by a normal {@link #DISPATCH}). */
+	public static final int AUTO_DISPATCH = 6;
+	
+	/** Number of different event types. */
+	public static final int COUNT = 7;
+	
+	/** Default number of events that can be held before the oldest are overwritten. */
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	/** All directions indexed by ordinal. */
+	private static final Direction[] SIDES = Direction.values();
+	
+	private static final byte NONE = -1;
+	
+	private final byte[] type;
+	private final byte[] side;
+	private final byte[] soldierType;
+	private final float[] position;
+	private final float[] time;
+	private final int[] value;
+	
+	private final int mask;
+	
+	/** Index of the oldest event in the arrays. */
+	private int head;
+	private int size;
+	private int dropped;
+	
+	/**
+	 * Creates a new stream with the default capacity.
+	 */
+	public EventStream() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new stream.
+	 * @param capacity Minimum number of events held before the oldest are overwritten (rounded up to a power of two).
+	 */
+	public EventStream(int capacity) {
+		int length = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1);
+		
+		type = new byte[length];
+		side = new byte[length];
+		soldierType = new byte[length];
+		position = new float[length];
+		time = new float[length];
+		value = new int[length];
+		
+		mask = length - 1;
+		head = size = dropped = 0;
+	}
+	
+	/**
+	 * Adds an event to the end of the stream, overwriting the oldest event if the stream is full.
+	 * @param eventType Type of event (e.g. {@link #HIT}).
+	 * @param direction Side the event applies to or {@code null} if none.
+	 * @param soldier Type of soldier involved or {@link SoldierType#NONE}.
+	 * @param pos Position of the soldier (m) or {@link Tunnel#NOT_IN_TUNNEL}.
+	 * @param gameTime Game time at which the event happened (s).
+	 * @param eventValue Value specific to the type of event (or 0).
+	 */
+	public void add(int eventType, Direction direction, int soldier, float pos, float gameTime, int eventValue) {
+		int i;
+		if(size == type.length) {
+			// Full - overwrite the oldest event
+			i = head;
+			head = (head + 1) & mask;
+			dropped++;
+		}
+		else i = (head + size++) & mask;
+		
+		type[i] = (byte)eventType;
+		side[i] = direction == null ? NONE : (byte)direction.ordinal();
+		soldierType[i] = soldier == SoldierType.NONE ? NONE : (byte)soldier;
+		position[i] = pos;
+		time[i] = gameTime;
+		value[i] = eventValue;
+	}
+	
+	/**
+	 * Removes all events from the stream. The count of dropped events is not reset.
+	 */
+	public void clear() {
+		head = size = 0;
+	}
+	
+	/**
+	 * Gets the number of events in the stream.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the number of events held before the oldest are overwritten.
+	 * @return
+	 */
+	public int capacity() {
+		return type.length;
+	}
+	
+	/**
+	 * Gets the total number of events that have been overwritten before they were drained.
+	 * @return
+	 */
+	public int dropped() {
+		return dropped;
+	}
+	
+	/**
+	 * Gets the type of an event.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return Event type (e.g. {@link #HIT}).
+	 */
+	public int type(int i) {
+		return type[index(i)];
+	}
+	
+	/**
+	 * Gets the side an event applies to.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return Direction from which the player or soldier entered the tunnel or {@code null} if none.
+	 */
+	public Direction side(int i) {
+		byte s = side[index(i)];
+		return s == NONE ? null : SIDES[s];
+	}
+	
+	/**
+	 * Gets the type of soldier involved in an event.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return Soldier type or {@link SoldierType#NONE}.
+	 */
+	public int soldierType(int i) {
+		byte t = soldierType[index(i)];
+		return t == NONE ? SoldierType.NONE : t;
+	}
+	
+	/**
+	 * Gets the position of the soldier involved in an event.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return Position (m) or {@link Tunnel#NOT_IN_TUNNEL}.
+	 */
+	public float position(int i) {
+		return position[index(i)];
+	}
+	
+	/**
+	 * Gets the game time at which an event happened.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return Game time (s).
+	 */
+	public float time(int i) {
+		return time[index(i)];
+	}
+	
+	/**
+	 * Gets the value of an event. The meaning depends on the type of event.
+	 * @param i Index of the event (0 is the oldest).
+	 * @return
+	 */
+	public int value(int i) {
+		return value[index(i)];
+	}
+	
+	private int index(int i) {
+		return (head + i) & mask;
+	}
+}
@@ -28,7 +28,9 @@ public class GameConfig {
 	public enum ArmySize {
 		Small,
 		Medium,
-		Large;
+		Large,
+		Huge,
+		Massive;
 		
 		/**
 		 * Converts an army size into a specific number of coins to spend.
@@ -38,6 +40,8 @@ public class GameConfig {
 			if(this.equals(Small)) return 18;
 			else if(this.equals(Medium)) return 27;
 			else if(this.equals(Large)) return 36;
+			else if(this.equals(Huge)) return 1000;
+			else if(this.equals(Massive)) return 10000;
 			else return 18; // default to small
 		}
 	}
@@ -96,6 +100,11 @@ public class GameConfig {
 	 */
 	public static final int NO_LEVEL = 0;
 	
+	/**
+	 * Time between waves of reinforcements in an endless game (s).
+	 */
+	public static final float WAVE_INTERVAL = 30f;
+	
 	/**
 	 * Number of coins available when purchasing troops.
 	 */
@@ -121,6 +130,11 @@ public class GameConfig {
 	 */
 	public ArmySize armySize;
 	
+	/**
+	 * Indicates if both players are reinforced in waves until one of them wins.
+	 */
+	public boolean isEndless;
+	
 	/**
 	 * Player at the west end.
 	 */
@@ -152,5 +166,6 @@ public class GameConfig {
 		this.armySize = armySize;
 		this.coins = armySize.toCoins();
 		this.levelId = NO_LEVEL;
+		this.isEndless = false;
 	}
 }
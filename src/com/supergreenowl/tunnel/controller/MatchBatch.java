@@ -0,0 +1,244 @@
+package com.supergreenowl.tunnel.controller;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierArrays;
+import com.supergreenowl.tunnel.model.SoldierStore;
+import com.supergreenowl.tunnel.model.Tunnel;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Runs a large number of headless games together in fixed steps.
+ * The soldiers of every game are kept in one set of shared {@link SoldierArrays} (each side of each game has its own block)
+ * and the games are advanced a tick at a time in phases: all players play, then all soldiers move, then all collisions
+ * and combat are resolved. Batches can be split across cores with a {@link ForkJoinPool}.
+ * <p>
+ * Every game produces exactly the same result as it would running on its own {@link Engine} in fixed step mode.
+ * @author luke
+ *
+ */
+public class MatchBatch {
+	
+	/** Maximum number of games advanced together (by one fork-join task). */
+	private static final int GAMES_PER_TASK = 64;
+	
+	/**
+	 * Fork-join task that advances a range of games.
+	 * @author luke
+	 *
+	 */
+	private class AdvanceTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int from;
+		private final int to;
+		private final int ticks;
+		
+		public AdvanceTask(int from, int to, int ticks) {
+			this.from = from;
+			this.to = to;
+			this.ticks = ticks;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from <= GAMES_PER_TASK) {
+				advance(from, to, ticks);
+			}
+			else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new AdvanceTask(from, mid, ticks), new AdvanceTask(mid, to, ticks));
+			}
+		}
+	}
+	
+	/** Number of soldiers each side of a game can have in the tunnel at once. */
+	public final int soldiersPerSide;
+	
+	/** Rules for the soldiers in every game in the batch. */
+	public final Ruleset rules;
+	
+	private final SoldierArrays arrays;
+	private final Engine[] engines;
+	private int size;
+	
+	/** Length of the current step of each game or {@link Engine#NO_STEP} if the game is not stepping. */
+	private final float[] step;
+	
+	/** Number of west soldiers in each game at the start of the current step. */
+	private final int[] westCount;
+	
+	/** Number of east soldiers in each game at the start of the current step. */
+	private final int[] eastCount;
+	
+	/**
+	 * Creates a new empty batch.
+	 * @param games Maximum number of games in the batch.
+	 * @param soldiersPerSide Maximum number of soldiers either player in a game can have (rounded up to a power of 2).
+	 */
+	public MatchBatch(int games, int soldiersPerSide) {
+		this(games, soldiersPerSide, Ruleset.DEFAULT);
+	}
+	
+	/**
+	 * Creates a new empty batch whose games are all played with the specified rules.
+	 * @param games Maximum number of games in the batch.
+	 * @param soldiersPerSide Maximum number of soldiers either player in a game can have (rounded up to a power of 2).
+	 * @param rules Rules for the soldiers in every game.
+	 */
+	public MatchBatch(int games, int soldiersPerSide, Ruleset rules) {
+		this.rules = rules;
+		this.soldiersPerSide = Integer.highestOneBit(Math.max(soldiersPerSide, 1) * 2 - 1);
+		arrays = new SoldierArrays(games * 2 * this.soldiersPerSide);
+		engines = new Engine[games];
+		step = new float[games];
+		westCount = new int[games];
+		eastCount = new int[games];
+		size = 0;
+	}
+	
+	/**
+	 * Adds a game to this batch. Both players must have selected their soldiers already.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param seed Seed for random decisions made during the game.
+	 * @return Engine running the new game (which should only be advanced by this batch).
+	 */
+	public Engine add(Player west, Player east, long seed) {
+		if(size == engines.length) throw new IllegalStateException("The batch is full.");
+		if(selected(west) > soldiersPerSide || selected(east) > soldiersPerSide) {
+			throw new IllegalArgumentException("Players cannot have more than " + soldiersPerSide + " soldiers.");
+		}
+		
+		int offset = size * 2 * soldiersPerSide;
+		Tunnel tunnel = new Tunnel(
+				new SoldierStore(Direction.West, arrays, offset, soldiersPerSide),
+				new SoldierStore(Direction.East, arrays, offset + soldiersPerSide, soldiersPerSide),
+				rules);
+		
+		Engine engine = new Engine(west, east, seed, tunnel);
+		engine.isFixedStep = true;
+		
+		engines[size++] = engine;
+		return engine;
+	}
+	
+	/**
+	 * Counts the soldiers a player has selected (the soldiers they will have once they join a game).
+	 */
+	private static int selected(Player player) {
+		int total = 0;
+		for(int i = 0; i < player.selectedSoldiers.length; i++) {
+			if(player.selectedSoldiers[i] > 0) total += player.selectedSoldiers[i];
+		}
+		return total;
+	}
+	
+	/**
+	 * Gets the number of games in this batch.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the engine running a game in this batch.
+	 * @param i Index of the game (in the order they were added).
+	 * @return Engine.
+	 */
+	public Engine get(int i) {
+		if(i >= size) throw new IndexOutOfBoundsException(Integer.toString(i));
+		return engines[i];
+	}
+	
+	/**
+	 * Removes all games from this batch so that it can be reused.
+	 */
+	public void clear() {
+		for(int i = 0; i < size; i++) engines[i] = null;
+		size = 0;
+	}
+	
+	/**
+	 * Determines if every game in this batch is over.
+	 * @return
+	 */
+	public boolean isFinished() {
+		for(int i = 0; i < size; i++) {
+			if(engines[i].tunnel.state == TunnelState.Open) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Advances every game in this batch by a number of ticks (or until it is over) on the current thread.
+	 * @param ticks Number of ticks of {@link Engine#FIXED_STEP} to advance.
+	 */
+	public void advance(int ticks) {
+		// Advance a group of games at a time so that their players and soldiers stay in the cache
+		for(int from = 0; from < size; from += GAMES_PER_TASK) {
+			advance(from, Math.min(from + GAMES_PER_TASK, size), ticks);
+		}
+	}
+	
+	/**
+	 * Advances every game in this batch by a number of ticks (or until it is over) using a fork-join pool.
+	 * @param ticks Number of ticks of {@link Engine#FIXED_STEP} to advance.
+	 * @param pool Pool to run on.
+	 */
+	public void advance(int ticks, ForkJoinPool pool) {
+		pool.invoke(new AdvanceTask(0, size, ticks));
+	}
+	
+	/**
+	 * Advances a range of games by a number of ticks (or until they are all over).
+	 * @param from Index of the first game (inclusive).
+	 * @param to Index of the last game (exclusive).
+	 * @param ticks Number of ticks to advance.
+	 */
+	private void advance(int from, int to, int ticks) {
+		
+		for(int t = 0; t < ticks; t++) {
+			
+			// Start the step of each game and let the players play
+			boolean isOpen = false;
+			for(int i = from; i < to; i++) {
+				Engine engine = engines[i];
+				step[i] = Engine.NO_STEP;
+				if(engine.tunnel.state != TunnelState.Open) continue;
+				
+				isOpen = true;
+				engine.ticks++;
+				float elapsed = engine.begin(Engine.FIXED_STEP);
+				if(elapsed == Engine.NO_STEP) continue;
+				
+				step[i] = elapsed;
+				westCount[i] = engine.tunnel.west.size();
+				eastCount[i] = engine.tunnel.east.size();
+				engine.play();
+			}
+			
+			if(!isOpen) return;
+			
+			// Move every soldier that was in the tunnel at the start of the step
+			for(int i = from; i < to; i++) {
+				float elapsed = step[i];
+				if(elapsed == Engine.NO_STEP) continue;
+				
+				Tunnel tunnel = engines[i].tunnel;
+				tunnel.west.advance(westCount[i], elapsed);
+				tunnel.east.advance(eastCount[i], elapsed);
+			}
+			
+			// Resolve collisions and combat
+			for(int i = from; i < to; i++) {
+				if(step[i] != Engine.NO_STEP) engines[i].resolve(westCount[i], eastCount[i]);
+			}
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package com.supergreenowl.tunnel.controller;
 
 import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
 import com.supergreenowl.tunnel.model.SoldierType;
-import com.supergreenowl.tunnel.utils.Random;
 
 public class Player {
 	
@@ -37,6 +37,12 @@ public class Player {
 	
 	/** Number of points earnt by this player. */
 	public int score;
+	
+	/**
+	 * Rules this player buys soldiers under. Set this before selecting soldiers for a game with other rules;
+	 * it is replaced by the rules of the game when the player joins an engine.
+	 */
+	public Ruleset rules;
 		
 	/**
 	 * Engine running the game that this player is in.
@@ -48,6 +54,7 @@ public class Player {
 		this.isHuman = isHuman;
 		this.direction = direction;
 		this.score = 0;
+		this.rules = Ruleset.DEFAULT;
 		
 		// Initialise available soldiers array with no soldiers selected
 		soldiers = new int[] { NONE_SELECTED, NONE_SELECTED, NONE_SELECTED, NONE_SELECTED, NONE_SELECTED, NONE_SELECTED, NONE_SELECTED };
@@ -79,7 +86,7 @@ public class Player {
 		
 		for(int i = 0; i < len; i++) {
 			if(selectedSoldiers[i] > 0) {
-				cost += SoldierType.COST[i] * selectedSoldiers[i];
+				cost += rules.cost(i) * selectedSoldiers[i];
 			}
 		}
 		
@@ -94,6 +101,15 @@ public class Player {
 		// Default implementation is empty for human players.
 	}
 	
+	/**
+	 * Gets the earliest game time at which {@link #play(float)} might do anything (for AI players only).
+	 * @return Game time (s) or {@code Float.POSITIVE_INFINITY} if this player never plays by itself.
+	 */
+	public float nextPlayTime() {
+		// Default implementation never plays.
+		return Float.POSITIVE_INFINITY;
+	}
+	
 	/**
 	 * Notifies the player that a soldier has been dispatched by its opponent.
 	 * @param soldierType Type of soldier dispatched.
@@ -110,9 +126,37 @@ public class Player {
 	public void setEngine(Engine engine) {
 		this.engine = engine;
 		this.score = 0;
+		this.rules = engine.tunnel.rules;
 		System.arraycopy(selectedSoldiers, 0, soldiers, 0, selectedSoldiers.length);
 	}
 	
+	/**
+	 * Gives this player another army of the soldiers they selected (for endless games).
+	 */
+	public void reinforce() {
+		for(int i = 0; i < soldiers.length; i++) {
+			if(selectedSoldiers[i] > 0) soldiers[i] += selectedSoldiers[i];
+		}
+	}
+	
+	/**
+	 * Writes the state of this player during a game to a snapshot.
+	 * @param snapshot Snapshot to write to.
+	 */
+	public void write(Snapshot snapshot) {
+		snapshot.putInt(score);
+		for(int i = 0; i < soldiers.length; i++) snapshot.putInt(soldiers[i]);
+	}
+	
+	/**
+	 * Restores the state of this player during a game from a snapshot.
+	 * @param snapshot Snapshot to read from.
+	 */
+	public void read(Snapshot snapshot) {
+		score = snapshot.getInt();
+		for(int i = 0; i < soldiers.length; i++) soldiers[i] = snapshot.getInt();
+	}
+	
 	/**
 	 * Selects one soldier at random that this player has available to dispatch.
 	 * @return Type of the selected soldier or {@link Player.NONE_SELECTED} if no soldiers are available.
@@ -132,7 +176,7 @@ public class Player {
 		// when typeToSend = n is the position of the type to send within the list of ONLY available types
 		// e.g. typeToSend = 2, available types = W, R, B, C
 		// then we should send a blue (W = 0. R = 1, B = 2, C = 3)
-		int typeToSend = Random.nextInt(typesAvailable);
+		int typeToSend = engine.random.nextInt(typesAvailable);
 		
 		// (The reason I'm going to all this trouble is non-selected types can make certain types more likely
 		// if you just loop through the types from a random start location e.g. if you only have RGB then if
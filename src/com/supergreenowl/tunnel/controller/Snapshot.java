@@ -0,0 +1,193 @@
+package com.supergreenowl.tunnel.controller;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Copy of the complete state of a game, encoded in a compact binary form.
+ * Snapshots are taken with {@link Engine#snapshot(Snapshot)} and put back with {@link Engine#restore(Snapshot)}.
+ * The same snapshot can be reused over and over without allocating (once its buffer is big enough).
+ * <p>
+ * Every snapshot starts with {@link #VERSION} so that saved snapshots from older versions of the game can be recognised.
+ * @author luke
+ *
+ */
+public class Snapshot {
+	
+	/** Version of the binary encoding. Must be increased whenever the encoding changes. */
+	public static final short VERSION = 3;
+	
+	private static final int DEFAULT_CAPACITY = 512;
+	
+	private ByteBuffer buffer;
+	
+	/**
+	 * Creates a new empty snapshot.
+	 */
+	public Snapshot() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new empty snapshot.
+	 * @param capacity Initial capacity in bytes. The snapshot grows if more space is needed.
+	 */
+	public Snapshot(int capacity) {
+		buffer = ByteBuffer.allocate(capacity);
+		buffer.limit(0);
+	}
+	
+	/**
+	 * Gets the size of the encoded snapshot.
+	 * @return Size in bytes.
+	 */
+	public int size() {
+		return buffer.limit();
+	}
+	
+	/**
+	 * Gets the encoded snapshot. The contents of the buffer are only valid until the snapshot is next written to.
+	 * @return Buffer containing the snapshot between position 0 and its limit.
+	 */
+	public ByteBuffer buffer() {
+		buffer.rewind();
+		return buffer;
+	}
+	
+	/**
+	 * Replaces the contents of this snapshot with a copy of another snapshot.
+	 * @param other Snapshot to copy.
+	 */
+	public void copy(Snapshot other) {
+		begin();
+		ensure(other.size());
+		buffer.put(other.buffer.array(), 0, other.size());
+		end();
+	}
+	
+	/**
+	 * Writes this snapshot to a stream (e.g. to save a game).
+	 * @param out Stream to write to.
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(size());
+		data.write(buffer.array(), 0, size());
+		data.flush();
+	}
+	
+	/**
+	 * Replaces the contents of this snapshot with a snapshot read from a stream.
+	 * @param in Stream previously written by {@link #write(OutputStream)}.
+	 * @throws IOException
+	 */
+	public void read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		int size = data.readInt();
+		begin();
+		ensure(size);
+		data.readFully(buffer.array(), 0, size);
+		buffer.position(size);
+		end();
+	}
+	
+	/**
+	 * Clears this snapshot and starts writing a new one.
+	 */
+	void begin() {
+		buffer.clear();
+		buffer.putShort(VERSION);
+	}
+	
+	/**
+	 * Finishes writing this snapshot.
+	 */
+	void end() {
+		buffer.flip();
+	}
+	
+	/**
+	 * Starts reading this snapshot from the beginning.
+	 * @throws IllegalArgumentException If this snapshot was encoded with a different version.
+	 */
+	void rewind() {
+		buffer.rewind();
+		short version = buffer.getShort();
+		if(version != VERSION) throw new IllegalArgumentException("Snapshot version " + version + " is not supported (expected " + VERSION + ").");
+	}
+	
+	public void putBoolean(boolean value) {
+		ensure(1);
+		buffer.put(value ? (byte)1 : (byte)0);
+	}
+	
+	public void putByte(int value) {
+		ensure(1);
+		buffer.put((byte)value);
+	}
+	
+	public void putShort(int value) {
+		ensure(2);
+		buffer.putShort((short)value);
+	}
+	
+	public void putInt(int value) {
+		ensure(4);
+		buffer.putInt(value);
+	}
+	
+	public void putLong(long value) {
+		ensure(8);
+		buffer.putLong(value);
+	}
+	
+	public void putFloat(float value) {
+		ensure(4);
+		buffer.putFloat(value);
+	}
+	
+	public boolean getBoolean() {
+		return buffer.get() != 0;
+	}
+	
+	public int getByte() {
+		return buffer.get();
+	}
+	
+	public int getShort() {
+		return buffer.getShort();
+	}
+	
+	public int getInt() {
+		return buffer.getInt();
+	}
+	
+	public long getLong() {
+		return buffer.getLong();
+	}
+	
+	public float getFloat() {
+		return buffer.getFloat();
+	}
+	
+	/**
+	 * Makes sure there is room to write more bytes, growing the buffer if necessary.
+	 * @param bytes Number of bytes about to be written.
+	 */
+	private void ensure(int bytes) {
+		if(buffer.remaining() < bytes) {
+			int capacity = buffer.capacity();
+			while(capacity - buffer.position() < bytes) capacity <<= 1;
+			
+			ByteBuffer bigger = ByteBuffer.allocate(capacity);
+			buffer.flip();
+			bigger.put(buffer);
+			buffer = bigger;
+		}
+	}
+}
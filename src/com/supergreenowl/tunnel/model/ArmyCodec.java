@@ -0,0 +1,239 @@
+package com.supergreenowl.tunnel.model;
+
+/**
+ * Converts armies between strings of soldier characters (such as "{@code WRGBCMY}"), arrays of soldier types and
+ * single {@code long} codes that can be used as keys for caches and indexes without creating any objects.
+ * <p>
+ * An ordered army is packed {@link #BITS_PER_SOLDIER} bits per soldier, first soldier in the lowest bits, as its type + 1
+ * so the unused bits above the last soldier are 0 and the length doesn't have to be stored. Two ordered codes are the
+ * same army in the same order if and only if they are equal. When the order doesn't matter an army is packed as the
+ * number of soldiers of each type, {@link #BITS_PER_TYPE} bits per type; {@link #canonical(long)} gives the ordered code
+ * of the same soldiers in type order.
+ * @author luke
+ *
+ */
+public class ArmyCodec {
+	
+	private ArmyCodec() {}
+	
+	/** Bits used for each soldier in an ordered code. */
+	public static final int BITS_PER_SOLDIER = 3;
+	
+	/** Most soldiers in an army that can be packed into an ordered code. */
+	public static final int MAX_LENGTH = (Long.SIZE - 1) / BITS_PER_SOLDIER;
+	
+	/** Bits used for the number of soldiers of each type in a counts code. */
+	public static final int BITS_PER_TYPE = 9;
+	
+	/** Most soldiers of one type that can be packed into a counts code. */
+	public static final int MAX_COUNT = (1 << BITS_PER_TYPE) - 1;
+	
+	/** Ordered code of an army with no soldiers. */
+	public static final long EMPTY = 0L;
+	
+	/** Characters representing each soldier type, indexed by type. */
+	private static final String CHARS = "WRGBCMY";
+	
+	private static final long SOLDIER_MASK = (1L << BITS_PER_SOLDIER) - 1;
+	private static final long TYPE_MASK = (1L << BITS_PER_TYPE) - 1;
+	
+	/**
+	 * Converts a soldier type to the character representing it.
+	 * @param type
+	 * @return Character corresponding to specified soldier type.
+	 */
+	public static char toChar(int type) {
+		if(type < 0 || type >= SoldierType.COUNT) throw new IllegalArgumentException(type + " is not a valid soldier type");
+		return CHARS.charAt(type);
+	}
+	
+	/**
+	 * Converts a character representing a soldier to a soldier type.
+	 * @param c
+	 * @return Soldier type corresponding to specified character.
+	 */
+	public static int fromChar(char c) {
+		int type = CHARS.indexOf(c);
+		if(type < 0) throw new IllegalArgumentException(Character.toString(c) + " is not a valid soldier type");
+		return type;
+	}
+	
+	/**
+	 * Converts a string of soldier characters to soldier types.
+	 * @param army Soldier characters, e.g. "{@code RRGB}".
+	 * @return New array of soldier types in the same order.
+	 */
+	public static int[] parse(CharSequence army) {
+		int[] types = new int[army.length()];
+		for(int i = 0; i < types.length; i++) types[i] = fromChar(army.charAt(i));
+		return types;
+	}
+	
+	/**
+	 * Converts soldier types to a string of soldier characters.
+	 * @param army Soldier types.
+	 * @return
+	 */
+	public static String toString(int[] army) {
+		return toString(army, 0, army.length);
+	}
+	
+	/**
+	 * Converts part of an army to a string of soldier characters.
+	 * @param army Soldier types.
+	 * @param from Position of the first soldier.
+	 * @param to Position after the last soldier.
+	 * @return
+	 */
+	public static String toString(int[] army, int from, int to) {
+		StringBuilder s = new StringBuilder(to - from);
+		for(int i = from; i < to; i++) s.append(toChar(army[i]));
+		return s.toString();
+	}
+	
+	/**
+	 * Converts an ordered code to a string of soldier characters.
+	 * @param code Ordered code.
+	 * @return
+	 */
+	public static String toString(long code) {
+		StringBuilder s = new StringBuilder(length(code));
+		for(; code != 0L; code >>>= BITS_PER_SOLDIER) s.append(CHARS.charAt((int)(code & SOLDIER_MASK) - 1));
+		return s.toString();
+	}
+	
+	/**
+	 * Packs an army into an ordered code.
+	 * @param army Soldier types in order.
+	 * @return
+	 * @throws IllegalArgumentException If the army has more than {@link #MAX_LENGTH} soldiers.
+	 */
+	public static long encode(int[] army) {
+		if(army.length > MAX_LENGTH) throw new IllegalArgumentException("Armies of more than " + MAX_LENGTH + " soldiers can't be packed.");
+		
+		long code = 0L;
+		for(int i = army.length - 1; i >= 0; i--) code = (code << BITS_PER_SOLDIER) | (army[i] + 1);
+		return code;
+	}
+	
+	/**
+	 * Packs a string of soldier characters into an ordered code.
+	 * @param army Soldier characters in order.
+	 * @return
+	 * @throws IllegalArgumentException If the army has more than {@link #MAX_LENGTH} soldiers or an invalid character.
+	 */
+	public static long encode(CharSequence army) {
+		if(army.length() > MAX_LENGTH) throw new IllegalArgumentException("Armies of more than " + MAX_LENGTH + " soldiers can't be packed.");
+		
+		long code = 0L;
+		for(int i = army.length() - 1; i >= 0; i--) code = (code << BITS_PER_SOLDIER) | (fromChar(army.charAt(i)) + 1);
+		return code;
+	}
+	
+	/**
+	 * Unpacks an ordered code into an array.
+	 * @param code Ordered code.
+	 * @param army Array to put the soldier types in (at least {@link #length(long)} long).
+	 * @return Number of soldiers in the army.
+	 */
+	public static int decode(long code, int[] army) {
+		int n = 0;
+		for(; code != 0L; code >>>= BITS_PER_SOLDIER) army[n++] = (int)(code & SOLDIER_MASK) - 1;
+		return n;
+	}
+	
+	/**
+	 * Unpacks an ordered code.
+	 * @param code Ordered code.
+	 * @return New array of soldier types.
+	 */
+	public static int[] decode(long code) {
+		int[] army = new int[length(code)];
+		decode(code, army);
+		return army;
+	}
+	
+	/**
+	 * Gets the number of soldiers in an ordered code.
+	 * @param code
+	 * @return
+	 */
+	public static int length(long code) {
+		return (Long.SIZE - Long.numberOfLeadingZeros(code) + BITS_PER_SOLDIER - 1) / BITS_PER_SOLDIER;
+	}
+	
+	/**
+	 * Gets the type of one soldier in an ordered code.
+	 * @param code Ordered code.
+	 * @param index Position of the soldier (must be less than {@link #length(long)}).
+	 * @return
+	 */
+	public static int get(long code, int index) {
+		return (int)((code >>> (index * BITS_PER_SOLDIER)) & SOLDIER_MASK) - 1;
+	}
+	
+	/**
+	 * Packs the numbers of each soldier type in an army into a counts code.
+	 * @param army Soldier types (order doesn't matter).
+	 * @return Counts code or -1 if the army has more than {@link #MAX_COUNT} soldiers of some type.
+	 */
+	public static long counts(int[] army) {
+		long counts = 0L;
+		for(int i = 0; i < army.length; i++) {
+			int shift = army[i] * BITS_PER_TYPE;
+			if(((counts >>> shift) & TYPE_MASK) == MAX_COUNT) return -1L;
+			counts += 1L << shift;
+		}
+		return counts;
+	}
+	
+	/**
+	 * Gets the counts code of the soldiers in an ordered code.
+	 * @param code Ordered code.
+	 * @return
+	 */
+	public static long countsOf(long code) {
+		long counts = 0L;
+		for(; code != 0L; code >>>= BITS_PER_SOLDIER) counts += 1L << (((int)(code & SOLDIER_MASK) - 1) * BITS_PER_TYPE);
+		return counts;
+	}
+	
+	/**
+	 * Gets the number of soldiers of one type in a counts code.
+	 * @param counts Counts code.
+	 * @param type Soldier type.
+	 * @return
+	 */
+	public static int count(long counts, int type) {
+		return (int)((counts >>> (type * BITS_PER_TYPE)) & TYPE_MASK);
+	}
+	
+	/**
+	 * Gets the ordered code of the same soldiers as an ordered code in type order,
+	 * so armies with the same soldiers in any order have the same canonical code.
+	 * @param code Ordered code.
+	 * @return
+	 */
+	public static long canonical(long code) {
+		long counts = countsOf(code);
+		long sorted = 0L;
+		for(int t = SoldierType.COUNT - 1; t >= 0; t--) {
+			for(int n = count(counts, t); n > 0; n--) sorted = (sorted << BITS_PER_SOLDIER) | (t + 1);
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Gets a well mixed hash code of a code of either kind, for hash tables that use the low bits.
+	 * @param code
+	 * @return
+	 */
+	public static int hash(long code) {
+		code ^= code >>> 33;
+		code *= 0xFF51AFD7ED558CCDL;
+		code ^= code >>> 33;
+		code *= 0xC4CEB9FE1A85EC53L;
+		code ^= code >>> 33;
+		return (int)code;
+	}
+}
@@ -1,6 +1,7 @@
 package com.supergreenowl.tunnel.model;
 
-import com.supergreenowl.tunnel.controller.CombatListener;
+import com.supergreenowl.tunnel.controller.EventStream;
+import com.supergreenowl.tunnel.controller.Snapshot;
 
 /**
  * Performs combat calculations.
@@ -21,7 +22,7 @@ public class CombatEngine {
 
 
 	/**
-	 * The damage matrix for soldier types. Indexed as attacker, defender.
+	 * The damage matrix for soldier types in the default rules (see {@link Ruleset#DEFAULT}). Indexed as attacker, defender.
 	 */
 	public static final int[][] DAMAGE = new int[][] {
 		{1,1,1,1,1,1,1}, // w
@@ -45,56 +46,120 @@ public class CombatEngine {
 	 */
 	private float eastHit;
 	
+	/** Rules giving the damage done by each blow. */
+	private final Ruleset rules;
+	
 	public CombatEngine() {
+		this(Ruleset.DEFAULT);
+	}
+	
+	/**
+	 * Creates a new combat engine.
+	 * @param rules Rules giving the damage done by each blow.
+	 */
+	public CombatEngine(Ruleset rules) {
+		this.rules = rules;
 		westHit = eastHit = 0f;
 	}
 	
 	/**
-	 * Gets the two specified soldiers to fight.
-	 * @param west
-	 * @param east
+	 * Writes the hit timers to a snapshot.
+	 * @param snapshot Snapshot to write to.
+	 */
+	public void write(Snapshot snapshot) {
+		snapshot.putFloat(westHit);
+		snapshot.putFloat(eastHit);
+	}
+	
+	/**
+	 * Restores the hit timers from a snapshot.
+	 * @param snapshot Snapshot to read from.
+	 */
+	public void read(Snapshot snapshot) {
+		westHit = snapshot.getFloat();
+		eastHit = snapshot.getFloat();
+	}
+	
+	/**
+	 * Calculates how long it will be until either of the soldiers at the front of each army next hits its opponent.
+	 * @param west Soldiers that entered from the west.
+	 * @param east Soldiers that entered from the east.
+	 * @return Time until the next hit (s) or {@code Float.POSITIVE_INFINITY} if neither soldier is hitting.
+	 */
+	public float timeToNextHit(SoldierStore west, SoldierStore east) {
+		float time = Float.POSITIVE_INFINITY;
+		if(west.state(0) == SoldierState.Hitting) time = westHit + HIT_DURATION - west.stateTime(0);
+		if(east.state(0) == SoldierState.Hitting) time = Math.min(time, eastHit + HIT_DURATION - east.stateTime(0));
+		return time;
+	}
+	
+	/**
+	 * Gets the soldiers at the front of each army to fight.
+	 * @param west Soldiers that entered from the west.
+	 * @param east Soldiers that entered from the east.
+	 * @param events Stream to add hit and death events to or {@code null} if no one is listening.
+	 * @param gameTime Current game time (s).
 	 */
-	public void fight(Soldier west, Soldier east, CombatListener listener) {
+	public void fight(SoldierStore west, SoldierStore east, EventStream events, float gameTime) {
+		SoldierState westState = west.state(0);
+		SoldierState eastState = east.state(0);
+		int westType = west.type(0);
+		int eastType = east.type(0);
+		float westStateTime = west.stateTime(0);
+		float eastStateTime = east.stateTime(0);
+		int westHp = west.hp(0);
+		int eastHp = east.hp(0);
+		
 		// Time since each combatant last hit their opponent
-		float westTime = west.stateTime - westHit;
-		float eastTime = east.stateTime - eastHit;
+		float westTime = westStateTime - westHit;
+		float eastTime = eastStateTime - eastHit;
 		
 		// Determine if the soldiers are ready to hit again yet
-		boolean isWestHitting = west.state == SoldierState.Hitting && westTime >= HIT_DURATION;
-		boolean isEastHitting = east.state == SoldierState.Hitting && eastTime >= HIT_DURATION;
+		boolean isWestHitting = westState == SoldierState.Hitting && westTime >= HIT_DURATION;
+		boolean isEastHitting = eastState == SoldierState.Hitting && eastTime >= HIT_DURATION;
 		
 		// Combat is simultaneous so perform both attacks before checking if anyone died
 		if(isWestHitting) {
-			east.hp -= DAMAGE[west.type][east.type];
-			westHit = west.stateTime;
+			eastHp -= rules.damage(westType, eastType);
+			east.setHp(0, eastHp);
+			westHit = westStateTime;
 		}
 		
 		if(isEastHitting) {
-			west.hp -= DAMAGE[east.type][west.type];
-			eastHit = east.stateTime;
+			westHp -= rules.damage(eastType, westType);
+			west.setHp(0, westHp);
+			eastHit = eastStateTime;
 		}
 		
 		// Check if west is dead
-		if(west.hp <= 0) {
-			west.setState(SoldierState.Dying);
-			if(east.hp > 0) east.setState(SoldierState.Stopped); // east stops and waits for west to die
+		if(westHp <= 0) {
+			west.setState(0, SoldierState.Dying);
+			if(eastHp > 0) east.setState(0, SoldierState.Stopped); // east stops and waits for west to die
 			westHit = eastHit = 0f; // Combat has ended so reset hit timers
 		}
 		
-		if(east.hp <= 0) {
-			east.setState(SoldierState.Dying);
-			if(west.hp > 0) west.setState(SoldierState.Stopped);
+		if(eastHp <= 0) {
+			east.setState(0, SoldierState.Dying);
+			if(westHp > 0) west.setState(0, SoldierState.Stopped);
 			westHit = eastHit = 0f;
 		}
 		
-		if(listener != null) {
-			if(west.hp <= 0 || east.hp <= 0) {
-				listener.onDeath();
-			}
-			else if(isWestHitting || isEastHitting) {
-				listener.onHit();
-			}
+		if(events != null) {
+			if(isEastHitting) add(events, west, westHp, gameTime);
+			if(isWestHitting) add(events, east, eastHp, gameTime);
 		}
 	}
+	
+	/**
+	 * Adds a hit or death event for the soldier at the front of an army that has just been hit.
+	 * @param events Stream to add the event to.
+	 * @param soldiers Army of the soldier that was hit.
+	 * @param hp Soldier's remaining hitpoints.
+	 * @param gameTime Current game time (s).
+	 */
+	private static void add(EventStream events, SoldierStore soldiers, int hp, float gameTime) {
+		int type = hp <= 0 ? EventStream.DEATH : EventStream.HIT;
+		events.add(type, soldiers.direction, soldiers.type(0), soldiers.position(0), gameTime, Math.max(hp, 0));
+	}
 
 }
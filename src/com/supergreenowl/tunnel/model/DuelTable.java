@@ -0,0 +1,136 @@
+package com.supergreenowl.tunnel.model;
+
+/**
+ * Precomputed outcomes of a duel between two soldiers.
+ * The outcome of a duel only depends on the types and hitpoints of the two soldiers so every possible duel is
+ * worked out once from a {@link Ruleset} and stored in flat arrays.
+ * Resolving a duel is then a single lookup: get an index from {@link #index(int, int, int, int)} and read the outcome with it.
+ * @author luke
+ *
+ */
+public class DuelTable {
+	
+	/** All tunnel states indexed by ordinal. */
+	private static final TunnelState[] STATES = TunnelState.values();
+	
+	/** Number of different hitpoint values (0 to the most hitpoints any soldier has). */
+	private final int hpCount;
+	
+	/** West soldier's hitpoints at the end of each duel (0 if dead). */
+	private final byte[] westHp;
+	
+	/** East soldier's hitpoints at the end of each duel (0 if dead). */
+	private final byte[] eastHp;
+	
+	/** Number of exchanges of blows in each duel. */
+	private final byte[] exchanges;
+	
+	/** Ordinal of the {@link TunnelState} indicating the winner of each duel. */
+	private final byte[] winner;
+	
+	/**
+	 * Works out the outcome of every duel under a set of rules.
+	 * @param rules Rules for the soldiers.
+	 */
+	DuelTable(Ruleset rules) {
+		hpCount = rules.maxHitpoints() + 1;
+		
+		int length = SoldierType.COUNT * SoldierType.COUNT * hpCount * hpCount;
+		westHp = new byte[length];
+		eastHp = new byte[length];
+		exchanges = new byte[length];
+		winner = new byte[length];
+		
+		for(int w = 0; w < SoldierType.COUNT; w++) {
+			for(int e = 0; e < SoldierType.COUNT; e++) {
+				int westDamage = rules.damage(e, w);
+				int eastDamage = rules.damage(w, e);
+				
+				for(int wh = 0; wh < hpCount; wh++) {
+					for(int eh = 0; eh < hpCount; eh++) {
+						int westRemaining = wh;
+						int eastRemaining = eh;
+						int count = 0;
+						
+						// Blows are simultaneous - if neither soldier can hurt the other then no one ever wins
+						if(westDamage > 0 || eastDamage > 0) {
+							while(westRemaining > 0 && eastRemaining > 0) {
+								westRemaining -= westDamage;
+								eastRemaining -= eastDamage;
+								count++;
+							}
+						}
+						
+						TunnelState state;
+						if(westRemaining <= 0) state = eastRemaining <= 0 ? TunnelState.Draw : TunnelState.East;
+						else state = eastRemaining <= 0 ? TunnelState.West : TunnelState.Open;
+						
+						int i = index(w, e, wh, eh);
+						westHp[i] = (byte)Math.max(westRemaining, 0);
+						eastHp[i] = (byte)Math.max(eastRemaining, 0);
+						exchanges[i] = (byte)count;
+						winner[i] = (byte)state.ordinal();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets the index of a duel in the table.
+	 * @param westType Type of the soldier that entered from the west.
+	 * @param eastType Type of the soldier that entered from the east.
+	 * @param westHp Hitpoints of the west soldier at the start of the duel (0 to {@link Ruleset#maxHitpoints()}).
+	 * @param eastHp Hitpoints of the east soldier at the start of the duel (0 to {@link Ruleset#maxHitpoints()}).
+	 * @return Index to pass to the other methods of this class.
+	 */
+	public int index(int westType, int eastType, int westHp, int eastHp) {
+		return ((westType * SoldierType.COUNT + eastType) * hpCount + westHp) * hpCount + eastHp;
+	}
+	
+	/**
+	 * Gets the west soldier's hitpoints at the end of a duel.
+	 * @param duel Index of the duel.
+	 * @return Hitpoints or 0 if the west soldier died.
+	 */
+	public int westHp(int duel) {
+		return westHp[duel];
+	}
+	
+	/**
+	 * Gets the east soldier's hitpoints at the end of a duel.
+	 * @param duel Index of the duel.
+	 * @return Hitpoints or 0 if the east soldier died.
+	 */
+	public int eastHp(int duel) {
+		return eastHp[duel];
+	}
+	
+	/**
+	 * Gets the number of exchanges of blows before a duel ends.
+	 * @param duel Index of the duel.
+	 * @return
+	 */
+	public int exchanges(int duel) {
+		return exchanges[duel];
+	}
+	
+	/**
+	 * Gets the time from the start of a duel until one or both soldiers are killed.
+	 * @param duel Index of the duel.
+	 * @return Time (s).
+	 */
+	public float timeToKill(int duel) {
+		return exchanges[duel] * CombatEngine.HIT_DURATION;
+	}
+	
+	/**
+	 * Gets the winner of a duel.
+	 * @param duel Index of the duel.
+	 * @return {@link TunnelState#West} or {@link TunnelState#East} if that soldier survived, {@link TunnelState#Draw} if both died
+	 * or {@link TunnelState#Open} if neither soldier can hurt the other.
+	 */
+	public TunnelState winner(int duel) {
+		return STATES[winner[duel]];
+	}
+}
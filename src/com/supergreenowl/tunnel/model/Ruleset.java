@@ -0,0 +1,271 @@
+package com.supergreenowl.tunnel.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Immutable set of rules for the soldiers in a game: cost, hitpoints and damage for each soldier type.
+ * Rules are held in flat arrays along with tables derived from them ({@link #duels} and the counters of each type).
+ * <p>
+ * The built-in rules are {@link #DEFAULT}. Other rules can be loaded from a file with one line per soldier type
+ * (in the order WRGBCMY) of the form {@code W;cost;hitpoints;damage to W,R,G,B,C,M,Y}.
+ * Blank lines and lines starting with {@code #} are ignored.
+ * @author luke
+ *
+ */
+public final class Ruleset {
+	
+	/** Rules built in to the game ({@link SoldierType#COST}, {@link SoldierType#HITPOINTS} and {@link CombatEngine#DAMAGE}). */
+	public static final Ruleset DEFAULT = new Ruleset(SoldierType.COST, SoldierType.HITPOINTS, CombatEngine.DAMAGE);
+	
+	/** Most hitpoints a soldier can have (so that the duel table can use bytes). */
+	public static final int MAX_HITPOINTS = Byte.MAX_VALUE;
+	
+	private static final String NAMES = "WRGBCMY";
+	
+	private static final String DELIMITER = ";";
+	private static final String SEPARATOR = ",";
+	private static final String COMMENT = "#";
+	private static final int EXPECTED_PARTS = 4;
+	
+	private static final int NAME = 0;
+	private static final int COST = 1;
+	private static final int HITPOINTS = 2;
+	private static final int DAMAGE = 3;
+	
+	private final int[] cost;
+	private final int[] hitpoints;
+	
+	/** Damage matrix indexed by {@code attacker * SoldierType.COUNT + defender}. */
+	private final int[] damage;
+	
+	private final int maxHp;
+	
+	/** Types that beat each soldier type in a duel at full hitpoints (indexed by the type beaten). */
+	private final int[][] counters;
+	
+	/** Types that each soldier type beats in a duel at full hitpoints. */
+	private final int[][] victims;
+	
+	/** Outcomes of every possible duel under these rules. */
+	public final DuelTable duels;
+	
+	/**
+	 * Creates a new set of rules. The arrays are copied.
+	 * @param cost Cost of each soldier type (at least 1).
+	 * @param hitpoints Hitpoints of each soldier type (1 to {@link #MAX_HITPOINTS}).
+	 * @param damage Damage matrix indexed as attacker, defender.
+	 */
+	public Ruleset(int[] cost, int[] hitpoints, int[][] damage) {
+		if(cost.length != SoldierType.COUNT || hitpoints.length != SoldierType.COUNT || damage.length != SoldierType.COUNT) {
+			throw new IllegalArgumentException("Rules must be given for " + SoldierType.COUNT + " soldier types.");
+		}
+		
+		this.cost = new int[SoldierType.COUNT];
+		this.hitpoints = new int[SoldierType.COUNT];
+		this.damage = new int[SoldierType.COUNT * SoldierType.COUNT];
+		
+		int max = 0;
+		for(int a = 0; a < SoldierType.COUNT; a++) {
+			if(cost[a] < 1) throw new IllegalArgumentException("Cost must be at least 1: " + cost[a]);
+			if(hitpoints[a] < 1 || hitpoints[a] > MAX_HITPOINTS) throw new IllegalArgumentException("Hitpoints out of range: " + hitpoints[a]);
+			if(damage[a].length != SoldierType.COUNT) throw new IllegalArgumentException("Damage must be given for " + SoldierType.COUNT + " soldier types.");
+			
+			this.cost[a] = cost[a];
+			this.hitpoints[a] = hitpoints[a];
+			max = Math.max(max, hitpoints[a]);
+			
+			for(int d = 0; d < SoldierType.COUNT; d++) {
+				if(damage[a][d] < 0) throw new IllegalArgumentException("Damage cannot be negative: " + damage[a][d]);
+				this.damage[a * SoldierType.COUNT + d] = damage[a][d];
+			}
+		}
+		maxHp = max;
+		
+		duels = new DuelTable(this);
+		
+		counters = new int[SoldierType.COUNT][];
+		victims = new int[SoldierType.COUNT][];
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			int c = 0, v = 0;
+			for(int o = 0; o < SoldierType.COUNT; o++) {
+				if(beats(o, t)) c++;
+				if(beats(t, o)) v++;
+			}
+			
+			counters[t] = new int[c];
+			victims[t] = new int[v];
+			c = v = 0;
+			for(int o = 0; o < SoldierType.COUNT; o++) {
+				if(beats(o, t)) counters[t][c++] = o;
+				if(beats(t, o)) victims[t][v++] = o;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the cost of a soldier type.
+	 * @param type Soldier type.
+	 * @return
+	 */
+	public int cost(int type) {
+		return cost[type];
+	}
+	
+	/**
+	 * Gets the number of hitpoints a soldier type starts with.
+	 * @param type Soldier type.
+	 * @return
+	 */
+	public int hitpoints(int type) {
+		return hitpoints[type];
+	}
+	
+	/**
+	 * Gets the most hitpoints any soldier type starts with.
+	 * @return
+	 */
+	public int maxHitpoints() {
+		return maxHp;
+	}
+	
+	/**
+	 * Gets the damage done by one blow.
+	 * @param attacker Type of the soldier striking the blow.
+	 * @param defender Type of the soldier being hit.
+	 * @return Hitpoints lost by the defender.
+	 */
+	public int damage(int attacker, int defender) {
+		return damage[attacker * SoldierType.COUNT + defender];
+	}
+	
+	/**
+	 * Determines if one soldier type survives a duel with another that kills its opponent (both at full hitpoints).
+	 * @param winner Soldier type that might win.
+	 * @param loser Soldier type that might lose.
+	 * @return
+	 */
+	public boolean beats(int winner, int loser) {
+		int duel = duels.index(winner, loser, hitpoints[winner], hitpoints[loser]);
+		return duels.winner(duel) == TunnelState.West;
+	}
+	
+	/**
+	 * Gets the soldier types that beat a soldier type (see {@link #beats(int, int)}).
+	 * @param type Soldier type to counter.
+	 * @return New array of the types that counter {@code type} in type order.
+	 */
+	public int[] counters(int type) {
+		return counters[type].clone();
+	}
+	
+	/**
+	 * Gets the soldier types that a soldier type beats (see {@link #beats(int, int)}).
+	 * @param type Soldier type.
+	 * @return New array of the types beaten by {@code type} in type order.
+	 */
+	public int[] victims(int type) {
+		return victims[type].clone();
+	}
+	
+	/**
+	 * Gets the number of soldiers of one type that have to be sent one after another to kill a soldier of another type.
+	 * @param attacker Type of the soldiers sent.
+	 * @param defender Type of the soldier to kill.
+	 * @return Number of soldiers or 0 if the attacker can't hurt the defender.
+	 */
+	public int needed(int attacker, int defender) {
+		if(damage(attacker, defender) == 0) return 0;
+		
+		int hp = hitpoints[defender];
+		int n = 0;
+		while(hp > 0) {
+			hp = duels.eastHp(duels.index(attacker, defender, hitpoints[attacker], hp));
+			n++;
+		}
+		return n;
+	}
+	
+	/**
+	 * Loads a set of rules.
+	 * @param reader Reader to load the rules from (it is not closed).
+	 * @return New set of rules.
+	 * @throws IOException If the rules could not be read.
+	 * @throws IllegalArgumentException If the rules are not valid.
+	 */
+	public static Ruleset load(Reader reader) throws IOException {
+		int[] cost = new int[SoldierType.COUNT];
+		int[] hitpoints = new int[SoldierType.COUNT];
+		int[][] damage = new int[SoldierType.COUNT][];
+		
+		BufferedReader in = new BufferedReader(reader);
+		String line = null;
+		int type = 0;
+		
+		while((line = in.readLine()) != null) {
+			line = line.trim();
+			if(line.length() == 0 || line.startsWith(COMMENT)) continue;
+			
+			String[] components = line.split(DELIMITER);
+			if(components.length != EXPECTED_PARTS || type == SoldierType.COUNT) throw new IllegalArgumentException(line);
+			if(!components[NAME].equals(NAMES.substring(type, type + 1))) {
+				throw new IllegalArgumentException("Expected rules for " + NAMES.charAt(type) + ": " + line);
+			}
+			
+			String[] values = components[DAMAGE].split(SEPARATOR);
+			if(values.length != SoldierType.COUNT) throw new IllegalArgumentException(line);
+			
+			try {
+				cost[type] = Integer.parseInt(components[COST].trim());
+				hitpoints[type] = Integer.parseInt(components[HITPOINTS].trim());
+				damage[type] = new int[SoldierType.COUNT];
+				for(int i = 0; i < SoldierType.COUNT; i++) damage[type][i] = Integer.parseInt(values[i].trim());
+			}
+			catch(NumberFormatException e) {
+				throw new IllegalArgumentException(line);
+			}
+			
+			type++;
+		}
+		
+		if(type != SoldierType.COUNT) throw new IllegalArgumentException("Rules must be given for " + SoldierType.COUNT + " soldier types.");
+		
+		return new Ruleset(cost, hitpoints, damage);
+	}
+	
+	/**
+	 * Writes these rules in the format read by {@link #load(Reader)}.
+	 * @param writer Writer to write to (it is not closed).
+	 * @throws IOException
+	 */
+	public void write(Writer writer) throws IOException {
+		writer.write(COMMENT + " type;cost;hitpoints;damage to " + NAMES + "\n");
+		for(int a = 0; a < SoldierType.COUNT; a++) {
+			StringBuilder line = new StringBuilder();
+			line.append(NAMES.charAt(a)).append(DELIMITER).append(cost[a]).append(DELIMITER).append(hitpoints[a]).append(DELIMITER);
+			for(int d = 0; d < SoldierType.COUNT; d++) {
+				if(d > 0) line.append(SEPARATOR);
+				line.append(damage(a, d));
+			}
+			writer.write(line.append('\n').toString());
+		}
+	}
+	
+	/**
+	 * Gets these rules in the format read by {@link #load(Reader)}.
+	 */
+	@Override
+	public String toString() {
+		StringWriter writer = new StringWriter();
+		try {
+			write(writer);
+		}
+		catch(IOException e) {
+			// Writing to a string can't fail
+		}
+		return writer.toString();
+	}
+}
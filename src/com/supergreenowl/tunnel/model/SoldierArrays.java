@@ -0,0 +1,50 @@
+package com.supergreenowl.tunnel.model;
+
+/**
+ * Parallel primitive arrays holding the soldiers of one or more {@link SoldierStore}s.
+ * Many stores can share one set of arrays (each using its own block of elements) so that the soldiers of lots of games
+ * are kept together in memory.
+ * @author luke
+ *
+ */
+public class SoldierArrays {
+	
+	/** Position of each soldier (m). */
+	public final float[] position;
+	
+	/** Time each soldier has been in its current state (s). */
+	public final float[] stateTime;
+	
+	/** Speed at which each soldier is currently moving (m/s) - zero unless the soldier is walking. */
+	public final float[] velocity;
+	
+	/** State of each soldier (as a {@link SoldierState} ordinal). */
+	public final int[] state;
+	
+	/** Hitpoints each soldier has remaining. */
+	public final int[] hp;
+	
+	/** Type of each soldier. */
+	public final int[] type;
+	
+	/**
+	 * Creates new arrays.
+	 * @param capacity Number of soldiers that can be held.
+	 */
+	public SoldierArrays(int capacity) {
+		position = new float[capacity];
+		stateTime = new float[capacity];
+		velocity = new float[capacity];
+		state = new int[capacity];
+		hp = new int[capacity];
+		type = new int[capacity];
+	}
+	
+	/**
+	 * Gets the number of soldiers that can be held.
+	 * @return
+	 */
+	public int capacity() {
+		return position.length;
+	}
+}
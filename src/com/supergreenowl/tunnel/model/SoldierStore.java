@@ -0,0 +1,439 @@
+package com.supergreenowl.tunnel.model;
+
+import com.supergreenowl.tunnel.controller.Snapshot;
+
+/**
+ * Soldiers in the tunnel from one direction, stored as parallel primitive arrays rather than as {@link Soldier} objects.
+ * Soldiers are kept in the order they entered the tunnel in a ring buffer so the soldier at the front can be removed without
+ * shifting the rest of the array. Index {@code 0} is always the soldier at the front.
+ * <p>
+ * A store normally owns its arrays and grows as needed. Alternatively it can use a fixed block of a larger set of
+ * {@link SoldierArrays} shared with other stores (see {@link #SoldierStore(Direction, SoldierArrays, int, int)}).
+ * @author luke
+ *
+ */
+public class SoldierStore {
+	
+	/** Initial number of soldiers that can be stored before the arrays need to grow. Must be a power of 2. */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** All soldier states indexed by ordinal (cached as {@code values()} creates a new array each call). */
+	private static final SoldierState[] STATES = SoldierState.values();
+	
+	private static final int WALKING = SoldierState.Walking.ordinal();
+	
+	/** Direction from which the soldiers in this store entered the tunnel. */
+	public final Direction direction;
+	
+	/** Speed at which soldiers in this store walk (m/s). Negative for soldiers walking west. */
+	public final float speed;
+	
+	/** Rules that give the hitpoints of new soldiers (set by the {@link Tunnel} that uses this store). */
+	private Ruleset rules;
+	
+	private float[] position;
+	private float[] stateTime;
+	private float[] velocity;
+	private int[] state;
+	private int[] hp;
+	private int[] type;
+	
+	/** Index into the arrays of the first element of the block used by this store. */
+	private final int offset;
+	
+	/** Indicates if this store owns its arrays and can grow them when full. */
+	private final boolean isGrowable;
+	
+	/** Index (relative to {@link #offset}) of the soldier at the front. */
+	private int head;
+	
+	/** Number of soldiers in this store. */
+	private int size;
+	
+	/** Mask used to wrap indices into the arrays (capacity - 1). */
+	private int mask;
+	
+	/** Index of the first soldier in the group of resting soldiers (see {@link #rest(int)}). */
+	private int restFrom;
+	
+	/** Index of the soldier after the last soldier in the group of resting soldiers. */
+	private int restTo;
+	
+	/**
+	 * Time that has passed while the group of resting soldiers has existed (s).
+	 * Resting soldiers are not advanced - their time in state is stored relative to this instead.
+	 */
+	private float restTime;
+	
+	/**
+	 * Creates a new empty store.
+	 * @param direction Direction from which the soldiers entered the tunnel.
+	 */
+	public SoldierStore(Direction direction) {
+		this.direction = direction;
+		this.speed = direction == Direction.East ? -Soldier.SPEED : Soldier.SPEED;
+		this.offset = 0;
+		this.isGrowable = true;
+		this.rules = Ruleset.DEFAULT;
+		head = size = 0;
+		allocate(INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new empty store that keeps its soldiers in a block of shared arrays.
+	 * The store cannot grow so the block must be big enough for all the soldiers that will ever be in the tunnel at once.
+	 * @param direction Direction from which the soldiers entered the tunnel.
+	 * @param arrays Shared arrays.
+	 * @param offset Index of the first element of the block to use.
+	 * @param capacity Number of elements in the block. Must be a power of 2.
+	 */
+	public SoldierStore(Direction direction, SoldierArrays arrays, int offset, int capacity) {
+		if(Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of 2.");
+		if(offset < 0 || offset + capacity > arrays.capacity()) throw new IllegalArgumentException("Block is outside the arrays.");
+		
+		this.direction = direction;
+		this.speed = direction == Direction.East ? -Soldier.SPEED : Soldier.SPEED;
+		this.offset = offset;
+		this.isGrowable = false;
+		this.rules = Ruleset.DEFAULT;
+		head = size = 0;
+		use(arrays);
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Sets the rules that give the hitpoints of new soldiers.
+	 * @param rules Rules for the game.
+	 */
+	void setRules(Ruleset rules) {
+		this.rules = rules;
+	}
+	
+	/**
+	 * Gets the number of soldiers in this store.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Gets the position of a soldier in the tunnel.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return Position (m).
+	 */
+	public float position(int i) {
+		return position[index(i)];
+	}
+	
+	/**
+	 * Gets the time a soldier has been in its current state.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return Time in state (s).
+	 */
+	public float stateTime(int i) {
+		float time = stateTime[index(i)];
+		if(i >= restFrom && i < restTo) time += restTime;
+		return time;
+	}
+	
+	/**
+	 * Gets the current state of a soldier.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return State.
+	 */
+	public SoldierState state(int i) {
+		return STATES[state[index(i)]];
+	}
+	
+	/**
+	 * Gets the number of hitpoints a soldier has remaining.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return Hitpoints.
+	 */
+	public int hp(int i) {
+		return hp[index(i)];
+	}
+	
+	/**
+	 * Gets the number of hitpoints a soldier started with.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return Original hitpoints.
+	 */
+	public int maxHp(int i) {
+		return rules.hitpoints(type[index(i)]);
+	}
+	
+	/**
+	 * Gets the type of a soldier.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @return Soldier type.
+	 */
+	public int type(int i) {
+		return type[index(i)];
+	}
+	
+	/**
+	 * Sets the position of a soldier.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @param position New position (m).
+	 */
+	public void setPosition(int i, float position) {
+		this.position[index(i)] = position;
+	}
+	
+	/**
+	 * Sets the number of hitpoints a soldier has remaining.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @param hp Hitpoints.
+	 */
+	public void setHp(int i, int hp) {
+		this.hp[index(i)] = hp;
+	}
+	
+	/**
+	 * Sets the state of a soldier and resets its time in current state (if the state has changed).
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 * @param state New state.
+	 */
+	public void setState(int i, SoldierState state) {
+		int j = index(i);
+		int s = state.ordinal();
+		if(this.state[j] != s) {
+			this.state[j] = s;
+			this.stateTime[j] = 0f;
+			this.velocity[j] = s == WALKING ? speed : 0f;
+		}
+	}
+	
+	/**
+	 * Adds a soldier to the back of this store.
+	 * @param soldierType Type of soldier.
+	 * @param position Position of the soldier (m).
+	 * @param soldierState Initial state of the soldier.
+	 */
+	public void add(int soldierType, float position, SoldierState soldierState) {
+		if(size > mask) {
+			if(!isGrowable) throw new IllegalStateException("There is no room for any more soldiers.");
+			allocate((mask + 1) << 1);
+		}
+		
+		int j = index(size);
+		int s = soldierState.ordinal();
+		this.position[j] = position;
+		this.stateTime[j] = 0f;
+		this.velocity[j] = s == WALKING ? speed : 0f;
+		this.state[j] = s;
+		this.hp[j] = rules.hitpoints(soldierType);
+		this.type[j] = soldierType;
+		size++;
+	}
+	
+	/**
+	 * Removes the soldier at the front of this store.
+	 */
+	public void removeFirst() {
+		if(size == 0) throw new IllegalStateException("There are no soldiers to remove.");
+		
+		head = (head + 1) & mask;
+		size--;
+		
+		// Shift the resting group forward (the soldier at the front is never resting)
+		if(restTo > 0) {
+			restTo--;
+			if(--restFrom == 0) wake(-1); // first resting soldier is now at the front so wakes up
+		}
+	}
+	
+	/**
+	 * Removes all soldiers from this store.
+	 */
+	public void clear() {
+		head = size = 0;
+		restFrom = restTo = 0;
+		restTime = 0f;
+	}
+	
+	/**
+	 * Gets the index of the first soldier in the group of resting soldiers.
+	 * @return Index or 0 if no soldiers are resting.
+	 */
+	public int restFrom() {
+		return restFrom;
+	}
+	
+	/**
+	 * Gets the index of the soldier after the last soldier in the group of resting soldiers.
+	 * @return Index or 0 if no soldiers are resting.
+	 */
+	public int restTo() {
+		return restTo;
+	}
+	
+	/**
+	 * Records that a soldier has come to rest. A soldier is resting if it is stopped too close to the soldier in front
+	 * to start walking and the soldier in front is not walking either - so nothing can change for it until the soldier
+	 * in front moves. Resting soldiers are not moved by {@link #advance(int, float)} and must not be changed until woken.
+	 * Only one group of resting soldiers is kept so the soldier is ignored unless it is next to the group.
+	 * @param i Index of the soldier (never the soldier at the front).
+	 */
+	public void rest(int i) {
+		if(restFrom == restTo) {
+			restFrom = i;
+			restTo = i + 1;
+		}
+		else if(i == restTo) restTo++;
+		else if(i + 1 == restFrom) restFrom--;
+		else return;
+		
+		stateTime[index(i)] -= restTime;
+	}
+	
+	/**
+	 * Records that a soldier is walking, so if the soldier behind it was resting it needs to be updated again.
+	 * @param i Index of the soldier.
+	 */
+	public void wake(int i) {
+		if(i + 1 == restFrom) {
+			stateTime[index(restFrom)] += restTime;
+			
+			if(++restFrom == restTo) {
+				restFrom = restTo = 0;
+				restTime = 0f;
+			}
+		}
+	}
+	
+	/**
+	 * Writes all soldiers in this store to a snapshot.
+	 * @param snapshot Snapshot to write to.
+	 */
+	public void write(Snapshot snapshot) {
+		snapshot.putInt(size);
+		for(int i = 0; i < size; i++) {
+			int j = index(i);
+			snapshot.putFloat(position[j]);
+			snapshot.putFloat(stateTime(i));
+			snapshot.putByte(state[j]);
+			snapshot.putByte(type[j]);
+			snapshot.putShort(hp[j]);
+		}
+	}
+	
+	/**
+	 * Replaces all soldiers in this store with those read from a snapshot.
+	 * @param snapshot Snapshot to read from.
+	 */
+	public void read(Snapshot snapshot) {
+		int count = snapshot.getInt();
+		clear();
+		if(count > mask + 1) {
+			if(!isGrowable) throw new IllegalStateException("There is no room for " + count + " soldiers.");
+			allocate(Integer.highestOneBit(count - 1) << 1);
+		}
+		
+		for(int i = 0; i < count; i++) {
+			int j = offset + i;
+			position[j] = snapshot.getFloat();
+			stateTime[j] = snapshot.getFloat();
+			state[j] = snapshot.getByte();
+			type[j] = snapshot.getByte();
+			hp[j] = snapshot.getShort();
+			velocity[j] = state[j] == WALKING ? speed : 0f;
+		}
+		size = count;
+	}
+	
+	/**
+	 * Advances the time in state of the soldiers at the front of this store and moves those that are walking.
+	 * Resting soldiers are skipped.
+	 * @param count Number of soldiers to advance (starting from the front) - this must include any resting soldiers.
+	 * @param elapsed Time elapsed (s).
+	 */
+	public void advance(int count, float elapsed) {
+		if(restFrom == restTo) {
+			advance(0, count, elapsed);
+		}
+		else {
+			// Resting soldiers don't move and their time in state is kept relative to the resting time
+			advance(0, restFrom, elapsed);
+			advance(restTo, count, elapsed);
+			restTime += elapsed;
+		}
+	}
+	
+	/**
+	 * Advances the soldiers from index {@code from} (inclusive) to {@code to} (exclusive).
+	 */
+	private void advance(int from, int to, float elapsed) {
+		if(from >= to) return;
+		
+		int start = head + from;
+		int end = head + to;
+		
+		// Soldiers may wrap around the end of the block so advance in (up to) two contiguous runs
+		if(end <= mask + 1) {
+			advance(position, stateTime, velocity, offset + start, offset + end, elapsed);
+		}
+		else if(start > mask) {
+			advance(position, stateTime, velocity, offset + (start & mask), offset + (end & mask), elapsed);
+		}
+		else {
+			advance(position, stateTime, velocity, offset + start, offset + mask + 1, elapsed);
+			advance(position, stateTime, velocity, offset, offset + (end & mask), elapsed);
+		}
+	}
+	
+	/**
+	 * Advances the soldiers stored at array indices {@code from} (inclusive) to {@code to} (exclusive).
+	 * The loop has no branches (soldiers that are not walking have zero velocity) so that it can be vectorised.
+	 */
+	public static void advance(float[] position, float[] stateTime, float[] velocity, int from, int to, float elapsed) {
+		for(int j = from; j < to; j++) {
+			stateTime[j] += elapsed;
+			position[j] += velocity[j] * elapsed;
+		}
+	}
+	
+	/**
+	 * Gets the index into the arrays of a soldier.
+	 * @param i Index of the soldier (0 is the soldier at the front).
+	 */
+	private int index(int i) {
+		return offset + ((head + i) & mask);
+	}
+	
+	/**
+	 * Uses the specified arrays to store soldiers.
+	 */
+	private void use(SoldierArrays arrays) {
+		position = arrays.position;
+		stateTime = arrays.stateTime;
+		velocity = arrays.velocity;
+		state = arrays.state;
+		hp = arrays.hp;
+		type = arrays.type;
+	}
+	
+	/**
+	 * Allocates arrays of the specified capacity and copies any existing soldiers into them (with the front soldier at index 0).
+	 * @param capacity New capacity (a power of 2).
+	 */
+	private void allocate(int capacity) {
+		SoldierArrays arrays = new SoldierArrays(capacity);
+		
+		for(int i = 0; i < size; i++) {
+			int j = index(i);
+			arrays.position[i] = position[j];
+			arrays.stateTime[i] = stateTime[j];
+			arrays.velocity[i] = velocity[j];
+			arrays.state[i] = state[j];
+			arrays.hp[i] = hp[j];
+			arrays.type[i] = type[j];
+		}
+		
+		use(arrays);
+		head = 0;
+		mask = capacity - 1;
+	}
+}
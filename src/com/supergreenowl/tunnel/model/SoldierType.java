@@ -12,11 +12,11 @@ public class SoldierType {
 	private SoldierType() {}
 	
 	/**
-	 * Cost matrix for soldiers of different types. Indexed by soldier type.
+	 * Cost matrix for soldiers of different types in the default rules (see {@link Ruleset#DEFAULT}). Indexed by soldier type.
 	 */
 	public static final int[] COST = new int[] { 1, 3, 3, 3, 3, 3, 3 };
 	
-	/** Number of hitpoints each soldier has. Indexed by soldier type. */
+	/** Number of hitpoints each soldier has in the default rules. Indexed by soldier type. */
 	public static final int[] HITPOINTS = new int[] { 1, 3, 3, 3, 3, 3, 3 }; 
 	
 	/** Type value indicating no type. */
@@ -1,6 +1,6 @@
 package com.supergreenowl.tunnel.model;
 
-import com.badlogic.gdx.utils.Array;
+import com.supergreenowl.tunnel.controller.Snapshot;
 
 public class Tunnel {
 
@@ -14,41 +14,94 @@ public class Tunnel {
 	 */
 	public static final float NOT_IN_TUNNEL = Float.MIN_VALUE;
 	
+	/** All tunnel states indexed by ordinal. */
+	private static final TunnelState[] STATES = TunnelState.values();
+	
 	/**
 	 * Soldiers in the tunnel moving from west to east.
 	 */
-	public Array<Soldier> west;
+	public final SoldierStore west;
 	
 	/**
 	 * Soldiers in the tunnel moving from east to west.
 	 */
-	public Array<Soldier> east;
+	public final SoldierStore east;
 	
 	public TunnelState state;
 	
+	/** Rules for the soldiers in this tunnel. */
+	public final Ruleset rules;
+	
 	public Tunnel() {
-		west = new Array<Soldier>(true, 16);
-		east = new Array<Soldier>(true, 16);
+		this(Ruleset.DEFAULT);
+	}
+	
+	/**
+	 * Creates a new tunnel with the specified rules.
+	 * @param rules Rules for the soldiers in the tunnel.
+	 */
+	public Tunnel(Ruleset rules) {
+		this(new SoldierStore(Direction.West), new SoldierStore(Direction.East), rules);
+	}
+	
+	/**
+	 * Creates a new tunnel that uses the specified stores for its soldiers.
+	 * @param west Empty store for soldiers moving from west to east.
+	 * @param east Empty store for soldiers moving from east to west.
+	 */
+	public Tunnel(SoldierStore west, SoldierStore east) {
+		this(west, east, Ruleset.DEFAULT);
+	}
+	
+	/**
+	 * Creates a new tunnel that uses the specified stores and rules for its soldiers.
+	 * @param west Empty store for soldiers moving from west to east.
+	 * @param east Empty store for soldiers moving from east to west.
+	 * @param rules Rules for the soldiers in the tunnel.
+	 */
+	public Tunnel(SoldierStore west, SoldierStore east, Ruleset rules) {
+		this.west = west;
+		this.east = east;
+		this.rules = rules;
+		west.setRules(rules);
+		east.setRules(rules);
 		state = TunnelState.Open;
 	}
 	
 	/**
 	 * Puts a soldier in the tunnel at the correct end and starts them walking.
-	 * @param s
+	 * @param direction Direction from which the soldier enters the tunnel.
+	 * @param soldierType Type of soldier.
 	 */
-	public void enter(Soldier s) {
-		
-		s.setState(SoldierState.Walking);
+	public void enter(Direction direction, int soldierType) {
 		
-		if(s.direction == Direction.West) {
-			s.position = 0f - Soldier.RADIUS;
-			west.add(s);
+		if(direction == Direction.West) {
+			west.add(soldierType, 0f - Soldier.RADIUS, SoldierState.Walking);
 		}
-		else if(s.direction == Direction.East) {
-			s.position = LENGTH + Soldier.RADIUS;
-			east.add(s);
+		else if(direction == Direction.East) {
+			east.add(soldierType, LENGTH + Soldier.RADIUS, SoldierState.Walking);
 		}
 	
 	}
+	
+	/**
+	 * Writes the state of the tunnel and all soldiers in it to a snapshot.
+	 * @param snapshot Snapshot to write to.
+	 */
+	public void write(Snapshot snapshot) {
+		snapshot.putByte(state.ordinal());
+		west.write(snapshot);
+		east.write(snapshot);
+	}
+	
+	/**
+	 * Restores the state of the tunnel and all soldiers in it from a snapshot.
+	 * @param snapshot Snapshot to read from.
+	 */
+	public void read(Snapshot snapshot) {
+		state = STATES[snapshot.getByte()];
+		west.read(snapshot);
+		east.read(snapshot);
+	}
 		
 }
@@ -0,0 +1,134 @@
+package com.supergreenowl.tunnel.simulation;
+
+import java.util.Random;
+
+import com.supergreenowl.tunnel.ai.AI;
+import com.supergreenowl.tunnel.ai.AIFactory;
+import com.supergreenowl.tunnel.ai.BalancedSelectionStrategy;
+import com.supergreenowl.tunnel.ai.OrderedAI;
+import com.supergreenowl.tunnel.ai.SnowySelectionStrategy;
+import com.supergreenowl.tunnel.ai.SoldierListSelectionStrategy;
+import com.supergreenowl.tunnel.analyser.ScheduledPlayer;
+import com.supergreenowl.tunnel.campaign.SoldierList;
+import com.supergreenowl.tunnel.controller.Difficulty;
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.EventEngine;
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.controller.Player;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Differential test of {@link EventEngine} against the stepped {@link Engine}. Random games (AI players with random
+ * armies and players that dispatch to a random schedule) are played to the end on both engines with the same seed
+ * and every game must end in the same state at the same game time with the same scores.
+ * Exits with status 1 if any game differs.
+ * @author luke
+ *
+ */
+public class EventEngineCheck {
+	
+	/** Game time after which a game that is still going is stopped (s). */
+	private static final float MAX_TIME = 600f;
+	
+	private static final String[] LISTS = new String[] { "RGBRGBWWWCMY", "BBGGRRWW", "WWWWWWRGB", "CMYCMYRGB", "YYYYGGG" };
+	
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		
+		if(args.length > 2) {
+			System.out.println("Usage: EventEngineCheck [GAMES] [SEED]");
+			return;
+		}
+		
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+		
+		Random random = new Random(seed);
+		int ticks = (int)(MAX_TIME / Engine.FIXED_STEP);
+		int failed = 0;
+		long steppedNanos = 0L, eventNanos = 0L;
+		
+		for(int g = 0; g < games; g++) {
+			// Each engine gets its own players, created from the same seed
+			long gameSeed = random.nextLong();
+			
+			Engine stepped = new Engine(createPlayer(Direction.West, gameSeed), createPlayer(Direction.East, gameSeed), gameSeed);
+			stepped.isFixedStep = true;
+			long start = System.nanoTime();
+			stepped.advance(ticks);
+			steppedNanos += System.nanoTime() - start;
+			
+			Engine event = new EventEngine(createPlayer(Direction.West, gameSeed), createPlayer(Direction.East, gameSeed), gameSeed);
+			start = System.nanoTime();
+			event.advance(ticks);
+			eventNanos += System.nanoTime() - start;
+			
+			String expected = describe(stepped), actual = describe(event);
+			if(!expected.equals(actual)) {
+				failed++;
+				System.out.println("Game " + g + " (seed " + gameSeed + ") differs: stepped " + expected + ", event " + actual);
+			}
+		}
+		
+		System.out.printf("%d of %d games differ (%.1f us per game stepped, %.1f us per game event driven)", failed, games,
+				steppedNanos / 1000d / games, eventNanos / 1000d / games);
+		System.out.println();
+		if(failed > 0) System.exit(1);
+	}
+	
+	private static String describe(Engine engine) {
+		return engine.tunnel.state + " at " + engine.gameTime + " s, scores " + engine.west.score + " vs. " + engine.east.score;
+	}
+	
+	/**
+	 * Creates a random player (the same one every time for the same seed and direction).
+	 * @param direction Direction the player sends soldiers from.
+	 * @param seed Seed for the game.
+	 * @return Player with its soldiers selected.
+	 */
+	private static Player createPlayer(Direction direction, long seed) {
+		Random random = new Random(direction == Direction.West ? seed : ~seed);
+		int coins = 18 + 9 * random.nextInt(3);
+		SoldierAvailability available = SoldierAvailability.values()[random.nextInt(SoldierAvailability.values().length)];
+		SoldierList list = new SoldierList(LISTS[random.nextInt(LISTS.length)]);
+		
+		int kind = random.nextInt(6);
+		if(kind == 0) return schedule(direction, random);
+		if(kind == 1) return new OrderedAI(direction, list);
+		
+		Difficulty difficulty = kind == 2 ? Difficulty.Easy : kind == 3 ? Difficulty.Medium : Difficulty.Hard;
+		int strategy = random.nextInt(4);
+		
+		// Strategies make their random choices with the shared generator so seed that too
+		com.supergreenowl.tunnel.utils.Random.setSeed(random.nextLong());
+		AI ai = AIFactory.create(difficulty, direction,
+				strategy == 0 ? new SoldierListSelectionStrategy(list) : strategy == 1 ? new SnowySelectionStrategy() : new BalancedSelectionStrategy(strategy == 3));
+		ai.selectSoldiers(coins, available);
+		return ai;
+	}
+	
+	/**
+	 * Creates a player that dispatches random soldiers in bursts separated by random gaps
+	 * (some long enough for the engine to auto-dispatch).
+	 */
+	private static Player schedule(Direction direction, Random random) {
+		int count = 1 + random.nextInt(12);
+		int[] types = new int[count];
+		float[] times = new float[count];
+		float time = random.nextInt(4) == 0 ? random.nextFloat() * 2f * Engine.AUTO_DISPATCH_TIME : 0f;
+		for(int i = 0; i < count; i++) {
+			types[i] = random.nextInt(SoldierType.COUNT);
+			times[i] = time;
+			
+			int gap = random.nextInt(4);
+			if(gap == 1) time += random.nextFloat();
+			else if(gap == 2) time += random.nextFloat() * 3f;
+			else if(gap == 3) time += random.nextFloat() * 2f * Engine.AUTO_DISPATCH_TIME;
+		}
+		return new ScheduledPlayer(direction, types, times);
+	}
+}
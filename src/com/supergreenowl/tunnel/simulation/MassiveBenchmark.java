@@ -0,0 +1,136 @@
+package com.supergreenowl.tunnel.simulation;
+
+import java.util.Random;
+
+import com.badlogic.gdx.utils.LongArray;
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.GameConfig;
+import com.supergreenowl.tunnel.controller.Player;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Benchmark for endless games with massive armies. Both players keep sending soldiers into the tunnel much faster
+ * than they are killed so the queues at each end grow into thousands of soldiers. The time taken per tick is reported
+ * as the number of soldiers in the tunnel grows.
+ * @author luke
+ *
+ */
+public class MassiveBenchmark {
+	
+	/** Number of soldiers in the tunnel at which each reported band starts. */
+	private static final int[] BANDS = new int[] { 0, 250, 500, 1000, 2000, 4000, 8000, 16000 };
+	
+	/** Number of ticks timed together. */
+	private static final int TICKS_PER_SAMPLE = 64;
+	
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		
+		if(args.length > 2) {
+			System.out.println("Usage: MassiveBenchmark [DISPATCH_INTERVAL] [SEED]");
+			return;
+		}
+		
+		int interval = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+		
+		System.out.printf("Dispatching a soldier from each side every %d ticks", interval);
+		System.out.println();
+		
+		LongArray[] samples = new LongArray[BANDS.length];
+		for(int i = 0; i < BANDS.length; i++) samples[i] = new LongArray();
+		
+		// Play one game to warm up then time a second identical game
+		play(interval, seed, samples);
+		for(int i = 0; i < BANDS.length; i++) samples[i].clear();
+		Engine engine = play(interval, seed, samples);
+		
+		// Median is reported as well as mean as the odd sample can be slowed down by GC or other processes
+		System.out.println("Soldiers in tunnel    Ticks    Mean us/tick    Median us/tick");
+		for(int i = 0; i < BANDS.length; i++) {
+			LongArray band = samples[i];
+			if(band.size == 0) continue;
+			
+			long total = 0L;
+			for(int j = 0; j < band.size; j++) total += band.get(j);
+			band.sort();
+			
+			long ticks = (long)band.size * TICKS_PER_SAMPLE;
+			double mean = (double)total / ticks / 1000d;
+			double median = (double)band.get(band.size / 2) / TICKS_PER_SAMPLE / 1000d;
+			System.out.printf("%8d+ %16d %15.2f %17.2f", BANDS[i], ticks, mean, median);
+			System.out.println();
+		}
+		
+		System.out.printf("Finished after %d ticks (%.0f s game time, %d waves): %s", engine.ticks, engine.gameTime, engine.waves, engine.tunnel.state);
+		System.out.println();
+	}
+	
+	/**
+	 * Plays an endless game with massive armies until the tunnel is full enough (or someone wins).
+	 * @param interval Number of ticks between soldiers being sent in by each player.
+	 * @param seed Seed for the game.
+	 * @param samples Time taken (ns) by each sample, grouped into bands by the number of soldiers in the tunnel.
+	 * @return Engine that ran the game.
+	 */
+	private static Engine play(int interval, long seed, LongArray[] samples) {
+		
+		int coins = GameConfig.ArmySize.Massive.toCoins();
+		Player west = createPlayer(Direction.West, coins);
+		Player east = createPlayer(Direction.East, coins);
+		
+		Engine engine = new Engine(west, east, seed);
+		engine.isFixedStep = true;
+		engine.waveInterval = GameConfig.WAVE_INTERVAL;
+		
+		Random random = new Random(seed);
+		int last = BANDS[BANDS.length - 1];
+		
+		while(engine.tunnel.state == TunnelState.Open) {
+			int inTunnel = engine.tunnel.west.size() + engine.tunnel.east.size();
+			if(inTunnel >= last) break;
+			
+			int band = BANDS.length - 1;
+			while(BANDS[band] > inTunnel) band--;
+			
+			long start = System.nanoTime();
+			for(int i = 0; i < TICKS_PER_SAMPLE; i++) {
+				if(engine.ticks % interval == 0) {
+					dispatch(engine, west, random);
+					dispatch(engine, east, random);
+				}
+				engine.advance(1);
+			}
+			samples[band].add(System.nanoTime() - start);
+		}
+		
+		return engine;
+	}
+	
+	/**
+	 * Creates a player with an equal number of red, green and blue soldiers.
+	 * @param direction Direction the player sends soldiers from.
+	 * @param coins Number of coins to spend.
+	 * @return
+	 */
+	private static Player createPlayer(Direction direction, int coins) {
+		Player player = new Player(false, direction);
+		int each = coins / (3 * player.rules.cost(SoldierType.RED));
+		player.selectedSoldiers[SoldierType.RED] = each;
+		player.selectedSoldiers[SoldierType.GREEN] = each;
+		player.selectedSoldiers[SoldierType.BLUE] = each;
+		return player;
+	}
+	
+	/**
+	 * Sends a random soldier into the tunnel for a player (if it has any left).
+	 */
+	private static void dispatch(Engine engine, Player player, Random random) {
+		int type = SoldierType.RED + random.nextInt(3);
+		engine.dispatchSoldier(player.direction, type);
+	}
+}
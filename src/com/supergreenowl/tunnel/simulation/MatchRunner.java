@@ -0,0 +1,191 @@
+package com.supergreenowl.tunnel.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.supergreenowl.tunnel.ai.AI;
+import com.supergreenowl.tunnel.ai.AIFactory;
+import com.supergreenowl.tunnel.ai.BalancedSelectionStrategy;
+import com.supergreenowl.tunnel.ai.MultipleSelectionStrategy;
+import com.supergreenowl.tunnel.ai.SelectionStrategy;
+import com.supergreenowl.tunnel.ai.SnowySelectionStrategy;
+import com.supergreenowl.tunnel.controller.Difficulty;
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.GameConfig.ArmySize;
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.controller.MatchBatch;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+import com.supergreenowl.tunnel.utils.Random;
+
+/**
+ * Plays lots of AI vs. AI games without starting libgdx or its native backends and counts the outcomes.
+ * Games are played in {@link MatchBatch}es in fixed steps against a virtual clock so no real time has to pass
+ * and the result of every game only depends on the seed it is given (not on the number of threads).
+ * @author luke
+ *
+ */
+public class MatchRunner {
+	
+	/**
+	 * Describes one side of a match: the difficulty of the AI and (optionally) how it selects its soldiers.
+	 * A side is written as a difficulty character optionally followed by a strategy name, e.g. {@code H} or {@code M:snowy}.
+	 * @author luke
+	 *
+	 */
+	public static class Side {
+		
+		private static final String SEPARATOR = ":";
+		
+		private static final String BALANCED = "balanced";
+		private static final String WHITES = "whites";
+		private static final String SNOWY = "snowy";
+		private static final String MIXED = "mixed";
+		
+		public final Difficulty difficulty;
+		
+		/** Name of the selection strategy or {@code null} for the usual strategy for the difficulty. */
+		public final String strategy;
+		
+		public Side(Difficulty difficulty, String strategy) {
+			if(difficulty == Difficulty.Ordered) throw new IllegalArgumentException("Ordered AIs need a list of soldiers.");
+			if(strategy != null && !BALANCED.equals(strategy) && !WHITES.equals(strategy) && !SNOWY.equals(strategy) && !MIXED.equals(strategy)) {
+				throw new IllegalArgumentException(strategy + " is not a valid selection strategy.");
+			}
+			
+			this.difficulty = difficulty;
+			this.strategy = strategy;
+		}
+		
+		/**
+		 * Parses a side.
+		 * @param s Side such as {@code H} or {@code M:snowy}.
+		 * @return
+		 */
+		public static Side parse(String s) {
+			String[] parts = s.split(SEPARATOR);
+			if(parts.length > 2 || parts[0].length() != 1) throw new IllegalArgumentException(s + " is not a valid side.");
+			return new Side(Difficulty.fromChar(parts[0].charAt(0)), parts.length > 1 ? parts[1] : null);
+		}
+		
+		/**
+		 * Creates a new AI player for this side.
+		 * @param direction Direction the AI plays in.
+		 * @return
+		 */
+		public AI create(Direction direction) {
+			if(strategy == null) return AIFactory.create(difficulty, direction);
+			
+			SelectionStrategy selection;
+			if(BALANCED.equals(strategy)) selection = new BalancedSelectionStrategy(false);
+			else if(WHITES.equals(strategy)) selection = new BalancedSelectionStrategy(true);
+			else if(SNOWY.equals(strategy)) selection = new SnowySelectionStrategy();
+			else selection = new MultipleSelectionStrategy(new BalancedSelectionStrategy(false), new BalancedSelectionStrategy(true), new SnowySelectionStrategy());
+			
+			return AIFactory.create(difficulty, direction, selection);
+		}
+		
+		@Override
+		public String toString() {
+			return strategy == null ? difficulty.toString() : difficulty + " (" + strategy + ")";
+		}
+	}
+	
+	/** Most soldiers held in the shared arrays of one batch of games. */
+	private static final int SOLDIERS_PER_BATCH = 1 << 22;
+	
+	/** Most games played together in one batch. */
+	private static final int GAMES_PER_BATCH = 4096;
+	
+	public final Side westSide;
+	public final Side eastSide;
+	public final ArmySize armySize;
+	public final SoldierAvailability available;
+	public final Ruleset rules;
+	
+	public int west, east, draws, unfinished;
+	
+	/** Total game time of all the finished games (s). */
+	public double gameTime;
+	
+	/**
+	 * Creates a new runner.
+	 * @param west Player at the west end of the tunnel.
+	 * @param east Player at the east end of the tunnel.
+	 * @param armySize Size of the armies each player buys.
+	 * @param available Soldiers that are available to buy.
+	 * @param rules Rules for the soldiers.
+	 */
+	public MatchRunner(Side west, Side east, ArmySize armySize, SoldierAvailability available, Ruleset rules) {
+		this.westSide = west;
+		this.eastSide = east;
+		this.armySize = armySize;
+		this.available = available;
+		this.rules = rules;
+	}
+	
+	/**
+	 * Plays a number of games and adds their outcomes to the totals.
+	 * Game {@code i} uses the seed {@code seed + i} both for the players' selection of soldiers and for the game itself.
+	 * @param matches Number of games to play.
+	 * @param seed Seed of the first game.
+	 * @param maxTicks Number of ticks after which a game that is still going is given up on and counted as unfinished.
+	 * @param pool Pool to play the games on.
+	 */
+	public void run(int matches, long seed, int maxTicks, ForkJoinPool pool) {
+		
+		int coins = armySize.toCoins();
+		
+		// Players can't buy more soldiers than they can afford of the cheapest type available
+		int cheapest = Integer.MAX_VALUE;
+		for(int t = 0; t < SoldierType.COUNT; t++) {
+			if(available.allows(t)) cheapest = Math.min(cheapest, rules.cost(t));
+		}
+		int soldiersPerSide = Math.max(1, coins / cheapest);
+		
+		int games = Math.min(SOLDIERS_PER_BATCH / (2 * soldiersPerSide), GAMES_PER_BATCH);
+		games = Math.max(1, Math.min(games, matches));
+		MatchBatch batch = new MatchBatch(games, soldiersPerSide, rules);
+		
+		for(int first = 0; first < matches; first += games) {
+			batch.clear();
+			
+			int count = Math.min(games, matches - first);
+			for(int i = 0; i < count; i++) {
+				long s = seed + first + i;
+				Random.setSeed(s);
+				
+				AI w = westSide.create(Direction.West);
+				AI e = eastSide.create(Direction.East);
+				w.rules = e.rules = rules;
+				w.selectSoldiers(coins, available);
+				e.selectSoldiers(coins, available);
+				batch.add(w, e, s);
+			}
+			
+			batch.advance(maxTicks, pool);
+			
+			for(int i = 0; i < count; i++) {
+				Engine engine = batch.get(i);
+				TunnelState state = engine.tunnel.state;
+				
+				if(state == TunnelState.Open) unfinished++;
+				else {
+					if(state == TunnelState.West) west++;
+					else if(state == TunnelState.East) east++;
+					else draws++;
+					gameTime += engine.gameTime;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of games played so far.
+	 * @return
+	 */
+	public int matches() {
+		return west + east + draws + unfinished;
+	}
+}
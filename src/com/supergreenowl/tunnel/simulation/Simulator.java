@@ -0,0 +1,101 @@
+package com.supergreenowl.tunnel.simulation;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
+
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.GameConfig.ArmySize;
+import com.supergreenowl.tunnel.controller.GameConfig.SoldierAvailability;
+import com.supergreenowl.tunnel.model.Ruleset;
+
+/**
+ * Command line runner for headless AI vs. AI games (see {@link MatchRunner}). Runs on a plain JVM without starting
+ * libgdx or its native backends.
+ * @author luke
+ *
+ */
+public class Simulator {
+	
+	private static final String USAGE = "Usage: Simulator WEST EAST [-n MATCHES] [-a ARMY_SIZE] [-v AVAILABILITY] [-s SEED] [-t THREADS] [-m MAX_GAME_TIME] [-r RULES_FILE]";
+	
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 2 || args.length % 2 != 0) {
+			System.out.println(USAGE);
+			System.out.println("WEST and EAST are a difficulty (E, M or H) optionally followed by a strategy (balanced, whites, snowy or mixed), e.g. M:snowy");
+			return;
+		}
+		
+		MatchRunner.Side west = MatchRunner.Side.parse(args[0]);
+		MatchRunner.Side east = MatchRunner.Side.parse(args[1]);
+		int matches = 1000;
+		ArmySize armySize = ArmySize.Medium;
+		SoldierAvailability available = SoldierAvailability.WRGB;
+		long seed = 1L;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxTime = 600;
+		Ruleset rules = Ruleset.DEFAULT;
+		
+		for(int i = 2; i < args.length; i += 2) {
+			String option = args[i];
+			String value = args[i + 1];
+			
+			if(option.equals("-n")) matches = Integer.parseInt(value);
+			else if(option.equals("-a")) armySize = ArmySize.valueOf(value);
+			else if(option.equals("-v")) available = SoldierAvailability.valueOf(value);
+			else if(option.equals("-s")) seed = Long.parseLong(value);
+			else if(option.equals("-t")) threads = Integer.parseInt(value);
+			else if(option.equals("-m")) maxTime = Integer.parseInt(value);
+			else if(option.equals("-r")) {
+				Reader reader = new FileReader(value);
+				try {
+					rules = Ruleset.load(reader);
+				}
+				finally {
+					reader.close();
+				}
+			}
+			else {
+				System.out.println(USAGE);
+				return;
+			}
+		}
+		
+		System.out.printf("Playing %,d matches: %s vs. %s, %s armies of %s, seed %d, %d threads", matches, west, east, armySize, available, seed, threads);
+		System.out.println();
+		
+		MatchRunner runner = new MatchRunner(west, east, armySize, available, rules);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		int maxTicks = (int)(maxTime / Engine.FIXED_STEP);
+		
+		long start = System.nanoTime();
+		runner.run(matches, seed, maxTicks, pool);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+		
+		int finished = matches - runner.unfinished;
+		System.out.printf("West wins: %,d (%.2f%%)", runner.west, percent(runner.west, matches));
+		System.out.println();
+		System.out.printf("East wins: %,d (%.2f%%)", runner.east, percent(runner.east, matches));
+		System.out.println();
+		System.out.printf("Draws: %,d (%.2f%%)", runner.draws, percent(runner.draws, matches));
+		System.out.println();
+		System.out.printf("Unfinished after %d s: %,d (%.2f%%)", maxTime, runner.unfinished, percent(runner.unfinished, matches));
+		System.out.println();
+		if(finished > 0) {
+			System.out.printf("Mean game time: %.1f s", runner.gameTime / finished);
+			System.out.println();
+		}
+		System.out.printf("%,d matches in %.2f s (%,.0f matches/s)", matches, seconds, matches / seconds);
+		System.out.println();
+	}
+	
+	private static double percent(int n, int total) {
+		return total == 0 ? 0d : (double)n / (double)total * 100d;
+	}
+}
@@ -0,0 +1,99 @@
+package com.supergreenowl.tunnel.simulation;
+
+import java.util.Random;
+
+import com.supergreenowl.tunnel.analyser.ScheduledPlayer;
+import com.supergreenowl.tunnel.analyser.TimedCombatAnalyser;
+import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.model.Direction;
+import com.supergreenowl.tunnel.model.Ruleset;
+import com.supergreenowl.tunnel.model.SoldierType;
+import com.supergreenowl.tunnel.model.TunnelState;
+
+/**
+ * Randomized differential test of {@link TimedCombatAnalyser} against the stepped {@link Engine}. Each fight is a pair
+ * of random dispatch schedules (bursts of soldiers sent together, short gaps and gaps long enough for the engine to
+ * auto-dispatch) with a random seed. The analyser and an engine stepping every tick with {@link ScheduledPlayer}s
+ * must agree on the winner and the game time the fight ended at. Exits with status 1 if any fight differs.
+ * @author luke
+ *
+ */
+public class TimedCombatCheck {
+	
+	/** Game time after which a fight that is still going is given up on (s). */
+	private static final float MAX_TIME = 300f;
+	
+	/** Most soldiers dispatched by each side. */
+	private static final int MAX_SOLDIERS = 12;
+	
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		
+		if(args.length > 2) {
+			System.out.println("Usage: TimedCombatCheck [FIGHTS] [SEED]");
+			return;
+		}
+		
+		int fights = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+		
+		Random random = new Random(seed);
+		TimedCombatAnalyser analyser = new TimedCombatAnalyser(Ruleset.DEFAULT, MAX_TIME);
+		int ticks = (int)(MAX_TIME / Engine.FIXED_STEP);
+		int failed = 0;
+		int[] outcomes = new int[TunnelState.values().length];
+		
+		for(int f = 0; f < fights; f++) {
+			int[] westTypes = types(random), eastTypes = types(random);
+			float[] westTimes = times(random, westTypes.length), eastTimes = times(random, eastTypes.length);
+			long fightSeed = random.nextLong();
+			
+			TunnelState analysed = analyser.fight(westTypes, westTimes, eastTypes, eastTimes, fightSeed);
+			
+			Engine engine = new Engine(new ScheduledPlayer(Direction.West, westTypes, westTimes),
+					new ScheduledPlayer(Direction.East, eastTypes, eastTimes), fightSeed);
+			engine.isFixedStep = true;
+			engine.advance(ticks);
+			
+			outcomes[analysed.ordinal()]++;
+			if(analysed != engine.tunnel.state || analyser.gameTime != engine.gameTime) {
+				failed++;
+				System.out.println("Fight " + f + " differs: engine " + engine.tunnel.state + " at " + engine.gameTime + " s, analyser "
+						+ analysed + " at " + analyser.gameTime + " s");
+			}
+		}
+		
+		System.out.printf("%d of %d fights differ (", failed, fights);
+		for(TunnelState state : TunnelState.values()) {
+			System.out.printf("%s%s %d", state.ordinal() > 0 ? ", " : "", state, outcomes[state.ordinal()]);
+		}
+		System.out.println(")");
+		if(failed > 0) System.exit(1);
+	}
+	
+	private static int[] types(Random random) {
+		int[] types = new int[1 + random.nextInt(MAX_SOLDIERS)];
+		for(int i = 0; i < types.length; i++) types[i] = random.nextInt(SoldierType.COUNT);
+		return types;
+	}
+	
+	/**
+	 * Makes a random schedule: soldiers are sent together in bursts or after short or long gaps
+	 * (some longer than {@link Engine#AUTO_DISPATCH_TIME}) and some schedules start late.
+	 */
+	private static float[] times(Random random, int count) {
+		float[] times = new float[count];
+		float time = random.nextInt(4) == 0 ? random.nextFloat() * 2f * Engine.AUTO_DISPATCH_TIME : 0f;
+		for(int i = 0; i < count; i++) {
+			times[i] = time;
+			
+			int gap = random.nextInt(4);
+			if(gap == 1) time += random.nextFloat();
+			else if(gap == 2) time += random.nextFloat() * 3f;
+			else if(gap == 3) time += random.nextFloat() * 2f * Engine.AUTO_DISPATCH_TIME;
+		}
+		return times;
+	}
+}
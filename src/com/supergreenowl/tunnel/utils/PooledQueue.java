@@ -65,7 +65,7 @@ public class PooledQueue<T> {
 	public void clear() {
 		Node<T> n = head;
 		while(n != null) {
-			Node<T> next = head.next;
+			Node<T> next = n.next;
 			nodePool.free(n);
 			n = next;
 		}
@@ -2,12 +2,18 @@ package com.supergreenowl.tunnel.utils;
 
 /**
  * Provides access to static instance of {@code java.util.Random} to prevent lots of classes creating their own instances.
+ * Each thread has its own generator so that headless games on different threads don't contend for (or disturb) each other's sequence.
  * @author luke
  *
  */
 public class Random {
 
-	private static java.util.Random generator = new java.util.Random();
+	private static final ThreadLocal<java.util.Random> generator = new ThreadLocal<java.util.Random>() {
+		@Override
+		protected java.util.Random initialValue() {
+			return new java.util.Random();
+		}
+	};
 	
 	private Random() {
 		// You can't instantiate me.
@@ -19,7 +25,27 @@ public class Random {
 	 * @return Integer.
 	 */
 	public static int nextInt(int n) {
-		return generator.nextInt(n);
+		return generator.get().nextInt(n);
+	}
+	
+	/**
+	 * Seeds the current thread's generator so that the numbers it returns can be repeated.
+	 * @param seed Seed.
+	 */
+	public static void setSeed(long seed) {
+		generator.get().setSeed(seed);
+	}
+	
+	/**
+	 * Replaces the current thread's generator, e.g. with one that plays back chosen numbers.
+	 * @param random New generator or {@code null} for a new pseudo-random one.
+	 * @return Generator that was replaced so that it can be put back.
+	 */
+	public static java.util.Random setGenerator(java.util.Random random) {
+		java.util.Random old = generator.get();
+		if(random == null) generator.remove();
+		else generator.set(random);
+		return old;
 	}
 	
 }
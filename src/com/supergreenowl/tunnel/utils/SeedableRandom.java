@@ -0,0 +1,64 @@
+package com.supergreenowl.tunnel.utils;
+
+/**
+ * Pseudo-random number generator whose entire state is a single {@code long} that can be read and written.
+ * This allows a game to be replayed exactly from a seed (or from a saved state part way through).
+ * Uses the same linear congruential generator as {@code java.util.Random} so it produces the same sequence for the same seed.
+ * @author luke
+ *
+ */
+public class SeedableRandom extends java.util.Random {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+	
+	/** Current state of the generator. Deliberately not initialised here as the super constructor sets it via {@link #setSeed(long)}. */
+	private long state;
+	
+	/**
+	 * Creates a new generator with a seed that is very likely to be different from any other generator.
+	 */
+	public SeedableRandom() {
+		this(System.nanoTime() ^ Double.doubleToLongBits(Math.random()));
+	}
+	
+	/**
+	 * Creates a new generator with the specified seed.
+	 * @param seed Initial seed.
+	 */
+	public SeedableRandom(long seed) {
+		super(seed);
+		setSeed(seed); // Some implementations of java.util.Random do not call setSeed from their constructor
+	}
+	
+	@Override
+	public synchronized void setSeed(long seed) {
+		state = (seed ^ MULTIPLIER) & MASK;
+		super.setSeed(seed);
+	}
+	
+	/**
+	 * Gets the current internal state of this generator.
+	 * @return State which can be passed to {@link #setState(long)} to continue the same sequence later.
+	 */
+	public long getState() {
+		return state;
+	}
+	
+	/**
+	 * Restores the internal state of this generator (as previously returned by {@link #getState()}).
+	 * @param state Generator state.
+	 */
+	public void setState(long state) {
+		this.state = state & MASK;
+	}
+	
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int)(state >>> (48 - bits));
+	}
+}
@@ -6,7 +6,6 @@ import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
 import com.supergreenowl.tunnel.model.CombatEngine;
-import com.supergreenowl.tunnel.model.Soldier;
 import com.supergreenowl.tunnel.model.SoldierState;
 import com.supergreenowl.tunnel.model.SoldierType;
 
@@ -197,17 +196,16 @@ public class GameImages implements Disposable {
 	
 	/**
 	 * Gets the texture region representing a soldier as determined by the current state of the soldier.
-	 * @param s Soldier to draw.
+	 * @param type Type of the soldier to draw.
+	 * @param state Current state of the soldier.
+	 * @param stateTime Time the soldier has been in its current state (s).
 	 * @return Texture region for soldier.
 	 */
-	public TextureRegion soldier(Soldier s) {
+	public TextureRegion soldier(int type, SoldierState state, float stateTime) {
 		
-		SoldierState state = s.state;
-		int type = s.type;
-		
-		if(state == SoldierState.Walking) return walk[type].getKeyFrame(s.stateTime, true);
-		else if(state == SoldierState.Hitting) return hit[type].getKeyFrame(s.stateTime, true);
-		else if(state == SoldierState.Dying) return death[type].getKeyFrame(s.stateTime, true);
+		if(state == SoldierState.Walking) return walk[type].getKeyFrame(stateTime, true);
+		else if(state == SoldierState.Hitting) return hit[type].getKeyFrame(stateTime, true);
+		else if(state == SoldierState.Dying) return death[type].getKeyFrame(stateTime, true);
 		else /*if(state == SoldierState.Stopped)*/ return soldier[type];
 	}
 	
@@ -3,17 +3,17 @@ package com.supergreenowl.tunnel.view;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.supergreenowl.tunnel.Game;
-import com.supergreenowl.tunnel.controller.CombatListener;
 import com.supergreenowl.tunnel.controller.Engine;
+import com.supergreenowl.tunnel.controller.EventStream;
 import com.supergreenowl.tunnel.controller.GameConfig;
-import com.supergreenowl.tunnel.model.Soldier;
+import com.supergreenowl.tunnel.model.SoldierStore;
 import com.supergreenowl.tunnel.model.TunnelState;
 import com.supergreenowl.tunnel.ui.DispatchButton;
 import com.supergreenowl.tunnel.ui.HorizontalAlign;
 import com.supergreenowl.tunnel.ui.Screen;
 import com.supergreenowl.tunnel.ui.VerticalAlign;
 
-public class GameScreen extends Screen implements CombatListener {
+public class GameScreen extends Screen {
 
 	private Engine engine;
 	
@@ -60,7 +60,9 @@ public class GameScreen extends Screen implements CombatListener {
 		isGameOver = false;
 		
 		this.engine = new Engine(config.west, config.east);
-		this.engine.listener = this;
+		this.engine.isFixedStep = true;
+		if(config.isEndless) this.engine.waveInterval = GameConfig.WAVE_INTERVAL;
+		this.engine.events = new EventStream();
 		layoutButtons();
 		
 		this.music = game.music.inGame;
@@ -69,14 +71,24 @@ public class GameScreen extends Screen implements CombatListener {
 		game.text.setDefaultAlignment(HorizontalAlign.Right, VerticalAlign.Middle);
 	}
 
-	@Override
-	public void onHit() {
-		game.sound.hit();
-	}
-
-	@Override
-	public void onDeath() {
-		game.sound.death();
+	/**
+	 * Drains the events raised by the engine since the last frame and plays sounds for them.
+	 * At most one combat sound is played per frame and deaths take priority over hits.
+	 */
+	private void drainEvents() {
+		EventStream events = engine.events;
+		boolean isHit = false, isDeath = false;
+		
+		int len = events.size();
+		for(int i = 0; i < len; i++) {
+			int type = events.type(i);
+			if(type == EventStream.HIT) isHit = true;
+			else if(type == EventStream.DEATH) isDeath = true;
+		}
+		events.clear();
+		
+		if(isDeath) game.sound.death();
+		else if(isHit) game.sound.hit();
 	}
 
 	@Override
@@ -123,6 +135,7 @@ public class GameScreen extends Screen implements CombatListener {
 	protected void update(float delta) {
 		// Update game engine
 		engine.update(delta);
+		drainEvents();
 		
 		// Update buttons displays
 		if(p1Buttons != null) {
@@ -164,37 +177,36 @@ public class GameScreen extends Screen implements CombatListener {
 			batch.draw(countdown, COUNTDOWN_X, COUNTDOWN_Y);
 		}
 		
+		SoldierStore west = engine.tunnel.west;
+		SoldierStore east = engine.tunnel.east;
+		
 		// Draw west soldiers
-		int len = engine.tunnel.west.size;
+		int len = west.size();
 		for(int i = 0; i < len; i++) {
-			Soldier s = engine.tunnel.west.get(i);
-			TextureRegion tex = images.soldier(s);
-			batch.draw(tex, (s.position * PIXELS_PER_M) - SOLDIER_X_OFFSET, SOLDIER_Y);
+			TextureRegion tex = images.soldier(west.type(i), west.state(i), west.stateTime(i));
+			batch.draw(tex, (west.position(i) * PIXELS_PER_M) - SOLDIER_X_OFFSET, SOLDIER_Y);
 		}
 		
 		// Draw east soldiers
-		len = engine.tunnel.east.size;
+		len = east.size();
 		for(int i = 0; i < len; i++) {
-			Soldier s = engine.tunnel.east.get(i);
-			TextureRegion tex = images.soldier(s);
+			TextureRegion tex = images.soldier(east.type(i), east.state(i), east.stateTime(i));
 			// Flip soldier with -ve width so it faces west
-			batch.draw(tex, (s.position * PIXELS_PER_M) + SOLDIER_X_OFFSET, SOLDIER_Y, -1f * tex.getRegionWidth(), GameImages.SOLDIER_HEIGHT_F);
+			batch.draw(tex, (east.position(i) * PIXELS_PER_M) + SOLDIER_X_OFFSET, SOLDIER_Y, -1f * tex.getRegionWidth(), GameImages.SOLDIER_HEIGHT_F);
 		}
 		
 		// Draw west soldiers' health
-		len = engine.tunnel.west.size;
+		len = west.size();
 		for(int i = 0; i < len; i++) {
-			Soldier s = engine.tunnel.west.get(i);
-			TextureRegion health = images.healthBar(s.hp, s.maxHp);
-			batch.draw(health, (s.position * PIXELS_PER_M) - HEALTH_BAR_X_OFFSET, HEALTH_BAR_Y);
+			TextureRegion health = images.healthBar(west.hp(i), west.maxHp(i));
+			batch.draw(health, (west.position(i) * PIXELS_PER_M) - HEALTH_BAR_X_OFFSET, HEALTH_BAR_Y);
 		}
 		
 		// Draw east soldiers' health
-		len = engine.tunnel.east.size;
+		len = east.size();
 		for(int i = 0; i < len; i++) {
-			Soldier s = engine.tunnel.east.get(i);
-			TextureRegion health = images.healthBar(s.hp, s.maxHp);
-			batch.draw(health, (s.position * PIXELS_PER_M) - HEALTH_BAR_X_OFFSET, HEALTH_BAR_Y);
+			TextureRegion health = images.healthBar(east.hp(i), east.maxHp(i));
+			batch.draw(health, (east.position(i) * PIXELS_PER_M) - HEALTH_BAR_X_OFFSET, HEALTH_BAR_Y);
 		}
 		
 		// Work out if warning animations are needed for auto-dispatch
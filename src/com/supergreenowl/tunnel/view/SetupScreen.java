@@ -1,5 +1,6 @@
 package com.supergreenowl.tunnel.view;
 
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.supergreenowl.tunnel.Game;
 import com.supergreenowl.tunnel.ai.AI;
@@ -9,7 +10,9 @@ import com.supergreenowl.tunnel.controller.GameConfig;
 import com.supergreenowl.tunnel.controller.Player;
 import com.supergreenowl.tunnel.model.Direction;
 import com.supergreenowl.tunnel.ui.ColourFactory;
+import com.supergreenowl.tunnel.ui.HorizontalAlign;
 import com.supergreenowl.tunnel.ui.Screen;
+import com.supergreenowl.tunnel.ui.VerticalAlign;
 import com.supergreenowl.tunnel.ui.grid.ContainerItem;
 import com.supergreenowl.tunnel.ui.grid.GridItem;
 import com.supergreenowl.tunnel.ui.grid.GridScreen;
@@ -22,6 +25,14 @@ import com.supergreenowl.tunnel.ui.grid.TouchListener;
  */
 public class SetupScreen extends GridScreen {
 
+	/**
+	 * Whether armies fight once or are reinforced in waves until one side wins.
+	 */
+	private enum Waves {
+		Single,
+		Endless
+	}
+	
 	private GameConfig config;
 	private SetupImages images;
 	
@@ -29,6 +40,7 @@ public class SetupScreen extends GridScreen {
 	private DifficultyToggle difficulty;
 	private SizeToggle armySize;
 	private PlayersToggle players;
+	private WavesToggle waves;
 	
 	public SetupScreen(Game game, GameConfig config) {
 		super(game, 5);
@@ -85,7 +97,8 @@ public class SetupScreen extends GridScreen {
 		nextRow();
 		
 		add(new ContainerItem(images.brick, images.wealth));
-		add(images.brick);
+		waves = new WavesToggle(images.brickActive, config.isEndless ? Waves.Endless : Waves.Single);
+		add(waves);
 		armySize = new SizeToggle(images.brickActive, config.armySize);
 		add(armySize);
 	}
@@ -149,6 +162,8 @@ public class SetupScreen extends GridScreen {
 			config.difficulty = difficulty.state;
 		}
 		
+		config.isEndless = waves.state.equals(Waves.Endless);
+		
 		if(!config.type.equals(players.state)) {
 			// if game type has changed to/from multiplayer then P2 is no longer valid
 			isEastValid = false;
@@ -235,12 +250,41 @@ public class SetupScreen extends GridScreen {
 		}
 	}
 	
+	/**
+	 * Toggle button that writes its state as text for states that have no image yet.
+	 * @author luke
+	 *
+	 */
+	private abstract class TextToggle<E extends Enum<E>> extends ToggleItem<E> {
+		
+		public TextToggle(TextureRegion background, E state) {
+			super(background, state);
+		}
+		
+		/**
+		 * Gets the text written over this item for the current state.
+		 * @return Text or {@code null} if the state is shown by {@link #getRegion()}.
+		 */
+		public abstract String getText();
+		
+		@Override
+		public void draw(SpriteBatch batch) {
+			super.draw(batch);
+			
+			String text = getText();
+			if(text != null) {
+				game.text.write(text, batch, x + (float)Math.floor(width / 2f), y + (float)Math.floor(height / 2f),
+						HorizontalAlign.Centre, VerticalAlign.Middle);
+			}
+		}
+	}
+	
 	/**
 	 * Toggle button for army size.
 	 * @author luke
 	 *
 	 */
-	private class SizeToggle extends ToggleItem<GameConfig.ArmySize> {
+	private class SizeToggle extends TextToggle<GameConfig.ArmySize> {
 
 		public SizeToggle(TextureRegion background, GameConfig.ArmySize state) {
 			super(background, state);
@@ -250,6 +294,8 @@ public class SetupScreen extends GridScreen {
 		public GameConfig.ArmySize nextState() {
 			if(state.equals(GameConfig.ArmySize.Small)) return GameConfig.ArmySize.Medium;
 			else if(state.equals(GameConfig.ArmySize.Medium)) return GameConfig.ArmySize.Large;
+			else if(state.equals(GameConfig.ArmySize.Large)) return GameConfig.ArmySize.Huge;
+			else if(state.equals(GameConfig.ArmySize.Huge)) return GameConfig.ArmySize.Massive;
 			else return GameConfig.ArmySize.Small;
 		}
 
@@ -257,9 +303,46 @@ public class SetupScreen extends GridScreen {
 		public TextureRegion getRegion() {
 			if(state.equals(GameConfig.ArmySize.Small)) return images.low;
 			else if(state.equals(GameConfig.ArmySize.Medium)) return images.medium;
-			else return images.high;
+			else if(state.equals(GameConfig.ArmySize.Large)) return images.high;
+			else return texture;
 		}
 		
+		@Override
+		public String getText() {
+			if(state.equals(GameConfig.ArmySize.Huge)) return "Huge";
+			else if(state.equals(GameConfig.ArmySize.Massive)) return "Massive";
+			else return null;
+		}
+		
+	}
+	
+	/**
+	 * Toggle button for endless waves of reinforcements.
+	 * @author luke
+	 *
+	 */
+	private class WavesToggle extends TextToggle<Waves> {
+		
+		public WavesToggle(TextureRegion background, Waves state) {
+			super(background, state);
+		}
+		
+		@Override
+		public Waves nextState() {
+			if(state.equals(Waves.Single)) return Waves.Endless;
+			else return Waves.Single;
+		}
+		
+		@Override
+		public TextureRegion getRegion() {
+			return texture;
+		}
+		
+		@Override
+		public String getText() {
+			if(state.equals(Waves.Endless)) return "Endless";
+			else return "One army";
+		}
 	}
 	
 	private class PlayersToggle extends ToggleItem<GameConfig.Type> {
@@ -194,7 +194,7 @@ public class SoldierSelectScreen extends GridScreen implements SelectionListener
 	private void buy() {
 		if(selectedType != Player.NONE_SELECTED && config.available.allows(selectedType)) {
 			int remaining = config.coins - player.totalCost();
-			int cost = SoldierType.COST[selectedType];
+			int cost = player.rules.cost(selectedType);
 			if(cost <= remaining) {
 				if(player.selectedSoldiers[selectedType] == Player.NONE_SELECTED) player.selectedSoldiers[selectedType] = 0;
 				player.selectedSoldiers[selectedType]++;
@@ -240,7 +240,7 @@ public class SoldierSelectScreen extends GridScreen implements SelectionListener
 		forward.isDisabled = remaining > 0;
 		
 		// Enable/disabled auto buy button - must have enough coins to afford a soldier
-		int minCost = config.available.allows(SoldierType.WHITE) ? SoldierType.COST[SoldierType.WHITE] : SoldierType.COST[SoldierType.RED];
+		int minCost = config.available.allows(SoldierType.WHITE) ? player.rules.cost(SoldierType.WHITE) : player.rules.cost(SoldierType.RED);
 		autobuy.isDisabled = remaining < minCost;
 		
 		// Enable/disable buy and sell buttons - must have a soldier type selected and be able to afford it/have some to sell
@@ -249,7 +249,7 @@ public class SoldierSelectScreen extends GridScreen implements SelectionListener
 			sell.isDisabled = true;
 		}
 		else {
-			buy.isDisabled = remaining < SoldierType.COST[selectedType];
+			buy.isDisabled = remaining < player.rules.cost(selectedType);
 			sell.isDisabled = player.selectedSoldiers[selectedType] < 1;
 		}
 		